@@ -0,0 +1,53 @@
+package org.dgl.commons.io.benchmark;
+
+import org.dgl.commons.io.tabular.DataLine;
+import org.dgl.commons.io.tabular.DataLineStructure;
+import org.dgl.commons.io.tabular.PrimitiveType;
+import org.dgl.commons.io.tabular.TabularFileWriter;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Test data shared by the benchmarks
+ */
+class BenchmarkFiles {
+
+    static DataLineStructure createLineStructure() {
+        return new DataLineStructure(PrimitiveType.LONG, PrimitiveType.INT, PrimitiveType.DOUBLE,
+                PrimitiveType.DOUBLE, PrimitiveType.DOUBLE, PrimitiveType.FLOAT, PrimitiveType.SHORT,
+                PrimitiveType.CHAR, PrimitiveType.BYTE);
+    }
+
+    static DataLine createDataLine(DataLineStructure lineStructure, long lineIndex) {
+        DataLine dataLine = new DataLine(lineStructure);
+        dataLine.setLong(0, lineIndex)
+                .setInt(1, (int) lineIndex)
+                .setDouble(2, lineIndex * 0.5)
+                .setDouble(3, lineIndex * 0.25)
+                .setDouble(4, lineIndex * 0.125)
+                .setFloat(5, lineIndex * 0.5f)
+                .setShort(6, (short) lineIndex)
+                .setChar(7, (char) lineIndex)
+                .setByte(8, (byte) lineIndex);
+        return dataLine;
+    }
+
+    static void createFile(File file, DataLineStructure lineStructure, long numberOfLines) throws IOException {
+        TabularFileWriter writer = new TabularFileWriter(file.getAbsolutePath(), lineStructure, 1024 * 1024);
+        for (long i = 0; i < numberOfLines; i++) {
+            writer.writeLine(createDataLine(lineStructure, i));
+        }
+        writer.close();
+    }
+
+    static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
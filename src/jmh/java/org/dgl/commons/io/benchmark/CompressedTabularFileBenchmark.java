@@ -0,0 +1,202 @@
+package org.dgl.commons.io.benchmark;
+
+import org.dgl.commons.io.tabular.CompressedTabularFileReader;
+import org.dgl.commons.io.tabular.CompressedTabularFileWriter;
+import org.dgl.commons.io.tabular.CompressionCodec;
+import org.dgl.commons.io.tabular.DataLine;
+import org.dgl.commons.io.tabular.DataLineCursor;
+import org.dgl.commons.io.tabular.DataLineStructure;
+import org.dgl.commons.io.tabular.PrimitiveType;
+import org.dgl.commons.io.tabular.TabularFileReader;
+import org.dgl.commons.io.tabular.TabularFileWriter;
+import org.dgl.commons.io.tabular.TabularReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raw against compressed files on slowly changing data: a timestamp, prices moving by a few cents, a cumulative
+ * volume and a counter. The size of each file is printed on setup
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressedTabularFileBenchmark {
+
+    private static final int NUMBER_OF_LINES = 1_000_000;
+    private static final int RANDOM_INDEXES = 1 << 16;
+
+    @State(Scope.Thread)
+    public static class ReadState {
+
+        @Param({"raw", "DELTA_XOR", "LZ"})
+        public String format;
+
+        private File directory;
+        private TabularReader reader;
+        private final long[] randomIndexes = new long[RANDOM_INDEXES];
+        private int randomCounter = 0;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            directory = Files.createTempDirectory("compressed-benchmark").toFile();
+            File file = new File(directory, "data.tab");
+            DataLineStructure lineStructure = createLineStructure();
+            LineWriter writer = createWriter(format, file, lineStructure);
+            DataLine[] dataLines = createDataLines(lineStructure, NUMBER_OF_LINES);
+            for (DataLine dataLine : dataLines) {
+                writer.writeLine(dataLine);
+            }
+            writer.close();
+            System.out.printf("%n%s: %d bytes, %.2f bytes per line%n", format, file.length(),
+                    (double) file.length() / NUMBER_OF_LINES);
+            reader = format.equals("raw") ? new TabularFileReader(file.getAbsolutePath())
+                    : new CompressedTabularFileReader(file.getAbsolutePath());
+            Random random = new Random(42);
+            for (int i = 0; i < randomIndexes.length; i++) {
+                randomIndexes[i] = random.nextInt(NUMBER_OF_LINES);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            reader.close();
+            BenchmarkFiles.delete(directory);
+        }
+
+        private long nextRandomIndex() {
+            randomCounter = (randomCounter + 1) & (RANDOM_INDEXES - 1);
+            return randomIndexes[randomCounter];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class WriteState {
+
+        @Param({"raw", "DELTA_XOR", "LZ"})
+        public String format;
+
+        private File directory;
+        private LineWriter writer;
+        private DataLine[] dataLines;
+        private int lineCounter = 0;
+
+        @Setup(Level.Trial)
+        public void setupTrial() throws IOException {
+            directory = Files.createTempDirectory("compressed-benchmark").toFile();
+            dataLines = createDataLines(createLineStructure(), RANDOM_INDEXES);
+        }
+
+        @Setup(Level.Iteration)
+        public void setupIteration() throws IOException {
+            File file = new File(directory, "data.tab");
+            file.delete();
+            writer = createWriter(format, file, dataLines[0].getLineStructure());
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDownIteration() throws IOException {
+            writer.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDownTrial() {
+            BenchmarkFiles.delete(directory);
+        }
+
+        private DataLine nextDataLine() {
+            lineCounter = (lineCounter + 1) & (RANDOM_INDEXES - 1);
+            return dataLines[lineCounter];
+        }
+    }
+
+    @Benchmark
+    public DataLine getLineRandom(ReadState state) throws Exception {
+        return state.reader.getLine(state.nextRandomIndex());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_LINES)
+    public double cursorScan(ReadState state) throws IOException {
+        double sum = 0;
+        try (DataLineCursor cursor = state.reader.cursor()) {
+            while (cursor.next()) {
+                sum += cursor.getDouble(1) + cursor.getLong(5);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void writeLine(WriteState state) throws IOException {
+        state.writer.writeLine(state.nextDataLine());
+    }
+
+    private interface LineWriter {
+        void writeLine(DataLine dataLine) throws IOException;
+
+        void close() throws IOException;
+    }
+
+    private static LineWriter createWriter(String format, File file, DataLineStructure lineStructure)
+            throws IOException {
+        if (format.equals("raw")) {
+            TabularFileWriter writer = new TabularFileWriter(file.getAbsolutePath(), lineStructure, 1024 * 1024);
+            return new LineWriter() {
+                public void writeLine(DataLine dataLine) throws IOException {
+                    writer.writeLine(dataLine);
+                }
+
+                public void close() throws IOException {
+                    writer.close();
+                }
+            };
+        }
+        byte codec = format.equals("LZ") ? CompressionCodec.LZ : CompressionCodec.DELTA_XOR;
+        CompressedTabularFileWriter writer = new CompressedTabularFileWriter(file.getAbsolutePath(), lineStructure,
+                codec);
+        return new LineWriter() {
+            public void writeLine(DataLine dataLine) throws IOException {
+                writer.writeLine(dataLine);
+            }
+
+            public void close() throws IOException {
+                writer.close();
+            }
+        };
+    }
+
+    private static DataLineStructure createLineStructure() {
+        return new DataLineStructure(PrimitiveType.LONG, PrimitiveType.DOUBLE, PrimitiveType.DOUBLE,
+                PrimitiveType.DOUBLE, PrimitiveType.DOUBLE, PrimitiveType.LONG, PrimitiveType.INT);
+    }
+
+    private static DataLine[] createDataLines(DataLineStructure lineStructure, int numberOfLines) {
+        Random random = new Random(42);
+        DataLine[] dataLines = new DataLine[numberOfLines];
+        long timestamp = 1_600_000_000_000L;
+        long priceCents = 10_000;
+        long volume = 0;
+        for (int i = 0; i < numberOfLines; i++) {
+            timestamp += 1000 + (random.nextInt(10) == 0 ? random.nextInt(50) : 0);
+            priceCents = Math.max(1, priceCents + random.nextInt(5) - 2);
+            volume += random.nextInt(3) == 0 ? random.nextInt(500) : 0;
+            DataLine dataLine = new DataLine(lineStructure);
+            dataLine.setLong(0, timestamp)
+                    .setDouble(1, priceCents / 100.0)
+                    .setDouble(2, (priceCents - 1) / 100.0)
+                    .setDouble(3, (priceCents + 1) / 100.0)
+                    .setDouble(4, priceCents / 100.0)
+                    .setLong(5, volume)
+                    .setInt(6, i);
+            dataLines[i] = dataLine;
+        }
+        return dataLines;
+    }
+}
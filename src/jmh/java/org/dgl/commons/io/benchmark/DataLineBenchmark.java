@@ -0,0 +1,47 @@
+package org.dgl.commons.io.benchmark;
+
+import org.dgl.commons.io.tabular.DataLine;
+import org.dgl.commons.io.tabular.DataLineStructure;
+import org.dgl.commons.io.tabular.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import static org.dgl.commons.io.Definitions.DEFAULT_FILE_ENDIANNESS;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DataLineBenchmark {
+
+    private DataLineStructure lineStructure;
+    private DataLine dataLine;
+    private final ByteOrder endianness = DEFAULT_FILE_ENDIANNESS;
+    private byte[] dataLineBytes;
+
+    @Setup
+    public void setup() {
+        lineStructure = BenchmarkFiles.createLineStructure();
+        dataLine = BenchmarkFiles.createDataLine(lineStructure, 123456789L);
+        dataLineBytes = Utils.getDataLineBytes(dataLine, endianness);
+    }
+
+    @Benchmark
+    public DataLine newDataLine() {
+        return new DataLine(lineStructure);
+    }
+
+    @Benchmark
+    public DataLine getDataLineFromBytes() {
+        return Utils.getDataLineFromBytes(dataLineBytes, lineStructure, endianness);
+    }
+
+    @Benchmark
+    public byte[] getDataLineBytes() {
+        return Utils.getDataLineBytes(dataLine, endianness);
+    }
+}
@@ -0,0 +1,104 @@
+package org.dgl.commons.io.benchmark;
+
+import org.dgl.commons.io.PrimitiveBytes;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrimitiveBytesBenchmark {
+
+    private static final int OFFSET = 8;
+
+    @Param({"BIG_ENDIAN", "LITTLE_ENDIAN"})
+    public String endiannessName;
+
+    private ByteOrder endianness;
+    private final byte[] bytes = new byte[32];
+    private char charValue = 'x';
+    private short shortValue = 12345;
+    private int intValue = 123456789;
+    private long longValue = 1234567890123456789L;
+    private float floatValue = 1.2345f;
+    private double doubleValue = 1.23456789;
+
+    @Setup
+    public void setup() {
+        endianness = endiannessName.equals("BIG_ENDIAN") ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+    }
+
+    @Benchmark
+    public char getChar() {
+        return PrimitiveBytes.getChar(bytes, OFFSET, endianness);
+    }
+
+    @Benchmark
+    public short getShort() {
+        return PrimitiveBytes.getShort(bytes, OFFSET, endianness);
+    }
+
+    @Benchmark
+    public int getInt() {
+        return PrimitiveBytes.getInt(bytes, OFFSET, endianness);
+    }
+
+    @Benchmark
+    public long getLong() {
+        return PrimitiveBytes.getLong(bytes, OFFSET, endianness);
+    }
+
+    @Benchmark
+    public float getFloat() {
+        return PrimitiveBytes.getFloat(bytes, OFFSET, endianness);
+    }
+
+    @Benchmark
+    public double getDouble() {
+        return PrimitiveBytes.getDouble(bytes, OFFSET, endianness);
+    }
+
+    @Benchmark
+    public byte[] putChar() {
+        PrimitiveBytes.putCharBytesInArray(charValue, bytes, OFFSET, endianness);
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] putShort() {
+        PrimitiveBytes.putShortBytesInArray(shortValue, bytes, OFFSET, endianness);
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] putInt() {
+        PrimitiveBytes.putIntBytesInArray(intValue, bytes, OFFSET, endianness);
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] putLong() {
+        PrimitiveBytes.putLongBytesInArray(longValue, bytes, OFFSET, endianness);
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] putFloat() {
+        PrimitiveBytes.putFloatBytesInArray(floatValue, bytes, OFFSET, endianness);
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] putDouble() {
+        PrimitiveBytes.putDoubleBytesInArray(doubleValue, bytes, OFFSET, endianness);
+        return bytes;
+    }
+}
@@ -0,0 +1,81 @@
+package org.dgl.commons.io.benchmark;
+
+import org.dgl.commons.io.PrimitiveBytes;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrimitiveBytesBulkBenchmark {
+
+    private static final int COUNT = 4096;
+
+    @Param({"BIG_ENDIAN", "LITTLE_ENDIAN"})
+    public String endiannessName;
+
+    private ByteOrder endianness;
+    private final byte[] bytes = new byte[COUNT * 8];
+    private final double[] doubles = new double[COUNT];
+    private final long[] longs = new long[COUNT];
+
+    @Setup
+    public void setup() {
+        endianness = endiannessName.equals("BIG_ENDIAN") ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        new Random(42).nextBytes(bytes);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public double[] getDoublesOneByOne() {
+        for (int i = 0; i < COUNT; i++) {
+            doubles[i] = PrimitiveBytes.getDouble(bytes, i * 8, endianness);
+        }
+        return doubles;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public double[] getDoubles() {
+        PrimitiveBytes.getDoubles(bytes, 0, doubles, 0, COUNT, endianness);
+        return doubles;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long[] getLongsOneByOne() {
+        for (int i = 0; i < COUNT; i++) {
+            longs[i] = PrimitiveBytes.getLong(bytes, i * 8, endianness);
+        }
+        return longs;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long[] getLongs() {
+        PrimitiveBytes.getLongs(bytes, 0, longs, 0, COUNT, endianness);
+        return longs;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public byte[] putLongsOneByOne() {
+        for (int i = 0; i < COUNT; i++) {
+            PrimitiveBytes.putLongBytesInArray(longs[i], bytes, i * 8, endianness);
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public byte[] putLongs() {
+        PrimitiveBytes.putLongs(longs, 0, bytes, 0, COUNT, endianness);
+        return bytes;
+    }
+}
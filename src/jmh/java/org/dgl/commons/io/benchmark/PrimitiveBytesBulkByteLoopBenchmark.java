@@ -0,0 +1,10 @@
+package org.dgl.commons.io.benchmark;
+
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * PrimitiveBytesBulkBenchmark with the byte by byte conversions forced, as a baseline for the wide bulk copies
+ */
+@Fork(value = 1, jvmArgsAppend = "-Dorg.dgl.commons.io.byteLoops=true")
+public class PrimitiveBytesBulkByteLoopBenchmark extends PrimitiveBytesBulkBenchmark {
+}
@@ -0,0 +1,10 @@
+package org.dgl.commons.io.benchmark;
+
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * PrimitiveBytesBenchmark with the byte by byte conversions forced, as a baseline for the wide loads and stores
+ */
+@Fork(value = 1, jvmArgsAppend = "-Dorg.dgl.commons.io.byteLoops=true")
+public class PrimitiveBytesByteLoopBenchmark extends PrimitiveBytesBenchmark {
+}
@@ -0,0 +1,96 @@
+package org.dgl.commons.io.benchmark;
+
+import org.dgl.commons.io.tabular.DataLine;
+import org.dgl.commons.io.tabular.TabularFileReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TabularFileReaderBenchmark {
+
+    private static final int NUMBER_OF_LINES = 1_000_000;
+    private static final int LINES_PER_RANGE = 1000;
+    private static final int RANDOM_INDEXES = 1 << 16;
+
+    @Param({"false", "true"})
+    public boolean memoryMapped;
+
+    private File directory;
+    private TabularFileReader reader;
+    private final long[] randomIndexes = new long[RANDOM_INDEXES];
+    private int randomCounter = 0;
+    private long sequentialIndex = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("reader-benchmark").toFile();
+        File file = new File(directory, "data.tab");
+        BenchmarkFiles.createFile(file, BenchmarkFiles.createLineStructure(), NUMBER_OF_LINES);
+        reader = new TabularFileReader(file.getAbsolutePath(), memoryMapped);
+        Random random = new Random(42);
+        for (int i = 0; i < randomIndexes.length; i++) {
+            randomIndexes[i] = random.nextInt(NUMBER_OF_LINES - LINES_PER_RANGE);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        reader.close();
+        BenchmarkFiles.delete(directory);
+    }
+
+    @Benchmark
+    public DataLine getLineRandom() throws IOException {
+        return reader.getLine(nextRandomIndex());
+    }
+
+    @Benchmark
+    public DataLine getLineSequential() throws IOException {
+        return reader.getLine(nextSequentialIndex(1));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES_PER_RANGE)
+    public DataLine[] getLinesRandom() throws IOException {
+        long firstIndex = nextRandomIndex();
+        return reader.getLines(firstIndex, firstIndex + LINES_PER_RANGE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES_PER_RANGE)
+    public DataLine[] getLinesSequential() throws IOException {
+        long firstIndex = nextSequentialIndex(LINES_PER_RANGE);
+        return reader.getLines(firstIndex, firstIndex + LINES_PER_RANGE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES_PER_RANGE)
+    public byte[] getLinesBytesSequential() throws IOException {
+        long firstIndex = nextSequentialIndex(LINES_PER_RANGE);
+        return reader.getLinesBytes(firstIndex, firstIndex + LINES_PER_RANGE);
+    }
+
+    private long nextRandomIndex() {
+        randomCounter = (randomCounter + 1) & (RANDOM_INDEXES - 1);
+        return randomIndexes[randomCounter];
+    }
+
+    private long nextSequentialIndex(int lines) {
+        if (sequentialIndex + lines > NUMBER_OF_LINES) {
+            sequentialIndex = 0;
+        }
+        long index = sequentialIndex;
+        sequentialIndex += lines;
+        return index;
+    }
+}
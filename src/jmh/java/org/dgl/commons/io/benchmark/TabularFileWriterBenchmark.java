@@ -0,0 +1,69 @@
+package org.dgl.commons.io.benchmark;
+
+import org.dgl.commons.io.tabular.DataLine;
+import org.dgl.commons.io.tabular.DataLineStructure;
+import org.dgl.commons.io.tabular.TabularFileWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TabularFileWriterBenchmark {
+
+    private static final int LINES_PER_BATCH = 1000;
+
+    @Param({"0", "1048576"})
+    public int writeBufferSize;
+
+    private File directory;
+    private TabularFileWriter writer;
+    private DataLine dataLine;
+    private DataLine[] dataLines;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        directory = Files.createTempDirectory("writer-benchmark").toFile();
+        DataLineStructure lineStructure = BenchmarkFiles.createLineStructure();
+        dataLine = BenchmarkFiles.createDataLine(lineStructure, 1);
+        dataLines = new DataLine[LINES_PER_BATCH];
+        for (int i = 0; i < dataLines.length; i++) {
+            dataLines[i] = BenchmarkFiles.createDataLine(lineStructure, i);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration() throws IOException {
+        File file = new File(directory, "data.tab");
+        file.delete();
+        writer = new TabularFileWriter(file.getAbsolutePath(), dataLine.getLineStructure(), writeBufferSize);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownIteration() throws IOException {
+        writer.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        BenchmarkFiles.delete(directory);
+    }
+
+    @Benchmark
+    public void writeLine() throws IOException {
+        writer.writeLine(dataLine);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES_PER_BATCH)
+    public void writeLines() throws IOException {
+        writer.writeLines(dataLines);
+    }
+}
@@ -0,0 +1,71 @@
+package org.dgl.commons.io.benchmark;
+
+import org.dgl.commons.io.tabular.DataLine;
+import org.dgl.commons.io.tabular.DataLineStructure;
+import org.dgl.commons.io.tabular.UnifiedTabularFileReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UnifiedTabularFileReaderBenchmark {
+
+    private static final int LINES_PER_FILE = 1000;
+    private static final int LINES_PER_RANGE = 1000;
+    private static final int RANDOM_INDEXES = 1 << 16;
+
+    @Param({"10", "100", "1000"})
+    public int numberOfFiles;
+
+    private File directory;
+    private UnifiedTabularFileReader reader;
+    private final long[] randomIndexes = new long[RANDOM_INDEXES];
+    private int randomCounter = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("unified-benchmark").toFile();
+        DataLineStructure lineStructure = BenchmarkFiles.createLineStructure();
+        for (int i = 0; i < numberOfFiles; i++) {
+            BenchmarkFiles.createFile(new File(directory, String.format("%06d.tab", i)), lineStructure,
+                    LINES_PER_FILE);
+        }
+        reader = new UnifiedTabularFileReader(directory, "tab");
+        Random random = new Random(42);
+        for (int i = 0; i < randomIndexes.length; i++) {
+            randomIndexes[i] = random.nextInt((int) reader.getNumberOfLines() - LINES_PER_RANGE);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        reader.close();
+        BenchmarkFiles.delete(directory);
+    }
+
+    @Benchmark
+    public DataLine getLineRandom() throws IOException {
+        return reader.getLine(nextRandomIndex());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES_PER_RANGE)
+    public DataLine[] getLinesRandom() throws IOException {
+        long firstIndex = nextRandomIndex();
+        return reader.getLines(firstIndex, firstIndex + LINES_PER_RANGE);
+    }
+
+    private long nextRandomIndex() {
+        randomCounter = (randomCounter + 1) & (RANDOM_INDEXES - 1);
+        return randomIndexes[randomCounter];
+    }
+}
@@ -0,0 +1,230 @@
+package org.dgl.commons.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Single wide loads and stores of primitives in byte arrays through heap byte buffers, which the JIT turns into
+ * one unaligned access (plus a byte swap when the requested endianness is not the native one) since Java 9. Only
+ * available from Java 9 on platforms that support unaligned access, callers must fall back to byte by byte
+ * conversions otherwise. Setting the system property org.dgl.commons.io.byteLoops to true forces the byte by byte
+ * conversions, so they can be compared in benchmarks
+ */
+final class ByteArrayAccess {
+
+    static final boolean AVAILABLE = !Boolean.getBoolean("org.dgl.commons.io.byteLoops")
+            && !System.getProperty("java.specification.version", "").startsWith("1.") && isUnalignedAccessSupported();
+    private static final ByteOrder NATIVE_ENDIANNESS = ByteOrder.nativeOrder();
+
+    private ByteArrayAccess() {}
+
+    static char getChar(byte[] bytes, int offset, ByteOrder endianness) {
+        return wrap(bytes, offset, 2, endianness).getChar(offset);
+    }
+
+    static short getShort(byte[] bytes, int offset, ByteOrder endianness) {
+        return wrap(bytes, offset, 2, endianness).getShort(offset);
+    }
+
+    static int getInt(byte[] bytes, int offset, ByteOrder endianness) {
+        return wrap(bytes, offset, 4, endianness).getInt(offset);
+    }
+
+    static long getLong(byte[] bytes, int offset, ByteOrder endianness) {
+        return wrap(bytes, offset, 8, endianness).getLong(offset);
+    }
+
+    static void putChar(char value, byte[] bytes, int offset, ByteOrder endianness) {
+        wrap(bytes, offset, 2, endianness).putChar(offset, value);
+    }
+
+    static void putShort(short value, byte[] bytes, int offset, ByteOrder endianness) {
+        wrap(bytes, offset, 2, endianness).putShort(offset, value);
+    }
+
+    static void putInt(int value, byte[] bytes, int offset, ByteOrder endianness) {
+        wrap(bytes, offset, 4, endianness).putInt(offset, value);
+    }
+
+    static void putLong(long value, byte[] bytes, int offset, ByteOrder endianness) {
+        wrap(bytes, offset, 8, endianness).putLong(offset, value);
+    }
+
+    //-------------------------------------------BULK-------------------------------------------\\
+    // Heap buffers check bounds. In native order their views copy memory at once, other orders are converted one
+    // element at a time with absolute accesses, which measured faster than bulk swapped views or a copy followed by
+    // an in place reverseBytes loop
+
+    static void getChars(byte[] source, int sourceOffset, char[] destination, int destinationOffset, int count,
+            ByteOrder endianness) {
+        if (endianness == NATIVE_ENDIANNESS) {
+            ByteBuffer.wrap(source, sourceOffset, count * 2).order(NATIVE_ENDIANNESS).asCharBuffer()
+                    .get(destination, destinationOffset, count);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(source).order(endianness);
+        for (int i = 0; i < count; i++) {
+            destination[destinationOffset + i] = buffer.getChar(sourceOffset + i * 2);
+        }
+    }
+
+    static void putChars(char[] source, int sourceOffset, byte[] destination, int destinationOffset, int count,
+            ByteOrder endianness) {
+        if (endianness == NATIVE_ENDIANNESS) {
+            ByteBuffer.wrap(destination, destinationOffset, count * 2).order(NATIVE_ENDIANNESS).asCharBuffer()
+                    .put(source, sourceOffset, count);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(destination).order(endianness);
+        for (int i = 0; i < count; i++) {
+            buffer.putChar(destinationOffset + i * 2, source[sourceOffset + i]);
+        }
+    }
+
+    static void getShorts(byte[] source, int sourceOffset, short[] destination, int destinationOffset, int count,
+            ByteOrder endianness) {
+        if (endianness == NATIVE_ENDIANNESS) {
+            ByteBuffer.wrap(source, sourceOffset, count * 2).order(NATIVE_ENDIANNESS).asShortBuffer()
+                    .get(destination, destinationOffset, count);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(source).order(endianness);
+        for (int i = 0; i < count; i++) {
+            destination[destinationOffset + i] = buffer.getShort(sourceOffset + i * 2);
+        }
+    }
+
+    static void putShorts(short[] source, int sourceOffset, byte[] destination, int destinationOffset, int count,
+            ByteOrder endianness) {
+        if (endianness == NATIVE_ENDIANNESS) {
+            ByteBuffer.wrap(destination, destinationOffset, count * 2).order(NATIVE_ENDIANNESS).asShortBuffer()
+                    .put(source, sourceOffset, count);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(destination).order(endianness);
+        for (int i = 0; i < count; i++) {
+            buffer.putShort(destinationOffset + i * 2, source[sourceOffset + i]);
+        }
+    }
+
+    static void getInts(byte[] source, int sourceOffset, int[] destination, int destinationOffset, int count,
+            ByteOrder endianness) {
+        if (endianness == NATIVE_ENDIANNESS) {
+            ByteBuffer.wrap(source, sourceOffset, count * 4).order(NATIVE_ENDIANNESS).asIntBuffer()
+                    .get(destination, destinationOffset, count);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(source).order(endianness);
+        for (int i = 0; i < count; i++) {
+            destination[destinationOffset + i] = buffer.getInt(sourceOffset + i * 4);
+        }
+    }
+
+    static void putInts(int[] source, int sourceOffset, byte[] destination, int destinationOffset, int count,
+            ByteOrder endianness) {
+        if (endianness == NATIVE_ENDIANNESS) {
+            ByteBuffer.wrap(destination, destinationOffset, count * 4).order(NATIVE_ENDIANNESS).asIntBuffer()
+                    .put(source, sourceOffset, count);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(destination).order(endianness);
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(destinationOffset + i * 4, source[sourceOffset + i]);
+        }
+    }
+
+    static void getLongs(byte[] source, int sourceOffset, long[] destination, int destinationOffset, int count,
+            ByteOrder endianness) {
+        if (endianness == NATIVE_ENDIANNESS) {
+            ByteBuffer.wrap(source, sourceOffset, count * 8).order(NATIVE_ENDIANNESS).asLongBuffer()
+                    .get(destination, destinationOffset, count);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(source).order(endianness);
+        for (int i = 0; i < count; i++) {
+            destination[destinationOffset + i] = buffer.getLong(sourceOffset + i * 8);
+        }
+    }
+
+    static void putLongs(long[] source, int sourceOffset, byte[] destination, int destinationOffset, int count,
+            ByteOrder endianness) {
+        if (endianness == NATIVE_ENDIANNESS) {
+            ByteBuffer.wrap(destination, destinationOffset, count * 8).order(NATIVE_ENDIANNESS).asLongBuffer()
+                    .put(source, sourceOffset, count);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(destination).order(endianness);
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(destinationOffset + i * 8, source[sourceOffset + i]);
+        }
+    }
+
+    static void getFloats(byte[] source, int sourceOffset, float[] destination, int destinationOffset, int count,
+            ByteOrder endianness) {
+        if (endianness == NATIVE_ENDIANNESS) {
+            ByteBuffer.wrap(source, sourceOffset, count * 4).order(NATIVE_ENDIANNESS).asFloatBuffer()
+                    .get(destination, destinationOffset, count);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(source).order(endianness);
+        for (int i = 0; i < count; i++) {
+            destination[destinationOffset + i] = buffer.getFloat(sourceOffset + i * 4);
+        }
+    }
+
+    static void putFloats(float[] source, int sourceOffset, byte[] destination, int destinationOffset, int count,
+            ByteOrder endianness) {
+        if (endianness == NATIVE_ENDIANNESS) {
+            ByteBuffer.wrap(destination, destinationOffset, count * 4).order(NATIVE_ENDIANNESS).asFloatBuffer()
+                    .put(source, sourceOffset, count);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(destination).order(endianness);
+        for (int i = 0; i < count; i++) {
+            buffer.putFloat(destinationOffset + i * 4, source[sourceOffset + i]);
+        }
+    }
+
+    static void getDoubles(byte[] source, int sourceOffset, double[] destination, int destinationOffset, int count,
+            ByteOrder endianness) {
+        if (endianness == NATIVE_ENDIANNESS) {
+            ByteBuffer.wrap(source, sourceOffset, count * 8).order(NATIVE_ENDIANNESS).asDoubleBuffer()
+                    .get(destination, destinationOffset, count);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(source).order(endianness);
+        for (int i = 0; i < count; i++) {
+            destination[destinationOffset + i] = buffer.getDouble(sourceOffset + i * 8);
+        }
+    }
+
+    static void putDoubles(double[] source, int sourceOffset, byte[] destination, int destinationOffset, int count,
+            ByteOrder endianness) {
+        if (endianness == NATIVE_ENDIANNESS) {
+            ByteBuffer.wrap(destination, destinationOffset, count * 8).order(NATIVE_ENDIANNESS).asDoubleBuffer()
+                    .put(source, sourceOffset, count);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(destination).order(endianness);
+        for (int i = 0; i < count; i++) {
+            buffer.putDouble(destinationOffset + i * 8, source[sourceOffset + i]);
+        }
+    }
+
+    /**
+     * Byte buffers throw IndexOutOfBoundsException, the byte by byte conversions ArrayIndexOutOfBoundsException,
+     * so bounds are checked here for both paths to fail the same way
+     */
+    private static ByteBuffer wrap(byte[] bytes, int offset, int size, ByteOrder endianness) {
+        if (offset < 0 || offset > bytes.length - size) {
+            throw new ArrayIndexOutOfBoundsException(offset);
+        }
+        return ByteBuffer.wrap(bytes).order(endianness);
+    }
+
+    private static boolean isUnalignedAccessSupported() {
+        String architecture = System.getProperty("os.arch", "");
+        return architecture.equals("amd64") || architecture.equals("x86_64") || architecture.equals("x86")
+                || architecture.equals("i386") || architecture.equals("aarch64") || architecture.equals("ppc64le");
+    }
+}
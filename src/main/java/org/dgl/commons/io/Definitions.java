@@ -4,5 +4,10 @@ import java.nio.ByteOrder;
 
 public class Definitions {
     public static final ByteOrder DEFAULT_ENDIANNESS = ByteOrder.BIG_ENDIAN;
+    /**
+     * Byte order of new tabular files when none is given, files record it so readers never need to know it
+     */
+    public static final ByteOrder DEFAULT_FILE_ENDIANNESS = ByteOrder.nativeOrder();
     public static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE / 10;
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
 }
@@ -1,16 +1,21 @@
 package org.dgl.commons.io;
 
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 import static org.dgl.commons.io.Definitions.DEFAULT_ENDIANNESS;
 
 /**
  * Direct Conversions between byte[] <-> primitives
+ * Single wide loads and stores are used where the platform supports them, byte by byte conversions otherwise
  */
 public class PrimitiveBytes {
 
     //-------------------------------------------CHAR-------------------------------------------\\
     public static char getChar(byte[] bytes, int offset, ByteOrder endianness) {
+        if (ByteArrayAccess.AVAILABLE) {
+            return ByteArrayAccess.getChar(bytes, offset, endianness);
+        }
         if (endianness == ByteOrder.BIG_ENDIAN) {
             return makeChar(bytes[offset], bytes[offset + 1]);
         } else {
@@ -36,6 +41,10 @@ public class PrimitiveBytes {
     }
 
     public static void putCharBytesInArray(char primitive, byte[] byteArray, int offset, ByteOrder endianness) {
+        if (ByteArrayAccess.AVAILABLE) {
+            ByteArrayAccess.putChar(primitive, byteArray, offset, endianness);
+            return;
+        }
         int currentOffset;
         int indexIncrements;
         int primitiveSizeInBytes = 2;
@@ -67,6 +76,9 @@ public class PrimitiveBytes {
 
     //-------------------------------------------SHORT-------------------------------------------\\
     public static short getShort(byte[] bytes, int offset, ByteOrder endianness) {
+        if (ByteArrayAccess.AVAILABLE) {
+            return ByteArrayAccess.getShort(bytes, offset, endianness);
+        }
         if (endianness == ByteOrder.BIG_ENDIAN) {
             return makeShort(bytes[offset], bytes[offset + 1]);
         } else {
@@ -92,6 +104,10 @@ public class PrimitiveBytes {
     }
 
     public static void putShortBytesInArray(short primitive, byte[] byteArray, int offset, ByteOrder endianness) {
+        if (ByteArrayAccess.AVAILABLE) {
+            ByteArrayAccess.putShort(primitive, byteArray, offset, endianness);
+            return;
+        }
         int currentOffset;
         int indexIncrements;
         int primitiveSizeInBytes = 2;
@@ -123,6 +139,9 @@ public class PrimitiveBytes {
 
     //-------------------------------------------INT-------------------------------------------\\
     public static int getInt(byte[] bytes, int offset, ByteOrder endianness) {
+        if (ByteArrayAccess.AVAILABLE) {
+            return ByteArrayAccess.getInt(bytes, offset, endianness);
+        }
         if (endianness == ByteOrder.BIG_ENDIAN) {
             return makeInt(bytes[offset], bytes[offset + 1], bytes[offset + 2], bytes[offset + 3]);
         } else {
@@ -150,6 +169,10 @@ public class PrimitiveBytes {
     }
 
     public static void putIntBytesInArray(int primitive, byte[] byteArray, int offset, ByteOrder endianness) {
+        if (ByteArrayAccess.AVAILABLE) {
+            ByteArrayAccess.putInt(primitive, byteArray, offset, endianness);
+            return;
+        }
         int currentOffset;
         int indexIncrements;
         int primitiveSizeInBytes = 4;
@@ -181,6 +204,9 @@ public class PrimitiveBytes {
 
     //-------------------------------------------LONG-------------------------------------------\\
     public static long getLong(byte[] bytes, int offset, ByteOrder endianness) {
+        if (ByteArrayAccess.AVAILABLE) {
+            return ByteArrayAccess.getLong(bytes, offset, endianness);
+        }
         if (endianness == ByteOrder.BIG_ENDIAN) {
             return makeLong(bytes[offset], bytes[offset + 1], bytes[offset + 2], bytes[offset + 3],
                     bytes[offset + 4], bytes[offset + 5], bytes[offset + 6], bytes[offset + 7]);
@@ -214,6 +240,10 @@ public class PrimitiveBytes {
     }
 
     public static void putLongBytesInArray(long primitive, byte[] byteArray, int offset, ByteOrder endianness) {
+        if (ByteArrayAccess.AVAILABLE) {
+            ByteArrayAccess.putLong(primitive, byteArray, offset, endianness);
+            return;
+        }
         int currentOffset;
         int indexIncrements;
         int primitiveSizeInBytes = 8;
@@ -245,6 +275,9 @@ public class PrimitiveBytes {
 
     //-------------------------------------------FLOAT-------------------------------------------\\
     public static float getFloat(byte[] bytes, int offset, ByteOrder endianness) {
+        if (ByteArrayAccess.AVAILABLE) {
+            return Float.intBitsToFloat(ByteArrayAccess.getInt(bytes, offset, endianness));
+        }
         if (endianness == ByteOrder.BIG_ENDIAN) {
             return Float.intBitsToFloat(makeInt(bytes[offset], bytes[offset + 1],
                     bytes[offset + 2], bytes[offset + 3]));
@@ -284,6 +317,9 @@ public class PrimitiveBytes {
 
     //-------------------------------------------DOUBLE-------------------------------------------\\
     public static double getDouble(byte[] bytes, int offset, ByteOrder endianness) {
+        if (ByteArrayAccess.AVAILABLE) {
+            return Double.longBitsToDouble(ByteArrayAccess.getLong(bytes, offset, endianness));
+        }
         if (endianness == ByteOrder.BIG_ENDIAN) {
             return Double.longBitsToDouble(makeLong(bytes[offset], bytes[offset + 1],
                     bytes[offset + 2], bytes[offset + 3], bytes[offset + 4],
@@ -322,4 +358,242 @@ public class PrimitiveBytes {
     public static void putDoubleBytesInArray(double primitive, byte[] bytes, ByteOrder endianness) {
         putDoubleBytesInArray(primitive, bytes, 0, endianness);
     }
+
+    //-------------------------------------------BULK-------------------------------------------\\
+
+    /**
+     * Converts count consecutive chars at once
+     */
+    public static void getChars(byte[] source, int sourceOffset, char[] destination, int destinationOffset,
+            int count, ByteOrder endianness) {
+        validateBulkRequest(source.length, sourceOffset, destination.length, destinationOffset, count, 2);
+        if (ByteArrayAccess.AVAILABLE) {
+            ByteArrayAccess.getChars(source, sourceOffset, destination, destinationOffset, count, endianness);
+        } else {
+            ByteBuffer.wrap(source, sourceOffset, count * 2).order(endianness).asCharBuffer()
+                    .get(destination, destinationOffset, count);
+        }
+    }
+
+    public static void getChars(byte[] source, int sourceOffset, char[] destination, int destinationOffset,
+            int count) {
+        getChars(source, sourceOffset, destination, destinationOffset, count, DEFAULT_ENDIANNESS);
+    }
+
+    /**
+     * Converts count consecutive chars at once
+     */
+    public static void putChars(char[] source, int sourceOffset, byte[] destination, int destinationOffset,
+            int count, ByteOrder endianness) {
+        validateBulkRequest(destination.length, destinationOffset, source.length, sourceOffset, count, 2);
+        if (ByteArrayAccess.AVAILABLE) {
+            ByteArrayAccess.putChars(source, sourceOffset, destination, destinationOffset, count, endianness);
+        } else {
+            ByteBuffer.wrap(destination, destinationOffset, count * 2).order(endianness).asCharBuffer()
+                    .put(source, sourceOffset, count);
+        }
+    }
+
+    public static void putChars(char[] source, int sourceOffset, byte[] destination, int destinationOffset,
+            int count) {
+        putChars(source, sourceOffset, destination, destinationOffset, count, DEFAULT_ENDIANNESS);
+    }
+
+    /**
+     * Converts count consecutive shorts at once
+     */
+    public static void getShorts(byte[] source, int sourceOffset, short[] destination, int destinationOffset,
+            int count, ByteOrder endianness) {
+        validateBulkRequest(source.length, sourceOffset, destination.length, destinationOffset, count, 2);
+        if (ByteArrayAccess.AVAILABLE) {
+            ByteArrayAccess.getShorts(source, sourceOffset, destination, destinationOffset, count, endianness);
+        } else {
+            ByteBuffer.wrap(source, sourceOffset, count * 2).order(endianness).asShortBuffer()
+                    .get(destination, destinationOffset, count);
+        }
+    }
+
+    public static void getShorts(byte[] source, int sourceOffset, short[] destination, int destinationOffset,
+            int count) {
+        getShorts(source, sourceOffset, destination, destinationOffset, count, DEFAULT_ENDIANNESS);
+    }
+
+    /**
+     * Converts count consecutive shorts at once
+     */
+    public static void putShorts(short[] source, int sourceOffset, byte[] destination, int destinationOffset,
+            int count, ByteOrder endianness) {
+        validateBulkRequest(destination.length, destinationOffset, source.length, sourceOffset, count, 2);
+        if (ByteArrayAccess.AVAILABLE) {
+            ByteArrayAccess.putShorts(source, sourceOffset, destination, destinationOffset, count, endianness);
+        } else {
+            ByteBuffer.wrap(destination, destinationOffset, count * 2).order(endianness).asShortBuffer()
+                    .put(source, sourceOffset, count);
+        }
+    }
+
+    public static void putShorts(short[] source, int sourceOffset, byte[] destination, int destinationOffset,
+            int count) {
+        putShorts(source, sourceOffset, destination, destinationOffset, count, DEFAULT_ENDIANNESS);
+    }
+
+    /**
+     * Converts count consecutive ints at once
+     */
+    public static void getInts(byte[] source, int sourceOffset, int[] destination, int destinationOffset,
+            int count, ByteOrder endianness) {
+        validateBulkRequest(source.length, sourceOffset, destination.length, destinationOffset, count, 4);
+        if (ByteArrayAccess.AVAILABLE) {
+            ByteArrayAccess.getInts(source, sourceOffset, destination, destinationOffset, count, endianness);
+        } else {
+            ByteBuffer.wrap(source, sourceOffset, count * 4).order(endianness).asIntBuffer()
+                    .get(destination, destinationOffset, count);
+        }
+    }
+
+    public static void getInts(byte[] source, int sourceOffset, int[] destination, int destinationOffset,
+            int count) {
+        getInts(source, sourceOffset, destination, destinationOffset, count, DEFAULT_ENDIANNESS);
+    }
+
+    /**
+     * Converts count consecutive ints at once
+     */
+    public static void putInts(int[] source, int sourceOffset, byte[] destination, int destinationOffset,
+            int count, ByteOrder endianness) {
+        validateBulkRequest(destination.length, destinationOffset, source.length, sourceOffset, count, 4);
+        if (ByteArrayAccess.AVAILABLE) {
+            ByteArrayAccess.putInts(source, sourceOffset, destination, destinationOffset, count, endianness);
+        } else {
+            ByteBuffer.wrap(destination, destinationOffset, count * 4).order(endianness).asIntBuffer()
+                    .put(source, sourceOffset, count);
+        }
+    }
+
+    public static void putInts(int[] source, int sourceOffset, byte[] destination, int destinationOffset,
+            int count) {
+        putInts(source, sourceOffset, destination, destinationOffset, count, DEFAULT_ENDIANNESS);
+    }
+
+    /**
+     * Converts count consecutive longs at once
+     */
+    public static void getLongs(byte[] source, int sourceOffset, long[] destination, int destinationOffset,
+            int count, ByteOrder endianness) {
+        validateBulkRequest(source.length, sourceOffset, destination.length, destinationOffset, count, 8);
+        if (ByteArrayAccess.AVAILABLE) {
+            ByteArrayAccess.getLongs(source, sourceOffset, destination, destinationOffset, count, endianness);
+        } else {
+            ByteBuffer.wrap(source, sourceOffset, count * 8).order(endianness).asLongBuffer()
+                    .get(destination, destinationOffset, count);
+        }
+    }
+
+    public static void getLongs(byte[] source, int sourceOffset, long[] destination, int destinationOffset,
+            int count) {
+        getLongs(source, sourceOffset, destination, destinationOffset, count, DEFAULT_ENDIANNESS);
+    }
+
+    /**
+     * Converts count consecutive longs at once
+     */
+    public static void putLongs(long[] source, int sourceOffset, byte[] destination, int destinationOffset,
+            int count, ByteOrder endianness) {
+        validateBulkRequest(destination.length, destinationOffset, source.length, sourceOffset, count, 8);
+        if (ByteArrayAccess.AVAILABLE) {
+            ByteArrayAccess.putLongs(source, sourceOffset, destination, destinationOffset, count, endianness);
+        } else {
+            ByteBuffer.wrap(destination, destinationOffset, count * 8).order(endianness).asLongBuffer()
+                    .put(source, sourceOffset, count);
+        }
+    }
+
+    public static void putLongs(long[] source, int sourceOffset, byte[] destination, int destinationOffset,
+            int count) {
+        putLongs(source, sourceOffset, destination, destinationOffset, count, DEFAULT_ENDIANNESS);
+    }
+
+    /**
+     * Converts count consecutive floats at once
+     */
+    public static void getFloats(byte[] source, int sourceOffset, float[] destination, int destinationOffset,
+            int count, ByteOrder endianness) {
+        validateBulkRequest(source.length, sourceOffset, destination.length, destinationOffset, count, 4);
+        if (ByteArrayAccess.AVAILABLE) {
+            ByteArrayAccess.getFloats(source, sourceOffset, destination, destinationOffset, count, endianness);
+        } else {
+            ByteBuffer.wrap(source, sourceOffset, count * 4).order(endianness).asFloatBuffer()
+                    .get(destination, destinationOffset, count);
+        }
+    }
+
+    public static void getFloats(byte[] source, int sourceOffset, float[] destination, int destinationOffset,
+            int count) {
+        getFloats(source, sourceOffset, destination, destinationOffset, count, DEFAULT_ENDIANNESS);
+    }
+
+    /**
+     * Converts count consecutive floats at once
+     */
+    public static void putFloats(float[] source, int sourceOffset, byte[] destination, int destinationOffset,
+            int count, ByteOrder endianness) {
+        validateBulkRequest(destination.length, destinationOffset, source.length, sourceOffset, count, 4);
+        if (ByteArrayAccess.AVAILABLE) {
+            ByteArrayAccess.putFloats(source, sourceOffset, destination, destinationOffset, count, endianness);
+        } else {
+            ByteBuffer.wrap(destination, destinationOffset, count * 4).order(endianness).asFloatBuffer()
+                    .put(source, sourceOffset, count);
+        }
+    }
+
+    public static void putFloats(float[] source, int sourceOffset, byte[] destination, int destinationOffset,
+            int count) {
+        putFloats(source, sourceOffset, destination, destinationOffset, count, DEFAULT_ENDIANNESS);
+    }
+
+    /**
+     * Converts count consecutive doubles at once
+     */
+    public static void getDoubles(byte[] source, int sourceOffset, double[] destination, int destinationOffset,
+            int count, ByteOrder endianness) {
+        validateBulkRequest(source.length, sourceOffset, destination.length, destinationOffset, count, 8);
+        if (ByteArrayAccess.AVAILABLE) {
+            ByteArrayAccess.getDoubles(source, sourceOffset, destination, destinationOffset, count, endianness);
+        } else {
+            ByteBuffer.wrap(source, sourceOffset, count * 8).order(endianness).asDoubleBuffer()
+                    .get(destination, destinationOffset, count);
+        }
+    }
+
+    public static void getDoubles(byte[] source, int sourceOffset, double[] destination, int destinationOffset,
+            int count) {
+        getDoubles(source, sourceOffset, destination, destinationOffset, count, DEFAULT_ENDIANNESS);
+    }
+
+    /**
+     * Converts count consecutive doubles at once
+     */
+    public static void putDoubles(double[] source, int sourceOffset, byte[] destination, int destinationOffset,
+            int count, ByteOrder endianness) {
+        validateBulkRequest(destination.length, destinationOffset, source.length, sourceOffset, count, 8);
+        if (ByteArrayAccess.AVAILABLE) {
+            ByteArrayAccess.putDoubles(source, sourceOffset, destination, destinationOffset, count, endianness);
+        } else {
+            ByteBuffer.wrap(destination, destinationOffset, count * 8).order(endianness).asDoubleBuffer()
+                    .put(source, sourceOffset, count);
+        }
+    }
+
+    public static void putDoubles(double[] source, int sourceOffset, byte[] destination, int destinationOffset,
+            int count) {
+        putDoubles(source, sourceOffset, destination, destinationOffset, count, DEFAULT_ENDIANNESS);
+    }
+
+    private static void validateBulkRequest(int bytesLength, int bytesOffset, int primitivesLength,
+            int primitivesOffset, int count, int primitiveSizeInBytes) {
+        if (count < 0 || bytesOffset < 0 || primitivesOffset < 0 || primitivesOffset > primitivesLength - count
+                || bytesOffset > bytesLength - ((long) count * primitiveSizeInBytes)) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+    }
 }
@@ -0,0 +1,388 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.dgl.commons.io.Definitions.DEFAULT_BLOCK_SIZE;
+import static org.dgl.commons.io.Definitions.MAX_BUFFER_SIZE;
+
+/**
+ * Appends lines to a tabular file from any number of producer threads. Lines are encoded by the producers into a
+ * ring of direct buffers, full buffers are written to the file by a dedicated thread, so producers never wait for
+ * the disk unless all buffers are full (back-pressure). Producers only reserve room for their lines under the lock
+ * and encode them outside of it, buffers are written in the order their lines were reserved
+ */
+public class AsyncTabularFileWriter implements Closeable {
+
+    private static final int DEFAULT_NUMBER_OF_BUFFERS = 4;
+
+    private final TabularFileWriter writer;
+    private final int bytesPerLine;
+    private final int linesPerBuffer;
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private final BlockingQueue<Object> pendingTasks = new LinkedBlockingQueue<>();
+    /**
+     * Full or flushed batches, and the flush and close futures that follow them, waiting for producers still
+     * encoding lines in them
+     */
+    private final Deque<Object> sealedTasks = new ArrayDeque<>();
+    private final Thread ioThread;
+    private final CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+    private Batch currentBatch = null;
+    private long numberOfLines;
+    private boolean closed = false;
+    private volatile IOException failure = null;
+
+    /**
+     * @param filePath
+     * @param lineStructure
+     * @param endianness      byte order of the file if it is created, existing files keep the one they record
+     * @param bufferSize      size of each buffer, rounded down to whole lines (at least one)
+     * @param numberOfBuffers number of buffers that can be waiting to be written before producers are blocked
+     * @throws IOException
+     */
+    public AsyncTabularFileWriter(String filePath, DataLineStructure lineStructure, ByteOrder endianness,
+            int bufferSize, int numberOfBuffers) throws IOException {
+        this(new TabularFileWriter(filePath, lineStructure, endianness), bufferSize, numberOfBuffers);
+    }
+
+    public AsyncTabularFileWriter(String filePath, DataLineStructure lineStructure, ByteOrder endianness)
+            throws IOException {
+        this(filePath, lineStructure, endianness, 16 * DEFAULT_BLOCK_SIZE, DEFAULT_NUMBER_OF_BUFFERS);
+    }
+
+    /**
+     * New files use the native byte order, existing files keep the one they record
+     *
+     * @param filePath
+     * @param lineStructure
+     * @throws IOException
+     */
+    public AsyncTabularFileWriter(String filePath, DataLineStructure lineStructure) throws IOException {
+        this(new TabularFileWriter(filePath, lineStructure), 16 * DEFAULT_BLOCK_SIZE, DEFAULT_NUMBER_OF_BUFFERS);
+    }
+
+    private AsyncTabularFileWriter(TabularFileWriter writer, int bufferSize, int numberOfBuffers) {
+        if (bufferSize <= 0 || numberOfBuffers <= 0) {
+            writer.closeQuietly();
+            throw new IllegalArgumentException();
+        }
+        this.writer = writer;
+        bytesPerLine = writer.getLineStructure().getSizeInBytes();
+        linesPerBuffer = Math.max(1, Math.min(bufferSize, MAX_BUFFER_SIZE) / bytesPerLine);
+        freeBuffers = new ArrayBlockingQueue<>(numberOfBuffers);
+        for (int i = 0; i < numberOfBuffers; i++) {
+            freeBuffers.add(ByteBuffer.allocateDirect(linesPerBuffer * bytesPerLine).order(writer.getEndianness()));
+        }
+        numberOfLines = writer.getNumberOfLines();
+        ioThread = new Thread(this::processTasks,
+                "AsyncTabularFileWriter-" + new File(writer.getFilePath()).getName());
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    /**
+     * Encodes the line into the current buffer, blocks only if every buffer is waiting to be written
+     *
+     * @param dataLine
+     * @throws IOException if a previous write failed or the writer is closed
+     */
+    public void writeLine(DataLine dataLine) throws IOException {
+        validateLineStructure(dataLine);
+        Reservation reservation = reserve(1);
+        boolean succeeded = false;
+        try {
+            writer.encodeLine(dataLine, reservation.lines);
+            succeeded = true;
+        } finally {
+            encoded(reservation, succeeded);
+        }
+    }
+
+    /**
+     * The lines are written one after another, lines of other producers are not interleaved with them unless they
+     * span several buffers
+     *
+     * @param dataLines
+     * @throws IOException if a previous write failed or the writer is closed
+     */
+    public void writeLines(DataLine[] dataLines) throws IOException {
+        for (DataLine dataLine : dataLines) {
+            validateLineStructure(dataLine);
+        }
+        int index = 0;
+        while (index < dataLines.length) {
+            Reservation reservation = reserve(dataLines.length - index);
+            boolean succeeded = false;
+            try {
+                for (int i = 0; i < reservation.numberOfLines; i++) {
+                    writer.encodeLine(dataLines[index++], reservation.lines);
+                }
+                succeeded = true;
+            } finally {
+                encoded(reservation, succeeded);
+            }
+        }
+    }
+
+    /**
+     * @return future completed once every line written before this call is in the file and counted in its header
+     */
+    public synchronized CompletableFuture<Void> flush() throws IOException {
+        validateOpen();
+        sealCurrentBatch();
+        CompletableFuture<Void> flushFuture = new CompletableFuture<>();
+        sealedTasks.add(flushFuture);
+        submitSealedTasks();
+        return flushFuture;
+    }
+
+    /**
+     * Stops accepting lines
+     *
+     * @return future completed once every line is in the file and the file is closed
+     */
+    public synchronized CompletableFuture<Void> closeAsync() {
+        if (!closed) {
+            closed = true;
+            sealCurrentBatch();
+            sealedTasks.add(closeFuture);
+            submitSealedTasks();
+        }
+        return closeFuture;
+    }
+
+    /**
+     * Blocks until every line is in the file and the file is closed
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        try {
+            closeAsync().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    public void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {}
+    }
+
+    /**
+     * @return number of lines, including the ones not written to the file yet
+     */
+    public synchronized long getNumberOfLines() {
+        return numberOfLines;
+    }
+
+    public String getFilePath() {
+        return writer.getFilePath();
+    }
+
+    /**
+     * @return byte order of the file
+     */
+    public ByteOrder getEndianness() {
+        return writer.getEndianness();
+    }
+
+    private void validateOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Writer is closed");
+        }
+        if (failure != null) {
+            throw new IOException(failure);
+        }
+    }
+
+    private void validateLineStructure(DataLine dataLine) {
+        if (!dataLine.getLineStructure().equals(writer.getLineStructure())) {
+            throw new InvalidDataLineStructureException();
+        }
+    }
+
+    /**
+     * Reserves room for up to maxLines lines in the current buffer. Waiting for a free buffer is done outside the
+     * lock, so flush(), closeAsync() and getNumberOfLines() are never blocked by back-pressure
+     */
+    private Reservation reserve(int maxLines) throws IOException {
+        while (true) {
+            synchronized (this) {
+                validateOpen();
+                if (currentBatch == null) {
+                    ByteBuffer buffer = freeBuffers.poll();
+                    if (buffer != null) {
+                        currentBatch = new Batch(buffer);
+                    }
+                }
+                if (currentBatch != null) {
+                    Batch batch = currentBatch;
+                    int lines = Math.min(maxLines, linesPerBuffer - batch.reservedLines);
+                    ByteBuffer target = batch.buffer.duplicate().order(batch.buffer.order());
+                    target.position(batch.reservedLines * bytesPerLine);
+                    target.limit((batch.reservedLines + lines) * bytesPerLine);
+                    batch.reservedLines += lines;
+                    numberOfLines += lines;
+                    if (batch.reservedLines == linesPerBuffer) {
+                        sealCurrentBatch();
+                    }
+                    return new Reservation(batch, target, lines);
+                }
+            }
+            ByteBuffer buffer = takeFreeBuffer();
+            synchronized (this) {
+                if (currentBatch == null && !closed && failure == null) {
+                    currentBatch = new Batch(buffer);
+                } else {
+                    freeBuffers.add(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the reserved lines as encoded. If encoding failed the writer fails, so the batch is not written but
+     * still releases the flush and close futures waiting behind it
+     */
+    private synchronized void encoded(Reservation reservation, boolean succeeded) {
+        if (!succeeded && failure == null) {
+            failure = new IOException("Failed to encode lines");
+        }
+        reservation.batch.encodedLines += reservation.numberOfLines;
+        submitSealedTasks();
+    }
+
+    private ByteBuffer takeFreeBuffer() throws IOException {
+        try {
+            return freeBuffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void sealCurrentBatch() {
+        if (currentBatch != null) {
+            sealedTasks.add(currentBatch);
+            currentBatch = null;
+        }
+    }
+
+    /**
+     * Hands the sealed batches whose lines are all encoded, and the futures after them, to the I/O thread in order
+     */
+    private void submitSealedTasks() {
+        while (!sealedTasks.isEmpty()) {
+            Object task = sealedTasks.peek();
+            if (task instanceof Batch) {
+                Batch batch = (Batch) task;
+                if (batch.encodedLines < batch.reservedLines) {
+                    return;
+                }
+                batch.buffer.position(batch.reservedLines * bytesPerLine);
+                pendingTasks.add(batch.buffer);
+            } else {
+                pendingTasks.add(task);
+            }
+            sealedTasks.poll();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void processTasks() {
+        boolean done = false;
+        while (!done) {
+            Object task;
+            try {
+                task = pendingTasks.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (task instanceof ByteBuffer) {
+                ByteBuffer buffer = (ByteBuffer) task;
+                if (failure == null) {
+                    try {
+                        writer.appendEncodedLines(buffer);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                buffer.clear();
+                freeBuffers.add(buffer);
+            } else {
+                CompletableFuture<Void> future = (CompletableFuture<Void>) task;
+                if (future == closeFuture) {
+                    try {
+                        writer.close();
+                    } catch (IOException e) {
+                        if (failure == null) {
+                            failure = e;
+                        }
+                    }
+                    done = true;
+                } else if (failure == null) {
+                    try {
+                        writer.flush();
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                if (failure == null) {
+                    future.complete(null);
+                } else {
+                    future.completeExceptionally(failure);
+                }
+            }
+        }
+    }
+
+    /**
+     * Buffer being filled by producers, guarded by the writer lock
+     */
+    private static final class Batch {
+
+        private final ByteBuffer buffer;
+        private int reservedLines = 0;
+        private int encodedLines = 0;
+
+        private Batch(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Lines of a batch reserved by one producer
+     */
+    private static final class Reservation {
+
+        private final Batch batch;
+        private final ByteBuffer lines;
+        private final int numberOfLines;
+
+        private Reservation(Batch batch, ByteBuffer lines, int numberOfLines) {
+            this.batch = batch;
+            this.lines = lines;
+            this.numberOfLines = numberOfLines;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.dgl.commons.io.Definitions.DEFAULT_BLOCK_SIZE;
+
+/**
+ * Cache of blocks of whole lines kept in direct memory, it can be shared by any number of readers. Blocks are
+ * identified by the absolute path of their file, so readers of the same file share them. Blocks are evicted with
+ * the CLOCK algorithm (second chance), which approximates LRU without reordering anything on hits.
+ * Files must not be modified in place while their blocks are cached, see invalidate(). Lines appended to a file are
+ * picked up, a block holding fewer lines than the reader sees is loaded again
+ */
+public class BlockCache {
+
+    private final int blockSize;
+    private final int maxBlocks;
+    private final Map<BlockKey, Integer> blockSlots = new HashMap<>();
+    private final ThreadLocal<ByteBuffer> loadBuffers;
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private ByteBuffer[] slots = new ByteBuffer[16];
+    private BlockKey[] slotKeys = new BlockKey[16];
+    private int[] slotLines = new int[16];
+    private boolean[] slotReferenced = new boolean[16];
+    private int usedSlots = 0;
+    private int clockHand = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * @param capacity  maximum number of bytes used by blocks
+     * @param blockSize maximum size of a block, blocks hold as many whole lines as fit. Lines longer than this are
+     *                  not cached
+     */
+    public BlockCache(long capacity, int blockSize) {
+        if (blockSize <= 0 || capacity < blockSize) {
+            throw new IllegalArgumentException();
+        }
+        this.blockSize = blockSize;
+        maxBlocks = (int) Math.min(Integer.MAX_VALUE - 8, capacity / blockSize);
+        loadBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(blockSize));
+    }
+
+    public BlockCache(long capacity) {
+        this(capacity, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Drops the cached blocks of a file, must be called after the file is modified in place
+     *
+     * @param filePath
+     */
+    public synchronized void invalidate(String filePath) {
+        String fileKey = TabularFileReader.getCacheKey(filePath);
+        Iterator<Map.Entry<BlockKey, Integer>> iterator = blockSlots.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<BlockKey, Integer> entry = iterator.next();
+            if (entry.getKey().fileKey.equals(fileKey)) {
+                freeSlot(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops every block, memory is kept for new blocks
+     */
+    public synchronized void clear() {
+        for (int slot = 0; slot < usedSlots; slot++) {
+            freeSlot(slot);
+        }
+        blockSlots.clear();
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return maximum number of bytes used by blocks
+     */
+    public long getCapacity() {
+        return (long) maxBlocks * blockSize;
+    }
+
+    public synchronized int getNumberOfBlocks() {
+        return blockSlots.size();
+    }
+
+    /**
+     * @return direct memory allocated for blocks so far, it is never released
+     */
+    public synchronized long getAllocatedBytes() {
+        return (long) usedSlots * blockSize;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return hits / (hits + misses), 0 if nothing was requested yet
+     */
+    public synchronized double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    /**
+     * @return false if lines of this size are not cached
+     */
+    boolean accepts(int bytesPerLine) {
+        return bytesPerLine <= blockSize;
+    }
+
+    /**
+     * Copies a line into the destination, loading its block from the reader if it is not cached
+     *
+     * @param reader
+     * @param fileKey     see TabularFileReader.getCacheKey()
+     * @param lineIndex
+     * @param destination receives the line at its position
+     * @throws IOException
+     */
+    void getLine(TabularFileReader reader, String fileKey, long lineIndex, ByteBuffer destination)
+            throws IOException {
+        int bytesPerLine = reader.getLineStructure().getSizeInBytes();
+        int linesPerBlock = blockSize / bytesPerLine;
+        BlockKey key = new BlockKey(fileKey, lineIndex / linesPerBlock);
+        long firstIndex = key.blockIndex * linesPerBlock;
+        int lineInBlock = (int) (lineIndex - firstIndex);
+        synchronized (this) {
+            Integer slot = blockSlots.get(key);
+            if (slot != null && lineInBlock < slotLines[slot]) {
+                hits++;
+                slotReferenced[slot] = true;
+                copyLine(slot, lineInBlock, bytesPerLine, destination);
+                return;
+            }
+            misses++;
+        }
+        int lines = (int) Math.min(linesPerBlock, reader.getNumberOfLines() - firstIndex);
+        ByteBuffer block = reader.readBlock(firstIndex, lines, loadBuffers.get());
+        synchronized (this) {
+            Integer slot = blockSlots.get(key);
+            if (slot == null) {
+                slot = getFreeSlot();
+                blockSlots.put(key, slot);
+                slotKeys[slot] = key;
+            }
+            if (slotLines[slot] < lines) {
+                ByteBuffer slotBuffer = slots[slot];
+                slotBuffer.clear();
+                slotBuffer.put(block);
+                slotLines[slot] = lines;
+            }
+            slotReferenced[slot] = true;
+            copyLine(slot, lineInBlock, bytesPerLine, destination);
+        }
+    }
+
+    private void copyLine(int slot, int lineInBlock, int bytesPerLine, ByteBuffer destination) {
+        ByteBuffer line = slots[slot].duplicate();
+        line.limit((lineInBlock + 1) * bytesPerLine);
+        line.position(lineInBlock * bytesPerLine);
+        destination.put(line);
+    }
+
+    /**
+     * Allocates a new slot while under capacity, otherwise evicts the first block not referenced since the clock
+     * hand last passed over it
+     */
+    private int getFreeSlot() {
+        if (!freeSlots.isEmpty()) {
+            return freeSlots.pop();
+        }
+        if (usedSlots < maxBlocks) {
+            if (usedSlots == slots.length) {
+                int length = (int) Math.min(maxBlocks, 2L * slots.length);
+                slots = Arrays.copyOf(slots, length);
+                slotKeys = Arrays.copyOf(slotKeys, length);
+                slotLines = Arrays.copyOf(slotLines, length);
+                slotReferenced = Arrays.copyOf(slotReferenced, length);
+            }
+            slots[usedSlots] = ByteBuffer.allocateDirect(blockSize);
+            return usedSlots++;
+        }
+        while (slotReferenced[clockHand]) {
+            slotReferenced[clockHand] = false;
+            clockHand = (clockHand + 1) % usedSlots;
+        }
+        int slot = clockHand;
+        clockHand = (clockHand + 1) % usedSlots;
+        blockSlots.remove(slotKeys[slot]);
+        slotKeys[slot] = null;
+        slotLines[slot] = 0;
+        evictions++;
+        return slot;
+    }
+
+    private void freeSlot(int slot) {
+        if (slotKeys[slot] != null) {
+            freeSlots.push(slot);
+        }
+        slotKeys[slot] = null;
+        slotLines[slot] = 0;
+        slotReferenced[slot] = false;
+    }
+
+    private static class BlockKey {
+
+        private final String fileKey;
+        private final long blockIndex;
+
+        private BlockKey(String fileKey, long blockIndex) {
+            this.fileKey = fileKey;
+            this.blockIndex = blockIndex;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof BlockKey)) {
+                return false;
+            }
+            BlockKey key = (BlockKey) object;
+            return blockIndex == key.blockIndex && fileKey.equals(key.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fileKey, blockIndex);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.dgl.commons.io.tabular;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compresses blocks of encoded lines independently of each other
+ */
+interface BlockCodec {
+
+    /**
+     * @param lines         encoded lines from position 0, in the byte order of the file, backed by an array
+     * @param numberOfLines
+     * @return compressed block between its position and its limit, only valid until the next call
+     */
+    ByteBuffer encode(ByteBuffer lines, int numberOfLines);
+
+    /**
+     * @param block         compressed block between its position and its limit, backed by an array
+     * @param numberOfLines lines of the block
+     * @param lines         receives the encoded lines from position 0, in the byte order of the file, backed by an
+     *                      array
+     * @throws InvalidFormatException if the block is corrupt
+     */
+    void decode(ByteBuffer block, int numberOfLines, ByteBuffer lines);
+}
@@ -0,0 +1,125 @@
+package org.dgl.commons.io.tabular;
+
+/**
+ * Inclusive range of values of one element. Integral elements (including chars, as unsigned values) are compared
+ * with the long bounds and floating point elements with the double bounds, NaN values never match
+ */
+public final class ColumnPredicate {
+
+    private final int elementIndex;
+    private final long minimumLong;
+    private final long maximumLong;
+    private final double minimumDouble;
+    private final double maximumDouble;
+
+    private ColumnPredicate(int elementIndex, long minimumLong, long maximumLong, double minimumDouble,
+            double maximumDouble) {
+        if (elementIndex < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        this.elementIndex = elementIndex;
+        this.minimumLong = minimumLong;
+        this.maximumLong = maximumLong;
+        this.minimumDouble = minimumDouble;
+        this.maximumDouble = maximumDouble;
+    }
+
+    /**
+     * @param elementIndex
+     * @param minimum      inclusive
+     * @param maximum      inclusive
+     * @return
+     */
+    public static ColumnPredicate between(int elementIndex, long minimum, long maximum) {
+        return new ColumnPredicate(elementIndex, minimum, maximum, minimum, maximum);
+    }
+
+    /**
+     * @param elementIndex
+     * @param minimum      inclusive
+     * @param maximum      inclusive
+     * @return
+     */
+    public static ColumnPredicate between(int elementIndex, double minimum, double maximum) {
+        if (Double.isNaN(minimum) || Double.isNaN(maximum)) {
+            return new ColumnPredicate(elementIndex, 1, 0, 1, 0);
+        }
+        return new ColumnPredicate(elementIndex, (long) Math.ceil(minimum), (long) Math.floor(maximum), minimum,
+                maximum);
+    }
+
+    public static ColumnPredicate atLeast(int elementIndex, long minimum) {
+        return between(elementIndex, minimum, Long.MAX_VALUE);
+    }
+
+    public static ColumnPredicate atLeast(int elementIndex, double minimum) {
+        return between(elementIndex, minimum, Double.POSITIVE_INFINITY);
+    }
+
+    public static ColumnPredicate atMost(int elementIndex, long maximum) {
+        return between(elementIndex, Long.MIN_VALUE, maximum);
+    }
+
+    public static ColumnPredicate atMost(int elementIndex, double maximum) {
+        return between(elementIndex, Double.NEGATIVE_INFINITY, maximum);
+    }
+
+    public static ColumnPredicate equalTo(int elementIndex, long value) {
+        return between(elementIndex, value, value);
+    }
+
+    public static ColumnPredicate equalTo(int elementIndex, double value) {
+        return between(elementIndex, value, value);
+    }
+
+    public int getElementIndex() {
+        return elementIndex;
+    }
+
+    /**
+     * @param cursor positioned on a line
+     * @return true if the value of the element in the current line is in the range
+     */
+    public boolean matches(DataLineCursor cursor) {
+        switch (cursor.getLineStructure().getElementType(elementIndex)) {
+            case PrimitiveType.BYTE:
+                return matches(cursor.getByte(elementIndex));
+            case PrimitiveType.CHAR:
+                return matches(cursor.getChar(elementIndex));
+            case PrimitiveType.SHORT:
+                return matches(cursor.getShort(elementIndex));
+            case PrimitiveType.INT:
+                return matches(cursor.getInt(elementIndex));
+            case PrimitiveType.LONG:
+                return matches(cursor.getLong(elementIndex));
+            case PrimitiveType.FLOAT:
+                return matches((double) cursor.getFloat(elementIndex));
+            case PrimitiveType.DOUBLE:
+                return matches(cursor.getDouble(elementIndex));
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    boolean matches(long value) {
+        return value >= minimumLong && value <= maximumLong;
+    }
+
+    boolean matches(double value) {
+        return value >= minimumDouble && value <= maximumDouble;
+    }
+
+    /**
+     * @return false if no value between minimum and maximum (both inclusive) is in the range
+     */
+    boolean mayMatch(long minimum, long maximum) {
+        return minimum <= maximumLong && maximum >= minimumLong && minimumLong <= maximumLong;
+    }
+
+    /**
+     * @return false if no value between minimum and maximum (both inclusive) is in the range
+     */
+    boolean mayMatch(double minimum, double maximum) {
+        return minimum <= maximumDouble && maximum >= minimumDouble;
+    }
+}
@@ -0,0 +1,434 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import static org.dgl.commons.io.Definitions.DEFAULT_ENDIANNESS;
+
+/**
+ * Reader of files written by ColumnarTabularFileWriter. Column reads only fetch the values of the requested
+ * element, one contiguous read per row group. getLine() reads each value of the line separately and cursors read
+ * whole row groups, so lines are better read through cursors
+ */
+public class ColumnarTabularFileReader implements TabularReader {
+
+    private final String filePath;
+    private final FileHeader header;
+    private final DataLineStructure lineStructure;
+    private final RowGroupLayout layout;
+    private final ByteOrder endianness;
+    private final int bytesPerLine;
+    private final long numberOfLines;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel fileChannel;
+    private final ByteBuffer valueBuffer;
+    private ByteBuffer columnBuffer = null;
+
+    public ColumnarTabularFileReader(String filePath) throws IOException {
+        this.filePath = filePath;
+        randomAccessFile = new RandomAccessFile(filePath, "r");
+        fileChannel = randomAccessFile.getChannel();
+        try {
+            long fileSize = fileChannel.size();
+            header = FileHeader.read(fileChannel, fileSize, DEFAULT_ENDIANNESS);
+            if (header.getLayout() != FileHeader.COLUMNAR_LAYOUT) {
+                throw new InvalidFormatException("Not a columnar file");
+            }
+            lineStructure = header.getLineStructure();
+            layout = new RowGroupLayout(lineStructure, header.getLinesPerGroup(), header.getLength());
+            numberOfLines = layout.getNumberOfLines(fileSize - header.getLength());
+            if (header.getNumberOfLines() > numberOfLines) {
+                throw new IllegalStateException("Invalid file size");
+            }
+        } catch (IOException | RuntimeException e) {
+            closeQuietly();
+            throw e;
+        }
+        endianness = header.getEndianness();
+        bytesPerLine = lineStructure.getSizeInBytes();
+        valueBuffer = ByteBuffer.allocateDirect(Long.BYTES).order(endianness);
+    }
+
+    /**
+     * Reads the values of the line one by one, each from the column of its element
+     */
+    public DataLine getLine(long lineIndex) throws IOException {
+        validateGet(lineIndex);
+        DataLine dataLine = new DataLine(lineStructure);
+        for (int i = 0; i < lineStructure.getNumberOfElements(); i++) {
+            valueBuffer.clear();
+            valueBuffer.limit(layout.getElementSize(i));
+            readFully(valueBuffer, layout.getValuePosition(lineIndex, i, numberOfLines));
+            switch (lineStructure.getElementType(i)) {
+                case PrimitiveType.BYTE:
+                    dataLine.setByte(i, valueBuffer.get(0));
+                    break;
+                case PrimitiveType.CHAR:
+                    dataLine.setChar(i, valueBuffer.getChar(0));
+                    break;
+                case PrimitiveType.SHORT:
+                    dataLine.setShort(i, valueBuffer.getShort(0));
+                    break;
+                case PrimitiveType.INT:
+                    dataLine.setInt(i, valueBuffer.getInt(0));
+                    break;
+                case PrimitiveType.LONG:
+                    dataLine.setLong(i, valueBuffer.getLong(0));
+                    break;
+                case PrimitiveType.FLOAT:
+                    dataLine.setFloat(i, valueBuffer.getFloat(0));
+                    break;
+                case PrimitiveType.DOUBLE:
+                    dataLine.setDouble(i, valueBuffer.getDouble(0));
+                    break;
+                default:
+                    throw new IllegalArgumentException();
+            }
+        }
+        return dataLine;
+    }
+
+    /**
+     * Reusable cursor over a range of lines. Each cursor reads whole row groups into its own buffer and rebuilds the
+     * lines from them
+     *
+     * @param firstIndex inclusive
+     * @param lastIndex  exclusive
+     * @return
+     */
+    public DataLineCursor cursor(long firstIndex, long lastIndex) {
+        if (firstIndex < 0 || lastIndex > numberOfLines || lastIndex < firstIndex) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new DataLineCursor(new GroupBlockSource(), true, lineStructure, firstIndex, lastIndex);
+    }
+
+    /**
+     * Reads the values of one element for a range of lines straight into an array, the other elements are not read
+     *
+     * @param elementIndex
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the value of the first line
+     * @throws IOException
+     */
+    public void readByteColumn(int elementIndex, long firstIndex, long lastIndex, byte[] destination,
+            int destinationOffset) throws IOException {
+        readColumn(elementIndex, PrimitiveType.BYTE, firstIndex, lastIndex, destination.length, destinationOffset,
+                (chunk, destinationIndex, lines) -> chunk.get(destination, destinationIndex, lines));
+    }
+
+    public void readByteColumn(int elementIndex, long firstIndex, long lastIndex, byte[] destination)
+            throws IOException {
+        readByteColumn(elementIndex, firstIndex, lastIndex, destination, 0);
+    }
+
+    /**
+     * Reads the values of one element for a range of lines straight into an array, the other elements are not read
+     *
+     * @param elementIndex
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the value of the first line
+     * @throws IOException
+     */
+    public void readCharColumn(int elementIndex, long firstIndex, long lastIndex, char[] destination,
+            int destinationOffset) throws IOException {
+        readColumn(elementIndex, PrimitiveType.CHAR, firstIndex, lastIndex, destination.length, destinationOffset,
+                (chunk, destinationIndex, lines) -> chunk.asCharBuffer().get(destination, destinationIndex, lines));
+    }
+
+    public void readCharColumn(int elementIndex, long firstIndex, long lastIndex, char[] destination)
+            throws IOException {
+        readCharColumn(elementIndex, firstIndex, lastIndex, destination, 0);
+    }
+
+    /**
+     * Reads the values of one element for a range of lines straight into an array, the other elements are not read
+     *
+     * @param elementIndex
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the value of the first line
+     * @throws IOException
+     */
+    public void readShortColumn(int elementIndex, long firstIndex, long lastIndex, short[] destination,
+            int destinationOffset) throws IOException {
+        readColumn(elementIndex, PrimitiveType.SHORT, firstIndex, lastIndex, destination.length, destinationOffset,
+                (chunk, destinationIndex, lines) -> chunk.asShortBuffer().get(destination, destinationIndex, lines));
+    }
+
+    public void readShortColumn(int elementIndex, long firstIndex, long lastIndex, short[] destination)
+            throws IOException {
+        readShortColumn(elementIndex, firstIndex, lastIndex, destination, 0);
+    }
+
+    /**
+     * Reads the values of one element for a range of lines straight into an array, the other elements are not read
+     *
+     * @param elementIndex
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the value of the first line
+     * @throws IOException
+     */
+    public void readIntColumn(int elementIndex, long firstIndex, long lastIndex, int[] destination,
+            int destinationOffset) throws IOException {
+        readColumn(elementIndex, PrimitiveType.INT, firstIndex, lastIndex, destination.length, destinationOffset,
+                (chunk, destinationIndex, lines) -> chunk.asIntBuffer().get(destination, destinationIndex, lines));
+    }
+
+    public void readIntColumn(int elementIndex, long firstIndex, long lastIndex, int[] destination)
+            throws IOException {
+        readIntColumn(elementIndex, firstIndex, lastIndex, destination, 0);
+    }
+
+    /**
+     * Reads the values of one element for a range of lines straight into an array, the other elements are not read
+     *
+     * @param elementIndex
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the value of the first line
+     * @throws IOException
+     */
+    public void readLongColumn(int elementIndex, long firstIndex, long lastIndex, long[] destination,
+            int destinationOffset) throws IOException {
+        readColumn(elementIndex, PrimitiveType.LONG, firstIndex, lastIndex, destination.length, destinationOffset,
+                (chunk, destinationIndex, lines) -> chunk.asLongBuffer().get(destination, destinationIndex, lines));
+    }
+
+    public void readLongColumn(int elementIndex, long firstIndex, long lastIndex, long[] destination)
+            throws IOException {
+        readLongColumn(elementIndex, firstIndex, lastIndex, destination, 0);
+    }
+
+    /**
+     * Reads the values of one element for a range of lines straight into an array, the other elements are not read
+     *
+     * @param elementIndex
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the value of the first line
+     * @throws IOException
+     */
+    public void readFloatColumn(int elementIndex, long firstIndex, long lastIndex, float[] destination,
+            int destinationOffset) throws IOException {
+        readColumn(elementIndex, PrimitiveType.FLOAT, firstIndex, lastIndex, destination.length, destinationOffset,
+                (chunk, destinationIndex, lines) -> chunk.asFloatBuffer().get(destination, destinationIndex, lines));
+    }
+
+    public void readFloatColumn(int elementIndex, long firstIndex, long lastIndex, float[] destination)
+            throws IOException {
+        readFloatColumn(elementIndex, firstIndex, lastIndex, destination, 0);
+    }
+
+    /**
+     * Reads the values of one element for a range of lines straight into an array, the other elements are not read
+     *
+     * @param elementIndex
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the value of the first line
+     * @throws IOException
+     */
+    public void readDoubleColumn(int elementIndex, long firstIndex, long lastIndex, double[] destination,
+            int destinationOffset) throws IOException {
+        readColumn(elementIndex, PrimitiveType.DOUBLE, firstIndex, lastIndex, destination.length, destinationOffset,
+                (chunk, destinationIndex, lines) -> chunk.asDoubleBuffer().get(destination, destinationIndex, lines));
+    }
+
+    public void readDoubleColumn(int elementIndex, long firstIndex, long lastIndex, double[] destination)
+            throws IOException {
+        readDoubleColumn(elementIndex, firstIndex, lastIndex, destination, 0);
+    }
+
+    public long getNumberOfLines() {
+        return numberOfLines;
+    }
+
+    public DataLineStructure getLineStructure() {
+        return lineStructure;
+    }
+
+    /**
+     * @return lines of each row group
+     */
+    public int getLinesPerGroup() {
+        return layout.getLinesPerGroup();
+    }
+
+    public void closeQuietly() {
+        try {
+            close();
+        } catch (IOException | NullPointerException e) {}
+    }
+
+    public void close() throws IOException {
+        randomAccessFile.close();
+    }
+
+    public boolean isOpen() {
+        return fileChannel.isOpen();
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * @return byte order recorded in the file
+     */
+    public ByteOrder getEndianness() {
+        return endianness;
+    }
+
+    /**
+     * @return version of the file header
+     */
+    public int getFormatVersion() {
+        return header.getVersion();
+    }
+
+    /**
+     * Reads the values of the element for the lines of the range that belong to the same group, one group at a time
+     */
+    private void readColumn(int elementIndex, byte type, long firstIndex, long lastIndex, int destinationLength,
+            int destinationOffset, ColumnChunkReader chunkReader) throws IOException {
+        validateColumnRead(elementIndex, type, firstIndex, lastIndex, destinationLength, destinationOffset);
+        int elementSize = layout.getElementSize(elementIndex);
+        int destinationIndex = destinationOffset;
+        long lineIndex = firstIndex;
+        while (lineIndex < lastIndex) {
+            long group = layout.getGroup(lineIndex);
+            int groupLines = layout.getLinesInGroup(group, numberOfLines);
+            int lineInGroup = layout.getLineInGroup(lineIndex);
+            int lines = (int) Math.min(groupLines - lineInGroup, lastIndex - lineIndex);
+            ByteBuffer chunk = getColumnBuffer();
+            chunk.clear();
+            chunk.limit(lines * elementSize);
+            readFully(chunk, layout.getGroupPosition(group) + layout.getColumnOffset(elementIndex, groupLines)
+                    + (long) lineInGroup * elementSize);
+            chunk.flip();
+            chunkReader.read(chunk, destinationIndex, lines);
+            destinationIndex += lines;
+            lineIndex += lines;
+        }
+    }
+
+    /**
+     * Buffer of column reads, it holds the values of one element for a whole group
+     */
+    private ByteBuffer getColumnBuffer() {
+        if (columnBuffer == null) {
+            columnBuffer = ByteBuffer.allocateDirect(layout.getLinesPerGroup() * Long.BYTES).order(endianness);
+        }
+        return columnBuffer;
+    }
+
+    /**
+     * Reads a whole group without touching the reader buffers
+     *
+     * @param group
+     * @param buffer capacity of a full group, receives the group from 0
+     * @return lines of the group
+     * @throws IOException
+     */
+    private int readGroup(long group, ByteBuffer buffer) throws IOException {
+        int groupLines = layout.getLinesInGroup(group, numberOfLines);
+        buffer.clear();
+        buffer.limit(groupLines * bytesPerLine);
+        readFully(buffer, layout.getGroupPosition(group));
+        return groupLines;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        long currentPosition = position;
+        while (buffer.hasRemaining()) {
+            int bytesRead = fileChannel.read(buffer, currentPosition);
+            if (bytesRead < 0) {
+                throw new IOException();
+            }
+            currentPosition += bytesRead;
+        }
+    }
+
+    private void validateGet(long lineIndex) throws IOException {
+        if (lineIndex < 0 || lineIndex >= numberOfLines) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (!isOpen()) {
+            throw new IOException();
+        }
+    }
+
+    private void validateColumnRead(int elementIndex, byte type, long firstIndex, long lastIndex,
+            int destinationLength, int destinationOffset) throws IOException {
+        if (lastIndex <= firstIndex) {
+            throw new IllegalArgumentException();
+        }
+        if (firstIndex < 0 || lastIndex > numberOfLines) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (!isOpen()) {
+            throw new IOException();
+        }
+        if (elementIndex < 0 || elementIndex >= lineStructure.getNumberOfElements()) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (lineStructure.getElementType(elementIndex) != type) {
+            throw new InvalidFormatException();
+        }
+        if (destinationOffset < 0 || destinationOffset + (lastIndex - firstIndex) > destinationLength) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    /**
+     * Copies the values of a chunk, in file byte order, into a destination array
+     */
+    private interface ColumnChunkReader {
+        void read(ByteBuffer chunk, int destinationIndex, int lines);
+    }
+
+    /**
+     * Rebuilds lines from the last group read, so each cursor reads every group once
+     */
+    private class GroupBlockSource implements LineBlockSource {
+
+        private ByteBuffer groupBuffer = null;
+        private long loadedGroup = -1;
+        private int loadedGroupLines;
+
+        @Override
+        public ByteBuffer readBlock(long firstIndex, int maxLines, ByteBuffer buffer) throws IOException {
+            validateGet(firstIndex);
+            long group = layout.getGroup(firstIndex);
+            if (group != loadedGroup) {
+                if (groupBuffer == null) {
+                    groupBuffer = ByteBuffer.allocateDirect(layout.getGroupSize()).order(endianness);
+                }
+                loadedGroup = -1;
+                loadedGroupLines = readGroup(group, groupBuffer);
+                loadedGroup = group;
+            }
+            int lineInGroup = layout.getLineInGroup(firstIndex);
+            int lines = Math.min(maxLines, loadedGroupLines - lineInGroup);
+            buffer.clear();
+            buffer.order(endianness);
+            layout.copyLines(groupBuffer, loadedGroupLines, lineInGroup, lines, buffer);
+            buffer.flip();
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import static org.dgl.commons.io.Definitions.DEFAULT_ENDIANNESS;
+import static org.dgl.commons.io.Definitions.DEFAULT_FILE_ENDIANNESS;
+
+/**
+ * Appends lines to a columnar file, read with ColumnarTabularFileReader. Lines are kept in memory until their row
+ * group is full, then the group is written with the values of each element contiguous. On flush() and close() the
+ * incomplete last group is written too, and it is rewritten in place as lines are appended to it
+ */
+public class ColumnarTabularFileWriter implements Closeable, Flushable {
+
+    private final String filePath;
+    private final DataLineStructure lineStructure;
+    private final FileHeader header;
+    private final RowGroupLayout layout;
+    private final int linesPerGroup;
+    private final ByteOrder endianness;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel fileChannel;
+    private final ByteBuffer groupBuffer;
+    private final int[] columnsPosition;
+    private long numberOfLines;
+    private long headerNumberOfLines;
+    private int groupLines = 0;
+    private boolean groupModified = false;
+
+    /**
+     * @param filePath
+     * @param lineStructure
+     * @param endianness    byte order of the file if it is created, existing files keep the one they record
+     * @param linesPerGroup lines of each row group if the file is created, existing files keep the one they record.
+     *                      Column reads fetch linesPerGroup values of an element in one read, and getLine() on
+     *                      lines of the same group reads close positions
+     * @throws IOException
+     */
+    public ColumnarTabularFileWriter(String filePath, DataLineStructure lineStructure, ByteOrder endianness,
+            int linesPerGroup) throws IOException {
+        this.filePath = filePath;
+        this.lineStructure = lineStructure;
+        boolean newFile = !new File(filePath).exists();
+        randomAccessFile = new RandomAccessFile(filePath, "rw");
+        fileChannel = randomAccessFile.getChannel();
+        try {
+            if (newFile) {
+                header = FileHeader.createColumnar(lineStructure, endianness, linesPerGroup);
+                writeHeader(0);
+            } else {
+                header = readFileHeader();
+            }
+            layout = new RowGroupLayout(lineStructure, header.getLinesPerGroup(), header.getLength());
+            numberOfLines = layout.getNumberOfLines(fileChannel.size() - header.getLength());
+        } catch (IOException | RuntimeException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+        this.endianness = header.getEndianness();
+        this.linesPerGroup = layout.getLinesPerGroup();
+        headerNumberOfLines = header.getNumberOfLines();
+        groupBuffer = ByteBuffer.allocateDirect(layout.getGroupSize()).order(this.endianness);
+        columnsPosition = new int[lineStructure.getNumberOfElements()];
+        for (int i = 0; i < columnsPosition.length; i++) {
+            columnsPosition[i] = layout.getColumnOffset(i, this.linesPerGroup);
+        }
+        groupLines = layout.getLineInGroup(numberOfLines);
+        if (groupLines > 0) {
+            loadLastGroup();
+        }
+    }
+
+    /**
+     * @param filePath
+     * @param lineStructure
+     * @param linesPerGroup see {@link #ColumnarTabularFileWriter(String, DataLineStructure, ByteOrder, int)}
+     * @throws IOException
+     */
+    public ColumnarTabularFileWriter(String filePath, DataLineStructure lineStructure, int linesPerGroup)
+            throws IOException {
+        this(filePath, lineStructure, DEFAULT_FILE_ENDIANNESS, linesPerGroup);
+    }
+
+    /**
+     * New files use the native byte order and row groups of about 1 MB
+     *
+     * @param filePath
+     * @param lineStructure
+     * @throws IOException
+     */
+    public ColumnarTabularFileWriter(String filePath, DataLineStructure lineStructure) throws IOException {
+        this(filePath, lineStructure, RowGroupLayout.getDefaultLinesPerGroup(lineStructure.getSizeInBytes()));
+    }
+
+    public void writeLine(DataLine dataLine) throws IOException {
+        if (!dataLine.getLineStructure().equals(lineStructure)) {
+            throw new InvalidDataLineStructureException();
+        }
+        for (int i = 0; i < columnsPosition.length; i++) {
+            int position = columnsPosition[i] + groupLines * layout.getElementSize(i);
+            switch (lineStructure.getElementType(i)) {
+                case PrimitiveType.BYTE:
+                    groupBuffer.put(position, dataLine.getByte(i));
+                    break;
+                case PrimitiveType.CHAR:
+                    groupBuffer.putChar(position, dataLine.getChar(i));
+                    break;
+                case PrimitiveType.SHORT:
+                    groupBuffer.putShort(position, dataLine.getShort(i));
+                    break;
+                case PrimitiveType.INT:
+                    groupBuffer.putInt(position, dataLine.getInt(i));
+                    break;
+                case PrimitiveType.LONG:
+                    groupBuffer.putLong(position, dataLine.getLong(i));
+                    break;
+                case PrimitiveType.FLOAT:
+                    groupBuffer.putFloat(position, dataLine.getFloat(i));
+                    break;
+                case PrimitiveType.DOUBLE:
+                    groupBuffer.putDouble(position, dataLine.getDouble(i));
+                    break;
+                default:
+                    throw new IllegalArgumentException();
+            }
+        }
+        groupLines++;
+        numberOfLines++;
+        groupModified = true;
+        if (groupLines == linesPerGroup) {
+            writeGroup();
+            groupLines = 0;
+        }
+    }
+
+    public void writeLines(DataLine[] dataLines) throws IOException {
+        for (DataLine dataLine : dataLines) {
+            writeLine(dataLine);
+        }
+    }
+
+    /**
+     * Writes the incomplete last group, if it changed, and updates the number of lines recorded in the file header
+     *
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        if (groupModified) {
+            writeGroup();
+        }
+        if (headerNumberOfLines != numberOfLines) {
+            writeHeader(numberOfLines);
+            headerNumberOfLines = numberOfLines;
+        }
+    }
+
+    /**
+     * @return number of lines, including the ones not flushed yet
+     */
+    public long getNumberOfLines() {
+        return numberOfLines;
+    }
+
+    public int getLinesPerGroup() {
+        return linesPerGroup;
+    }
+
+    public boolean isOpen() {
+        return fileChannel.isOpen();
+    }
+
+    public void closeQuietly() {
+        try {
+            close();
+        } catch (IOException | NullPointerException e) {}
+    }
+
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public DataLineStructure getLineStructure() {
+        return lineStructure;
+    }
+
+    /**
+     * @return byte order of the file
+     */
+    public ByteOrder getEndianness() {
+        return endianness;
+    }
+
+    private FileHeader readFileHeader() throws IOException {
+        FileHeader fileHeader = FileHeader.read(fileChannel, fileChannel.size(), DEFAULT_ENDIANNESS);
+        if (fileHeader.getLayout() != FileHeader.COLUMNAR_LAYOUT) {
+            throw new InvalidFormatException("Not a columnar file");
+        }
+        if (!lineStructure.equals(fileHeader.getLineStructure())) {
+            throw new InvalidDataLineStructureException();
+        }
+        return fileHeader;
+    }
+
+    /**
+     * Writes the group being filled, each column as long as its number of lines
+     */
+    private void writeGroup() throws IOException {
+        long groupPosition = layout.getGroupPosition(layout.getGroup(numberOfLines - 1));
+        if (groupLines == linesPerGroup) {
+            groupBuffer.clear();
+            writeFully(groupBuffer, groupPosition);
+        } else {
+            for (int i = 0; i < columnsPosition.length; i++) {
+                groupBuffer.limit(columnsPosition[i] + groupLines * layout.getElementSize(i));
+                groupBuffer.position(columnsPosition[i]);
+                writeFully(groupBuffer, groupPosition + layout.getColumnOffset(i, groupLines));
+            }
+            groupBuffer.clear();
+        }
+        groupModified = false;
+    }
+
+    /**
+     * Reads the incomplete last group of an existing file so lines can be appended to it
+     */
+    private void loadLastGroup() throws IOException {
+        long groupPosition = layout.getGroupPosition(layout.getGroup(numberOfLines));
+        for (int i = 0; i < columnsPosition.length; i++) {
+            groupBuffer.limit(columnsPosition[i] + groupLines * layout.getElementSize(i));
+            groupBuffer.position(columnsPosition[i]);
+            long position = groupPosition + layout.getColumnOffset(i, groupLines);
+            while (groupBuffer.hasRemaining()) {
+                int bytesRead = fileChannel.read(groupBuffer, position);
+                if (bytesRead < 0) {
+                    throw new IOException();
+                }
+                position += bytesRead;
+            }
+        }
+        groupBuffer.clear();
+    }
+
+    private void writeHeader(long lines) throws IOException {
+        ByteBuffer encodedHeader = header.encode(lines);
+        encodedHeader.flip();
+        writeFully(encodedHeader, 0);
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        long currentPosition = position;
+        while (buffer.hasRemaining()) {
+            currentPosition += fileChannel.write(buffer, currentPosition);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import static org.dgl.commons.io.Definitions.DEFAULT_ENDIANNESS;
+import static org.dgl.commons.io.Definitions.MAX_BUFFER_SIZE;
+
+/**
+ * Reader of files written by CompressedTabularFileWriter. Blocks are compressed independently and located through
+ * the block index, so getLine() reads and decodes a single block. The last decoded block is kept, so reading lines
+ * of the same block again costs no read
+ */
+public class CompressedTabularFileReader implements TabularReader {
+
+    private final String filePath;
+    private final FileHeader header;
+    private final DataLineStructure lineStructure;
+    private final ByteOrder endianness;
+    private final int bytesPerLine;
+    private final int linesPerBlock;
+    private final long numberOfLines;
+    private final long[] blockPositions;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel fileChannel;
+    private final BlockReader blockReader;
+
+    public CompressedTabularFileReader(String filePath) throws IOException {
+        this.filePath = filePath;
+        randomAccessFile = new RandomAccessFile(filePath, "r");
+        fileChannel = randomAccessFile.getChannel();
+        try {
+            header = FileHeader.read(fileChannel, fileChannel.size(), DEFAULT_ENDIANNESS);
+            if (header.getLayout() != FileHeader.COMPRESSED_LAYOUT) {
+                throw new InvalidFormatException("Not a compressed file");
+            }
+            lineStructure = header.getLineStructure();
+            bytesPerLine = lineStructure.getSizeInBytes();
+            linesPerBlock = header.getLinesPerGroup();
+            if (bytesPerLine == 0 || (long) linesPerBlock * (long) bytesPerLine > MAX_BUFFER_SIZE) {
+                throw new IllegalStateException();
+            }
+            numberOfLines = header.getNumberOfLines();
+            blockPositions = readBlockIndex(fileChannel, header);
+        } catch (IOException | RuntimeException e) {
+            closeQuietly();
+            throw e;
+        }
+        endianness = header.getEndianness();
+        blockReader = new BlockReader();
+    }
+
+    public DataLine getLine(long lineIndex) throws IOException {
+        validateGet(lineIndex);
+        ByteBuffer lines = blockReader.getBlock(lineIndex / linesPerBlock);
+        int position = (int) (lineIndex % linesPerBlock) * bytesPerLine;
+        DataLine dataLine = new DataLine(lineStructure);
+        DataLineLayout layout = lineStructure.getLayout();
+        for (int i = 0; i < lineStructure.getNumberOfElements(); i++) {
+            int elementPosition = position + layout.getElementOffset(i);
+            switch (lineStructure.getElementType(i)) {
+                case PrimitiveType.BYTE:
+                    dataLine.setByte(i, lines.get(elementPosition));
+                    break;
+                case PrimitiveType.CHAR:
+                    dataLine.setChar(i, lines.getChar(elementPosition));
+                    break;
+                case PrimitiveType.SHORT:
+                    dataLine.setShort(i, lines.getShort(elementPosition));
+                    break;
+                case PrimitiveType.INT:
+                    dataLine.setInt(i, lines.getInt(elementPosition));
+                    break;
+                case PrimitiveType.LONG:
+                    dataLine.setLong(i, lines.getLong(elementPosition));
+                    break;
+                case PrimitiveType.FLOAT:
+                    dataLine.setFloat(i, lines.getFloat(elementPosition));
+                    break;
+                case PrimitiveType.DOUBLE:
+                    dataLine.setDouble(i, lines.getDouble(elementPosition));
+                    break;
+                default:
+                    throw new IllegalArgumentException();
+            }
+        }
+        return dataLine;
+    }
+
+    /**
+     * Reusable cursor over a range of lines. Each cursor decodes the blocks into its own buffers
+     *
+     * @param firstIndex inclusive
+     * @param lastIndex  exclusive
+     * @return
+     */
+    public DataLineCursor cursor(long firstIndex, long lastIndex) {
+        if (firstIndex < 0 || lastIndex > numberOfLines || lastIndex < firstIndex) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new DataLineCursor(new BlockReader(), false, lineStructure, linesPerBlock, firstIndex, lastIndex);
+    }
+
+    public long getNumberOfLines() {
+        return numberOfLines;
+    }
+
+    public DataLineStructure getLineStructure() {
+        return lineStructure;
+    }
+
+    public int getLinesPerBlock() {
+        return linesPerBlock;
+    }
+
+    /**
+     * @return see CompressionCodec
+     */
+    public byte getCodec() {
+        return header.getCodec();
+    }
+
+    /**
+     * @return size in bytes of the compressed blocks
+     */
+    public long getCompressedSize() {
+        long compressedSize = 0;
+        for (int i = 0; i < blockPositions.length; i += 2) {
+            compressedSize += blockPositions[i + 1] - blockPositions[i];
+        }
+        return compressedSize;
+    }
+
+    public void closeQuietly() {
+        try {
+            close();
+        } catch (IOException | NullPointerException e) {}
+    }
+
+    public void close() throws IOException {
+        randomAccessFile.close();
+    }
+
+    public boolean isOpen() {
+        return fileChannel.isOpen();
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * @return byte order recorded in the file
+     */
+    public ByteOrder getEndianness() {
+        return endianness;
+    }
+
+    /**
+     * @return version of the file header
+     */
+    public int getFormatVersion() {
+        return header.getVersion();
+    }
+
+    /**
+     * Block index of a compressed file: start and end of every block, as big endian longs. Blocks can be anywhere
+     * after the header, the writer reuses regions the header no longer refers to
+     *
+     * @param fileChannel
+     * @param header      header of the file, its number of lines gives the number of blocks
+     * @return start of block i at 2 * i, its end at 2 * i + 1
+     * @throws IOException
+     */
+    static long[] readBlockIndex(FileChannel fileChannel, FileHeader header) throws IOException {
+        long linesPerBlock = header.getLinesPerGroup();
+        long numberOfBlocks = (header.getNumberOfLines() + linesPerBlock - 1) / linesPerBlock;
+        long indexPosition = header.getIndexPosition();
+        long fileSize = fileChannel.size();
+        if (numberOfBlocks * 2 > MAX_BUFFER_SIZE / Long.BYTES
+                || indexPosition + numberOfBlocks * 2 * Long.BYTES > fileSize) {
+            throw new InvalidFormatException("Invalid block index");
+        }
+        ByteBuffer index = ByteBuffer.allocate((int) numberOfBlocks * 2 * Long.BYTES);
+        readFully(fileChannel, index, indexPosition);
+        index.flip();
+        long[] positions = new long[(int) numberOfBlocks * 2];
+        for (int i = 0; i < positions.length; i += 2) {
+            positions[i] = index.getLong();
+            positions[i + 1] = index.getLong();
+            if (positions[i] < header.getLength() || positions[i + 1] < positions[i]
+                    || positions[i + 1] > fileSize) {
+                throw new InvalidFormatException("Invalid block index");
+            }
+        }
+        return positions;
+    }
+
+    static void readFully(FileChannel fileChannel, ByteBuffer buffer, long position) throws IOException {
+        long currentPosition = position;
+        while (buffer.hasRemaining()) {
+            int bytesRead = fileChannel.read(buffer, currentPosition);
+            if (bytesRead < 0) {
+                throw new IOException();
+            }
+            currentPosition += bytesRead;
+        }
+    }
+
+    private void validateGet(long lineIndex) throws IOException {
+        if (lineIndex < 0 || lineIndex >= numberOfLines) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (!isOpen()) {
+            throw new IOException();
+        }
+    }
+
+    /**
+     * Reads and decodes blocks with its own codec and buffers, keeping the last one
+     */
+    private class BlockReader implements LineBlockSource {
+
+        private final BlockCodec codec = CompressionCodec.newBlockCodec(header.getCodec(), lineStructure);
+        private ByteBuffer compressedBuffer = ByteBuffer.allocate(0);
+        private ByteBuffer linesBuffer = null;
+        private long loadedBlock = -1;
+
+        @Override
+        public ByteBuffer readBlock(long firstIndex, int maxLines, ByteBuffer buffer) throws IOException {
+            validateGet(firstIndex);
+            long block = firstIndex / linesPerBlock;
+            ByteBuffer lines = getBlock(block).duplicate().order(endianness);
+            int lineInBlock = (int) (firstIndex % linesPerBlock);
+            int blockLines = getLinesInBlock(block);
+            lines.limit((lineInBlock + Math.min(maxLines, blockLines - lineInBlock)) * bytesPerLine);
+            lines.position(lineInBlock * bytesPerLine);
+            return lines;
+        }
+
+        /**
+         * @return decoded lines of the block from position 0, only valid until another block is requested
+         */
+        ByteBuffer getBlock(long block) throws IOException {
+            if (block == loadedBlock) {
+                return linesBuffer;
+            }
+            long compressedSize = blockPositions[(int) block * 2 + 1] - blockPositions[(int) block * 2];
+            if (compressedSize > MAX_BUFFER_SIZE) {
+                throw new InvalidFormatException("Invalid block index");
+            }
+            if (compressedBuffer.capacity() < compressedSize) {
+                compressedBuffer = ByteBuffer.allocate((int) compressedSize);
+            }
+            if (linesBuffer == null) {
+                linesBuffer = ByteBuffer.allocate(linesPerBlock * bytesPerLine).order(endianness);
+            }
+            loadedBlock = -1;
+            compressedBuffer.clear();
+            compressedBuffer.limit((int) compressedSize);
+            readFully(fileChannel, compressedBuffer, blockPositions[(int) block * 2]);
+            compressedBuffer.flip();
+            codec.decode(compressedBuffer, getLinesInBlock(block), linesBuffer);
+            loadedBlock = block;
+            return linesBuffer;
+        }
+
+        private int getLinesInBlock(long block) {
+            return (int) Math.min(linesPerBlock, numberOfLines - block * linesPerBlock);
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.dgl.commons.io.Definitions.DEFAULT_BLOCK_SIZE;
+import static org.dgl.commons.io.Definitions.DEFAULT_ENDIANNESS;
+import static org.dgl.commons.io.Definitions.DEFAULT_FILE_ENDIANNESS;
+import static org.dgl.commons.io.Definitions.MAX_BUFFER_SIZE;
+
+/**
+ * Appends lines to a compressed file, read with CompressedTabularFileReader. The file holds blocks of a fixed number
+ * of lines, each compressed on its own, followed by the block index. Lines are kept in memory until their block is
+ * full. On flush() and close() the incomplete last block, the index and the header are written. Data the header
+ * on disk refers to is never overwritten and is forced to the device before the header, so the file stays readable
+ * up to the last flush() if the process or the machine dies. The incomplete block and index of a flush() are only
+ * reused for new data once the next header is on disk, and close() moves the last ones into such a free region so
+ * the file can be truncated. The file can only be read after flush() or close()
+ */
+public class CompressedTabularFileWriter implements Closeable, Flushable {
+
+    private final String filePath;
+    private final DataLineStructure lineStructure;
+    private final FileHeader header;
+    private final BlockCodec codec;
+    private final int linesPerBlock;
+    private final int bytesPerLine;
+    private final ByteOrder endianness;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel fileChannel;
+    private final ByteBuffer blockBuffer;
+    /**
+     * Start and end of every complete block
+     */
+    private long[] blockPositions;
+    private int numberOfBlocks;
+    /**
+     * Regions no longer referenced by the header on disk, start mapped to end
+     */
+    private final TreeMap<Long, Long> freeRegions = new TreeMap<>();
+    /**
+     * Start and end of the regions other than complete blocks referenced by the header on disk, they are freed once
+     * a new header is on disk
+     */
+    private long[] committedRegions = new long[0];
+    /**
+     * End of the used regions, the file can be truncated there
+     */
+    private long dataEnd;
+    private long numberOfLines;
+    private int blockLines = 0;
+    private boolean modified = false;
+
+    /**
+     * @param filePath
+     * @param lineStructure
+     * @param endianness    byte order of the file if it is created, existing files keep the one they record
+     * @param codec         see CompressionCodec, existing files keep the one they record
+     * @param linesPerBlock lines of each compressed block if the file is created, existing files keep the one they
+     *                      record. getLine() decodes a whole block, larger blocks compress better
+     * @throws IOException
+     */
+    public CompressedTabularFileWriter(String filePath, DataLineStructure lineStructure, ByteOrder endianness,
+            byte codec, int linesPerBlock) throws IOException {
+        this.filePath = filePath;
+        this.lineStructure = lineStructure;
+        bytesPerLine = lineStructure.getSizeInBytes();
+        if (bytesPerLine == 0 || (long) linesPerBlock * (long) bytesPerLine > MAX_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Invalid lines per block");
+        }
+        boolean newFile = !new File(filePath).exists();
+        randomAccessFile = new RandomAccessFile(filePath, "rw");
+        fileChannel = randomAccessFile.getChannel();
+        try {
+            if (newFile) {
+                header = FileHeader.createCompressed(lineStructure, endianness, linesPerBlock, codec);
+                blockPositions = new long[0];
+            } else {
+                header = readFileHeader();
+                blockPositions = CompressedTabularFileReader.readBlockIndex(fileChannel, header);
+            }
+            this.endianness = header.getEndianness();
+            this.linesPerBlock = header.getLinesPerGroup();
+            this.codec = CompressionCodec.newBlockCodec(header.getCodec(), lineStructure);
+            numberOfLines = header.getNumberOfLines();
+            numberOfBlocks = (int) (numberOfLines / this.linesPerBlock);
+            blockBuffer = ByteBuffer.allocate(this.linesPerBlock * bytesPerLine).order(this.endianness);
+            blockLines = (int) (numberOfLines % this.linesPerBlock);
+            if (blockLines > 0) {
+                loadLastBlock();
+            }
+            initializeRegions();
+            if (newFile) {
+                modified = true;
+                flush();
+            }
+        } catch (IOException | RuntimeException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param filePath
+     * @param lineStructure
+     * @param codec         see {@link #CompressedTabularFileWriter(String, DataLineStructure, ByteOrder, byte, int)}
+     * @param linesPerBlock see {@link #CompressedTabularFileWriter(String, DataLineStructure, ByteOrder, byte, int)}
+     * @throws IOException
+     */
+    public CompressedTabularFileWriter(String filePath, DataLineStructure lineStructure, byte codec,
+            int linesPerBlock) throws IOException {
+        this(filePath, lineStructure, DEFAULT_FILE_ENDIANNESS, codec, linesPerBlock);
+    }
+
+    /**
+     * New files use the native byte order and blocks of about 64 KB before compression
+     *
+     * @param filePath
+     * @param lineStructure
+     * @param codec         see CompressionCodec
+     * @throws IOException
+     */
+    public CompressedTabularFileWriter(String filePath, DataLineStructure lineStructure, byte codec)
+            throws IOException {
+        this(filePath, lineStructure, codec, Math.max(1, DEFAULT_BLOCK_SIZE / lineStructure.getSizeInBytes()));
+    }
+
+    public void writeLine(DataLine dataLine) throws IOException {
+        if (!dataLine.getLineStructure().equals(lineStructure)) {
+            throw new InvalidDataLineStructureException();
+        }
+        for (int i = 0; i < lineStructure.getNumberOfElements(); i++) {
+            switch (lineStructure.getElementType(i)) {
+                case PrimitiveType.BYTE:
+                    blockBuffer.put(dataLine.getByte(i));
+                    break;
+                case PrimitiveType.CHAR:
+                    blockBuffer.putChar(dataLine.getChar(i));
+                    break;
+                case PrimitiveType.SHORT:
+                    blockBuffer.putShort(dataLine.getShort(i));
+                    break;
+                case PrimitiveType.INT:
+                    blockBuffer.putInt(dataLine.getInt(i));
+                    break;
+                case PrimitiveType.LONG:
+                    blockBuffer.putLong(dataLine.getLong(i));
+                    break;
+                case PrimitiveType.FLOAT:
+                    blockBuffer.putFloat(dataLine.getFloat(i));
+                    break;
+                case PrimitiveType.DOUBLE:
+                    blockBuffer.putDouble(dataLine.getDouble(i));
+                    break;
+                default:
+                    throw new IllegalArgumentException();
+            }
+        }
+        blockLines++;
+        numberOfLines++;
+        modified = true;
+        if (blockLines == linesPerBlock) {
+            ByteBuffer block = codec.encode(blockBuffer, blockLines);
+            long position = allocate(block.remaining());
+            if (numberOfBlocks * 2 == blockPositions.length) {
+                blockPositions = Arrays.copyOf(blockPositions, Math.max(16, blockPositions.length * 2));
+            }
+            blockPositions[numberOfBlocks * 2] = position;
+            blockPositions[numberOfBlocks * 2 + 1] = position + block.remaining();
+            numberOfBlocks++;
+            writeFully(block, position);
+            blockBuffer.clear();
+            blockLines = 0;
+        }
+    }
+
+    public void writeLines(DataLine[] dataLines) throws IOException {
+        for (DataLine dataLine : dataLines) {
+            writeLine(dataLine);
+        }
+    }
+
+    /**
+     * Writes the incomplete last block, the block index and the header, if lines were appended since the last call
+     *
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        if (!modified) {
+            return;
+        }
+        writeTail(false);
+        modified = false;
+    }
+
+    /**
+     * @return number of lines, including the ones not flushed yet
+     */
+    public long getNumberOfLines() {
+        return numberOfLines;
+    }
+
+    public int getLinesPerBlock() {
+        return linesPerBlock;
+    }
+
+    /**
+     * @return see CompressionCodec
+     */
+    public byte getCodec() {
+        return header.getCodec();
+    }
+
+    public boolean isOpen() {
+        return fileChannel.isOpen();
+    }
+
+    public void closeQuietly() {
+        try {
+            close();
+        } catch (IOException | NullPointerException e) {}
+    }
+
+    public void close() throws IOException {
+        try {
+            flush();
+            compactTail();
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public DataLineStructure getLineStructure() {
+        return lineStructure;
+    }
+
+    /**
+     * @return byte order of the file
+     */
+    public ByteOrder getEndianness() {
+        return endianness;
+    }
+
+    private FileHeader readFileHeader() throws IOException {
+        FileHeader fileHeader = FileHeader.read(fileChannel, fileChannel.size(), DEFAULT_ENDIANNESS);
+        if (fileHeader.getLayout() != FileHeader.COMPRESSED_LAYOUT) {
+            throw new InvalidFormatException("Not a compressed file");
+        }
+        if (!lineStructure.equals(fileHeader.getLineStructure())) {
+            throw new InvalidDataLineStructureException();
+        }
+        return fileHeader;
+    }
+
+    /**
+     * Writes the incomplete last block followed by the block index, then the header. Data is forced to the device
+     * before the header is written, and the header before the regions of the previous one are freed
+     *
+     * @param compact only write them in a free region
+     * @return false if compact and no free region is large enough
+     */
+    private boolean writeTail(boolean compact) throws IOException {
+        ByteBuffer block = blockLines > 0 ? codec.encode(blockBuffer, blockLines) : ByteBuffer.allocate(0);
+        int blockSize = block.remaining();
+        ByteBuffer index = ByteBuffer.allocate((numberOfBlocks + (blockLines > 0 ? 1 : 0)) * 2 * Long.BYTES);
+        long tailSize = blockSize + index.capacity();
+        long position = compact ? allocateFree(tailSize) : allocate(tailSize);
+        if (position < 0) {
+            return false;
+        }
+        long indexPosition = position + blockSize;
+        for (int i = 0; i < numberOfBlocks * 2; i++) {
+            index.putLong(blockPositions[i]);
+        }
+        if (blockLines > 0) {
+            index.putLong(position);
+            index.putLong(indexPosition);
+        }
+        index.flip();
+        writeFully(block, position);
+        writeFully(index, indexPosition);
+        fileChannel.force(false);
+        ByteBuffer encodedHeader = header.encode(numberOfLines, indexPosition);
+        encodedHeader.flip();
+        writeFully(encodedHeader, 0);
+        fileChannel.force(false);
+        for (int i = 0; i < committedRegions.length; i += 2) {
+            free(committedRegions[i], committedRegions[i + 1]);
+        }
+        committedRegions = new long[]{position, position + tailSize};
+        if (fileChannel.size() > dataEnd) {
+            fileChannel.truncate(dataEnd);
+        }
+        return true;
+    }
+
+    /**
+     * Rewrites the incomplete last block and the index in a free region, such as the one left by the previous
+     * flush(), if they are at the end of the file, so the file can be truncated
+     */
+    private void compactTail() throws IOException {
+        if (fileChannel.isOpen() && !freeRegions.isEmpty() && committedRegions.length == 2
+                && committedRegions[1] == dataEnd) {
+            writeTail(true);
+        }
+    }
+
+    /**
+     * Frees the gaps between the regions the header of the file refers to, anything after them can be truncated
+     */
+    private void initializeRegions() {
+        dataEnd = header.getLength();
+        long indexPosition = header.getIndexPosition();
+        long indexEnd = indexPosition + blockPositions.length * Long.BYTES;
+        TreeMap<Long, Long> usedRegions = new TreeMap<>();
+        for (int i = 0; i < blockPositions.length; i += 2) {
+            usedRegions.put(blockPositions[i], blockPositions[i + 1]);
+        }
+        usedRegions.merge(indexPosition, indexEnd, Math::max);
+        for (Map.Entry<Long, Long> region : usedRegions.entrySet()) {
+            if (region.getKey() > dataEnd) {
+                freeRegions.put(dataEnd, region.getKey());
+            }
+            dataEnd = Math.max(dataEnd, region.getValue());
+        }
+        committedRegions = blockLines > 0
+                ? new long[]{blockPositions[numberOfBlocks * 2], blockPositions[numberOfBlocks * 2 + 1],
+                indexPosition, indexEnd}
+                : new long[]{indexPosition, indexEnd};
+    }
+
+    /**
+     * @return start of a free region large enough, or the end of the used regions
+     */
+    private long allocate(long size) {
+        long position = allocateFree(size);
+        if (position < 0) {
+            position = dataEnd;
+            dataEnd += size;
+        }
+        return position;
+    }
+
+    /**
+     * First fit among the free regions
+     *
+     * @return -1 if no free region is large enough
+     */
+    private long allocateFree(long size) {
+        if (size == 0) {
+            return -1;
+        }
+        for (Map.Entry<Long, Long> region : freeRegions.entrySet()) {
+            long start = region.getKey();
+            long end = region.getValue();
+            if (end - start >= size) {
+                freeRegions.remove(start);
+                if (end - start > size) {
+                    freeRegions.put(start + size, end);
+                }
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Merges the region with the adjacent free regions, a region at the end of the used ones shortens them instead
+     */
+    private void free(long start, long end) {
+        if (end <= start) {
+            return;
+        }
+        long mergedStart = start;
+        long mergedEnd = end;
+        Map.Entry<Long, Long> previous = freeRegions.floorEntry(start);
+        if (previous != null && previous.getValue() == start) {
+            mergedStart = previous.getKey();
+            freeRegions.remove(mergedStart);
+        }
+        Long nextEnd = freeRegions.remove(end);
+        if (nextEnd != null) {
+            mergedEnd = nextEnd;
+        }
+        if (mergedEnd == dataEnd) {
+            dataEnd = mergedStart;
+        } else {
+            freeRegions.put(mergedStart, mergedEnd);
+        }
+    }
+
+    /**
+     * Decodes the incomplete last block of an existing file so lines can be appended to it
+     */
+    private void loadLastBlock() throws IOException {
+        long compressedSize = blockPositions[numberOfBlocks * 2 + 1] - blockPositions[numberOfBlocks * 2];
+        if (compressedSize > MAX_BUFFER_SIZE) {
+            throw new InvalidFormatException("Invalid block index");
+        }
+        ByteBuffer block = ByteBuffer.allocate((int) compressedSize);
+        CompressedTabularFileReader.readFully(fileChannel, block, blockPositions[numberOfBlocks * 2]);
+        block.flip();
+        codec.decode(block, blockLines, blockBuffer);
+        blockBuffer.position(blockLines * bytesPerLine);
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        long currentPosition = position;
+        while (buffer.hasRemaining()) {
+            currentPosition += fileChannel.write(buffer, currentPosition);
+        }
+    }
+}
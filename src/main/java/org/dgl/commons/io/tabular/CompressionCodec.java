@@ -0,0 +1,37 @@
+package org.dgl.commons.io.tabular;
+
+/**
+ * Codecs of compressed tabular files. Both are pure Java and store a block as its columns one after another
+ */
+public class CompressionCodec {
+
+    /**
+     * Integral values as bit packed delta of deltas and floating point values as the XOR with the previous value
+     * (Gorilla style). Best for slowly changing or regularly spaced numbers
+     */
+    public static final byte DELTA_XOR = 0x01;
+    /**
+     * LZ77 over the bytes of the values grouped by significance, which suits repeated values and any other data
+     */
+    public static final byte LZ = 0x02;
+
+    public static boolean isValid(byte codec) {
+        return codec == DELTA_XOR || codec == LZ;
+    }
+
+    /**
+     * @param codec
+     * @param lineStructure
+     * @return new instance, codecs keep buffers so they must not be shared between threads
+     */
+    static BlockCodec newBlockCodec(byte codec, DataLineStructure lineStructure) {
+        switch (codec) {
+            case DELTA_XOR:
+                return new DeltaXorBlockCodec(lineStructure);
+            case LZ:
+                return new LzBlockCodec(lineStructure);
+            default:
+                throw new IllegalArgumentException("Invalid codec " + codec);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.dgl.commons.io.Definitions.DEFAULT_BLOCK_SIZE;
+import static org.dgl.commons.io.Definitions.DEFAULT_ENDIANNESS;
+
+/**
+ * Tabular file reader that can be shared between threads. All of them use positional reads on the same file
+ * channel, each one with its own buffers, so no locking is involved when reading.
+ * Buffers are kept per thread until the thread dies or the reader is collected. Multiple lines buffers grow up to
+ * 1 MB, larger ranges are read in chunks of that size and larger blocks (lines over 1 MB) use a buffer that is not
+ * kept
+ */
+public class ConcurrentTabularFileReader extends TabularFileReader {
+
+    private static final int MAX_CACHED_BUFFER_SIZE = 16 * DEFAULT_BLOCK_SIZE;
+
+    private final ThreadLocal<ByteBuffer> lineBuffers;
+    private final ThreadLocal<ByteBuffer> multipleLinesBuffers = new ThreadLocal<>();
+
+    public ConcurrentTabularFileReader(String filePath, ByteOrder endianness, boolean memoryMapped)
+            throws IOException {
+        this(filePath, endianness, memoryMapped, null);
+    }
+
+    /**
+     * @param filePath
+     * @param endianness
+     * @param blockCache see TabularFileReader(filePath, endianness, blockCache)
+     * @throws IOException
+     */
+    public ConcurrentTabularFileReader(String filePath, ByteOrder endianness, BlockCache blockCache)
+            throws IOException {
+        this(filePath, endianness, false, blockCache);
+    }
+
+    public ConcurrentTabularFileReader(String filePath, BlockCache blockCache) throws IOException {
+        this(filePath, DEFAULT_ENDIANNESS, blockCache);
+    }
+
+    public ConcurrentTabularFileReader(String filePath, ByteOrder endianness) throws IOException {
+        this(filePath, endianness, false);
+    }
+
+    public ConcurrentTabularFileReader(String filePath, boolean memoryMapped) throws IOException {
+        this(filePath, DEFAULT_ENDIANNESS, memoryMapped);
+    }
+
+    public ConcurrentTabularFileReader(String filePath) throws IOException {
+        this(filePath, DEFAULT_ENDIANNESS, false);
+    }
+
+    private ConcurrentTabularFileReader(String filePath, ByteOrder endianness, boolean memoryMapped,
+            BlockCache blockCache) throws IOException {
+        super(filePath, endianness, memoryMapped, blockCache);
+        lineBuffers = ThreadLocal.withInitial(() ->
+                ByteBuffer.allocateDirect(getLineStructure().getSizeInBytes()).order(getEndianness()));
+    }
+
+    @Override
+    protected ByteBuffer getLineBuffer() {
+        return lineBuffers.get();
+    }
+
+    @Override
+    protected ByteBuffer getMultipleLinesBuffer(int minimumCapacity) {
+        if (minimumCapacity > MAX_CACHED_BUFFER_SIZE) {
+            return ByteBuffer.allocate(minimumCapacity).order(getEndianness());
+        }
+        ByteBuffer buffer = multipleLinesBuffers.get();
+        if (buffer == null || buffer.capacity() < minimumCapacity) {
+            buffer = ByteBuffer.allocateDirect(minimumCapacity).order(getEndianness());
+            multipleLinesBuffers.set(buffer);
+        }
+        return buffer;
+    }
+
+    @Override
+    protected long getMaxLinesPerRead() {
+        return Math.max(1, MAX_CACHED_BUFFER_SIZE / getLineStructure().getSizeInBytes());
+    }
+}
@@ -1,13 +1,30 @@
 package org.dgl.commons.io.tabular;
 
+import java.util.Arrays;
+
 /**
  * Using primitive arrays for better performance
  */
 public class DataLine {
 
+    private static final byte[] EMPTY_BYTES = new byte[0];
+    private static final char[] EMPTY_CHARS = new char[0];
+    private static final short[] EMPTY_SHORTS = new short[0];
+    private static final int[] EMPTY_INTS = new int[0];
+    private static final long[] EMPTY_LONGS = new long[0];
+    private static final float[] EMPTY_FLOATS = new float[0];
+    private static final double[] EMPTY_DOUBLES = new double[0];
+
     protected final int numberOfElements;
     protected final DataLineStructure lineStructure;
+    protected final DataLineLayout layout;
+    /**
+     * Shared with every line of the same layout, must not be modified
+     */
     protected final byte[] elementsType;
+    /**
+     * Shared with every line of the same layout, must not be modified
+     */
     protected final int[] elementsInternalIndex;
     protected byte[] byteElements;
     protected char[] charElements;
@@ -19,9 +36,10 @@ public class DataLine {
 
     public DataLine(DataLineStructure lineStructure) {
         this.lineStructure = lineStructure;
-        numberOfElements = lineStructure.getNumberOfElements();
-        elementsType = new byte[numberOfElements];
-        elementsInternalIndex = new int[numberOfElements];
+        layout = lineStructure.getLayout();
+        numberOfElements = layout.getNumberOfElements();
+        elementsType = layout.elementsType;
+        elementsInternalIndex = layout.elementsInternalIndex;
         initializeElementArrays();
     }
 
@@ -115,62 +133,20 @@ public class DataLine {
     }
 
     protected void initializeElementArrays() {
-        int byteCounter = 0;
-        int charCounter = 0;
-        int shortCounter = 0;
-        int intCounter = 0;
-        int longCounter = 0;
-        int floatCounter = 0;
-        int doubleCounter = 0;
-
-        for (int i = 0; i < lineStructure.getNumberOfElements(); i++) {
-            switch (lineStructure.getElementType(i)) {
-                case PrimitiveType.BYTE:
-                    elementsType[i] = PrimitiveType.BYTE;
-                    elementsInternalIndex[i] = byteCounter;
-                    byteCounter++;
-                    break;
-                case PrimitiveType.CHAR:
-                    elementsType[i] = PrimitiveType.CHAR;
-                    elementsInternalIndex[i] = charCounter;
-                    charCounter++;
-                    break;
-                case PrimitiveType.SHORT:
-                    elementsType[i] = PrimitiveType.SHORT;
-                    elementsInternalIndex[i] = shortCounter;
-                    shortCounter++;
-                    break;
-                case PrimitiveType.INT:
-                    elementsType[i] = PrimitiveType.INT;
-                    elementsInternalIndex[i] = intCounter;
-                    intCounter++;
-                    break;
-                case PrimitiveType.LONG:
-                    elementsType[i] = PrimitiveType.LONG;
-                    elementsInternalIndex[i] = longCounter;
-                    longCounter++;
-                    break;
-                case PrimitiveType.FLOAT:
-                    elementsType[i] = PrimitiveType.FLOAT;
-                    elementsInternalIndex[i] = floatCounter;
-                    floatCounter++;
-                    break;
-                case PrimitiveType.DOUBLE:
-                    elementsType[i] = PrimitiveType.DOUBLE;
-                    elementsInternalIndex[i] = doubleCounter;
-                    doubleCounter++;
-                    break;
-                default:
-                    throw new IllegalArgumentException();
-            }
-        }
-        byteElements = new byte[byteCounter];
-        charElements = new char[charCounter];
-        shortElements = new short[shortCounter];
-        intElements = new int[intCounter];
-        longElements = new long[longCounter];
-        floatElements = new float[floatCounter];
-        doubleElements = new double[doubleCounter];
+        byteElements = layout.getNumberOfElementsOfType(PrimitiveType.BYTE) == 0 ? EMPTY_BYTES :
+                new byte[layout.getNumberOfElementsOfType(PrimitiveType.BYTE)];
+        charElements = layout.getNumberOfElementsOfType(PrimitiveType.CHAR) == 0 ? EMPTY_CHARS :
+                new char[layout.getNumberOfElementsOfType(PrimitiveType.CHAR)];
+        shortElements = layout.getNumberOfElementsOfType(PrimitiveType.SHORT) == 0 ? EMPTY_SHORTS :
+                new short[layout.getNumberOfElementsOfType(PrimitiveType.SHORT)];
+        intElements = layout.getNumberOfElementsOfType(PrimitiveType.INT) == 0 ? EMPTY_INTS :
+                new int[layout.getNumberOfElementsOfType(PrimitiveType.INT)];
+        longElements = layout.getNumberOfElementsOfType(PrimitiveType.LONG) == 0 ? EMPTY_LONGS :
+                new long[layout.getNumberOfElementsOfType(PrimitiveType.LONG)];
+        floatElements = layout.getNumberOfElementsOfType(PrimitiveType.FLOAT) == 0 ? EMPTY_FLOATS :
+                new float[layout.getNumberOfElementsOfType(PrimitiveType.FLOAT)];
+        doubleElements = layout.getNumberOfElementsOfType(PrimitiveType.DOUBLE) == 0 ? EMPTY_DOUBLES :
+                new double[layout.getNumberOfElementsOfType(PrimitiveType.DOUBLE)];
     }
 
     protected int getInternalIndex(int elementIndex) {
@@ -186,18 +162,27 @@ public class DataLine {
         }
     }
 
+    /**
+     * Compares the values directly, so the result does not depend on any byte order. Floating point values are
+     * compared by their raw bits, like their encoded bytes would be
+     */
     public boolean equals(DataLine line) {
         if (!getLineStructure().equals(line.getLineStructure())) {
             return false;
         }
-        byte[] bytes1 = Utils.getDataLineBytes(this);
-        byte[] bytes2 = Utils.getDataLineBytes(line);
-        for (int i = 0; i < bytes1.length; i++) {
-            if (bytes1[i] != bytes2[i]) {
+        for (int i = 0; i < floatElements.length; i++) {
+            if (Float.floatToRawIntBits(floatElements[i]) != Float.floatToRawIntBits(line.floatElements[i])) {
+                return false;
+            }
+        }
+        for (int i = 0; i < doubleElements.length; i++) {
+            if (Double.doubleToRawLongBits(doubleElements[i]) != Double.doubleToRawLongBits(line.doubleElements[i])) {
                 return false;
             }
         }
-        return true;
+        return Arrays.equals(byteElements, line.byteElements) && Arrays.equals(charElements, line.charElements)
+                && Arrays.equals(shortElements, line.shortElements) && Arrays.equals(intElements, line.intElements)
+                && Arrays.equals(longElements, line.longElements);
     }
 
     @Override
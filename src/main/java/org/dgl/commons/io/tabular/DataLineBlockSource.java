@@ -0,0 +1,60 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Block source for readers that only provide getLine(): lines are read one by one and encoded into the cursor
+ * buffer, so every line is decoded twice and a DataLine is created per line
+ */
+class DataLineBlockSource implements LineBlockSource {
+
+    private final TabularReader reader;
+    private final DataLineStructure lineStructure;
+
+    private DataLineBlockSource(TabularReader reader, DataLineStructure lineStructure) {
+        this.reader = reader;
+        this.lineStructure = lineStructure;
+    }
+
+    /**
+     * @param reader
+     * @param firstIndex inclusive
+     * @param lastIndex  exclusive
+     * @return cursor over the range, lines must all have the structure of the first one
+     * @throws IOException
+     */
+    static DataLineCursor cursor(TabularReader reader, long firstIndex, long lastIndex) throws IOException {
+        if (firstIndex < 0 || lastIndex > reader.getNumberOfLines() || lastIndex < firstIndex) {
+            throw new IndexOutOfBoundsException();
+        }
+        DataLineStructure lineStructure = firstIndex == lastIndex ? new DataLineStructure(0)
+                : getLine(reader, firstIndex).getLineStructure();
+        return new DataLineCursor(new DataLineBlockSource(reader, lineStructure), true, lineStructure, firstIndex,
+                lastIndex);
+    }
+
+    @Override
+    public ByteBuffer readBlock(long firstIndex, int maxLines, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        for (int i = 0; i < maxLines; i++) {
+            DataLine dataLine = getLine(reader, firstIndex + i);
+            if (!dataLine.getLineStructure().equals(lineStructure)) {
+                throw new InvalidDataLineStructureException();
+            }
+            buffer.put(Utils.getDataLineBytes(dataLine, buffer.order()));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static DataLine getLine(TabularReader reader, long lineIndex) throws IOException {
+        try {
+            return reader.getLine(lineIndex);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.dgl.commons.io.Definitions.DEFAULT_BLOCK_SIZE;
+
+/**
+ * Flyweight view over consecutive lines. Lines are read in blocks and values are decoded in place on request,
+ * so moving to the next line does not allocate anything.
+ * Values of the current line are only valid until next() is called. Cursors that read ahead on another thread must
+ * be closed if they are not read to the end
+ */
+public class DataLineCursor implements Closeable {
+
+    private final LineBlockSource source;
+    private final boolean needsBuffer;
+    private final DataLineStructure lineStructure;
+    private final byte[] elementsType;
+    private final int[] elementsOffset;
+    private final int bytesPerLine;
+    private final int linesPerBlock;
+    private final long lastIndex;
+    private ByteBuffer buffer = null;
+    private ByteBuffer block = null;
+    private long lineIndex;
+    private long blockEndIndex;
+    private int linePosition = -1;
+
+    /**
+     * @param source
+     * @param needsBuffer   false if the source returns blocks without copying them into the cursor buffer
+     * @param lineStructure
+     * @param firstIndex    inclusive
+     * @param lastIndex     exclusive
+     */
+    DataLineCursor(LineBlockSource source, boolean needsBuffer, DataLineStructure lineStructure, long firstIndex,
+            long lastIndex) {
+        this(source, needsBuffer, lineStructure, getLinesPerBlock(lineStructure.getSizeInBytes()), firstIndex,
+                lastIndex);
+    }
+
+    /**
+     * @param source
+     * @param needsBuffer   false if the source returns blocks without copying them into the cursor buffer
+     * @param lineStructure
+     * @param linesPerBlock maximum number of lines requested from the source at once
+     * @param firstIndex    inclusive
+     * @param lastIndex     exclusive
+     */
+    DataLineCursor(LineBlockSource source, boolean needsBuffer, DataLineStructure lineStructure, int linesPerBlock,
+            long firstIndex, long lastIndex) {
+        this.source = source;
+        this.needsBuffer = needsBuffer;
+        this.lineStructure = lineStructure;
+        this.linesPerBlock = linesPerBlock;
+        this.lastIndex = lastIndex;
+        bytesPerLine = lineStructure.getSizeInBytes();
+        DataLineLayout layout = lineStructure.getLayout();
+        elementsType = layout.elementsType;
+        elementsOffset = layout.elementsOffset;
+        lineIndex = firstIndex - 1;
+        blockEndIndex = firstIndex;
+    }
+
+    /**
+     * Moves to the next line
+     *
+     * @return false if there are no more lines
+     * @throws IOException
+     */
+    public boolean next() throws IOException {
+        if (lineIndex + 1 >= lastIndex) {
+            return false;
+        }
+        lineIndex++;
+        if (lineIndex < blockEndIndex) {
+            linePosition += bytesPerLine;
+        } else {
+            loadBlock();
+        }
+        return true;
+    }
+
+    public long getLineIndex() {
+        return lineIndex;
+    }
+
+    public DataLineStructure getLineStructure() {
+        return lineStructure;
+    }
+
+    public byte getByte(int elementIndex) {
+        return block.get(getElementPosition(elementIndex, PrimitiveType.BYTE));
+    }
+
+    public char getChar(int elementIndex) {
+        return block.getChar(getElementPosition(elementIndex, PrimitiveType.CHAR));
+    }
+
+    public short getShort(int elementIndex) {
+        return block.getShort(getElementPosition(elementIndex, PrimitiveType.SHORT));
+    }
+
+    public int getInt(int elementIndex) {
+        return block.getInt(getElementPosition(elementIndex, PrimitiveType.INT));
+    }
+
+    public long getLong(int elementIndex) {
+        return block.getLong(getElementPosition(elementIndex, PrimitiveType.LONG));
+    }
+
+    public float getFloat(int elementIndex) {
+        return block.getFloat(getElementPosition(elementIndex, PrimitiveType.FLOAT));
+    }
+
+    public double getDouble(int elementIndex) {
+        return block.getDouble(getElementPosition(elementIndex, PrimitiveType.DOUBLE));
+    }
+
+    /**
+     * Copies the current line into a new DataLine
+     */
+    public DataLine getDataLine() {
+        DataLine dataLine = new DataLine(lineStructure);
+        for (int i = 0; i < elementsType.length; i++) {
+            switch (elementsType[i]) {
+                case PrimitiveType.BYTE:
+                    dataLine.setByte(i, getByte(i));
+                    break;
+                case PrimitiveType.CHAR:
+                    dataLine.setChar(i, getChar(i));
+                    break;
+                case PrimitiveType.SHORT:
+                    dataLine.setShort(i, getShort(i));
+                    break;
+                case PrimitiveType.INT:
+                    dataLine.setInt(i, getInt(i));
+                    break;
+                case PrimitiveType.LONG:
+                    dataLine.setLong(i, getLong(i));
+                    break;
+                case PrimitiveType.FLOAT:
+                    dataLine.setFloat(i, getFloat(i));
+                    break;
+                case PrimitiveType.DOUBLE:
+                    dataLine.setDouble(i, getDouble(i));
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+        return dataLine;
+    }
+
+    /**
+     * Copies the elements of the projection of the current line into a new DataLine
+     *
+     * @param projection for lines of the structure of the cursor
+     * @return line with the structure of the projection
+     */
+    public DataLine getDataLine(LineProjection projection) {
+        if (linePosition < 0) {
+            throw new IllegalStateException();
+        }
+        projection.validate(lineStructure);
+        return projection.decode(block, linePosition);
+    }
+
+    /**
+     * Releases the resources of the cursor, it can not be moved afterwards
+     */
+    @Override
+    public void close() {
+        source.close();
+    }
+
+    /**
+     * @param bytesPerLine
+     * @return number of lines read at once by a cursor
+     */
+    static int getLinesPerBlock(int bytesPerLine) {
+        return Math.max(1, DEFAULT_BLOCK_SIZE / Math.max(1, bytesPerLine));
+    }
+
+    private void loadBlock() throws IOException {
+        int maxLines = (int) Math.min(linesPerBlock, lastIndex - lineIndex);
+        if (buffer == null && needsBuffer) {
+            buffer = ByteBuffer.allocateDirect(linesPerBlock * bytesPerLine);
+        }
+        block = source.readBlock(lineIndex, maxLines, buffer);
+        linePosition = block.position();
+        blockEndIndex = lineIndex + (block.remaining() / bytesPerLine);
+    }
+
+    private int getElementPosition(int elementIndex, byte type) {
+        if (linePosition < 0) {
+            throw new IllegalStateException();
+        }
+        if (type != elementsType[elementIndex]) {
+            throw new InvalidFormatException();
+        }
+        return linePosition + elementsOffset[elementIndex];
+    }
+}
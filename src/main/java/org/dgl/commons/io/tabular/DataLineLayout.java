@@ -0,0 +1,63 @@
+package org.dgl.commons.io.tabular;
+
+/**
+ * Immutable per structure metadata: type, index inside the DataLine primitive array of its type and byte offset
+ * inside the line of every element. Computed once and shared by all lines with the same structure
+ */
+public final class DataLineLayout {
+
+    final byte[] elementsType;
+    final int[] elementsInternalIndex;
+    final int[] elementsOffset;
+    private final int[] elementsPerType = new int[PrimitiveType.DOUBLE + 1];
+    private final int sizeInBytes;
+
+    DataLineLayout(DataLineStructure lineStructure) {
+        int numberOfElements = lineStructure.getNumberOfElements();
+        elementsType = new byte[numberOfElements];
+        elementsInternalIndex = new int[numberOfElements];
+        elementsOffset = new int[numberOfElements];
+        int offset = 0;
+        for (int i = 0; i < numberOfElements; i++) {
+            byte type = lineStructure.getElementType(i);
+            elementsType[i] = type;
+            elementsInternalIndex[i] = elementsPerType[type];
+            elementsOffset[i] = offset;
+            elementsPerType[type]++;
+            offset += PrimitiveType.getSizeInBytesForType(type);
+        }
+        sizeInBytes = offset;
+    }
+
+    public int getNumberOfElements() {
+        return elementsType.length;
+    }
+
+    public byte getElementType(int index) {
+        return elementsType[index];
+    }
+
+    /**
+     * @param index
+     * @return index of the element among the elements of its same type
+     */
+    public int getElementInternalIndex(int index) {
+        return elementsInternalIndex[index];
+    }
+
+    /**
+     * @param index
+     * @return position in bytes of the element inside the line
+     */
+    public int getElementOffset(int index) {
+        return elementsOffset[index];
+    }
+
+    public int getNumberOfElementsOfType(byte type) {
+        return elementsPerType[type];
+    }
+
+    public int getSizeInBytes() {
+        return sizeInBytes;
+    }
+}
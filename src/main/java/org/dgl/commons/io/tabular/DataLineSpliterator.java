@@ -0,0 +1,92 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Spliterator over a range of lines of a reader, split in halves by line index. Every split reads its lines with
+ * its own cursor, opened on first traversal
+ */
+class DataLineSpliterator<T> implements Spliterator<T> {
+
+    private static final long MIN_SPLIT_SIZE = 1024;
+
+    private final TabularReader reader;
+    private final Function<DataLineCursor, T> elementFunction;
+    private final long lastIndex;
+    private long firstIndex;
+    private DataLineCursor cursor = null;
+
+    DataLineSpliterator(TabularReader reader, Function<DataLineCursor, T> elementFunction) {
+        this(reader, elementFunction, 0, reader.getNumberOfLines());
+    }
+
+    /**
+     * @param reader
+     * @param elementFunction gives the stream element for the line the cursor is positioned on
+     * @param firstIndex      inclusive
+     * @param lastIndex       exclusive
+     */
+    DataLineSpliterator(TabularReader reader, Function<DataLineCursor, T> elementFunction, long firstIndex,
+            long lastIndex) {
+        this.reader = reader;
+        this.elementFunction = elementFunction;
+        this.firstIndex = firstIndex;
+        this.lastIndex = lastIndex;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (!nextLine()) {
+            return false;
+        }
+        action.accept(elementFunction.apply(cursor));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        while (nextLine()) {
+            action.accept(elementFunction.apply(cursor));
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        long size = lastIndex - firstIndex;
+        if (cursor != null || size < 2 * MIN_SPLIT_SIZE) {
+            return null;
+        }
+        long splitIndex = firstIndex + (size / 2);
+        Spliterator<T> prefix = new DataLineSpliterator<>(reader, elementFunction, firstIndex, splitIndex);
+        firstIndex = splitIndex;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        if (cursor == null) {
+            return lastIndex - firstIndex;
+        }
+        return lastIndex - cursor.getLineIndex() - 1;
+    }
+
+    @Override
+    public int characteristics() {
+        return SIZED | SUBSIZED | ORDERED | IMMUTABLE | NONNULL;
+    }
+
+    private boolean nextLine() {
+        try {
+            if (cursor == null) {
+                cursor = reader.cursor(firstIndex, lastIndex);
+            }
+            return cursor.next();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
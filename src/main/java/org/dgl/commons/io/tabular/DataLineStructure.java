@@ -5,6 +5,9 @@ public class DataLineStructure {
     private static final byte DEFAULT_DATA_TYPE = PrimitiveType.DOUBLE;
     private final byte[] elementTypes;
     private int sizeInBytes = 0;
+    private DataLineLayout layout = null;
+    private String[] elementNames = null;
+    private boolean[] sortedElements = null;
 
     public DataLineStructure(int length) {
         elementTypes = new byte[length];
@@ -28,6 +31,7 @@ public class DataLineStructure {
         }
         sizeInBytes += PrimitiveType.getSizeInBytesForType(type) - oldTypeSize;
         elementTypes[index] = type;
+        layout = null;
         return this;
     }
 
@@ -48,6 +52,79 @@ public class DataLineStructure {
         return this;
     }
 
+    /**
+     * Names are optional, they are stored in the file header but ignored when comparing structures
+     *
+     * @param index
+     * @param name
+     */
+    public DataLineStructure setElementName(int index, String name) {
+        if (index < 0 || index >= elementTypes.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (elementNames == null) {
+            elementNames = new String[elementTypes.length];
+        }
+        elementNames[index] = name;
+        return this;
+    }
+
+    /**
+     * @param index
+     * @return name of the element, null if it has none
+     */
+    public String getElementName(int index) {
+        if (index < 0 || index >= elementTypes.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        return elementNames == null ? null : elementNames[index];
+    }
+
+    /**
+     * @param name
+     * @return index of the first element with the name, -1 if there is none
+     */
+    public int getElementIndex(String name) {
+        if (elementNames != null) {
+            for (int i = 0; i < elementNames.length; i++) {
+                if (name.equals(elementNames[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    public boolean hasElementNames() {
+        return elementNames != null;
+    }
+
+    /**
+     * Declares that the values of the element never decrease from one line to the next, so lines can be searched
+     * by its value. It is stored in the file header but not checked when lines are written, and ignored when
+     * comparing structures
+     *
+     * @param index
+     * @param sorted
+     */
+    public DataLineStructure setElementSorted(int index, boolean sorted) {
+        if (index < 0 || index >= elementTypes.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (sortedElements == null) {
+            sortedElements = new boolean[elementTypes.length];
+        }
+        sortedElements[index] = sorted;
+        return this;
+    }
+
+    public boolean isElementSorted(int index) {
+        if (index < 0 || index >= elementTypes.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        return sortedElements != null && sortedElements[index];
+    }
+
     public int getNumberOfElements() {
         return elementTypes.length;
     }
@@ -60,6 +137,31 @@ public class DataLineStructure {
         return sizeInBytes;
     }
 
+    /**
+     * @return structure with the same types, names and sorted flags, that can be modified independently
+     */
+    DataLineStructure copy() {
+        DataLineStructure copy = new DataLineStructure(elementTypes);
+        copy.elementNames = elementNames == null ? null : elementNames.clone();
+        copy.sortedElements = sortedElements == null ? null : sortedElements.clone();
+        return copy;
+    }
+
+    /**
+     * Layout is computed on first request and reused until the structure is modified
+     */
+    public DataLineLayout getLayout() {
+        DataLineLayout currentLayout = layout;
+        if (currentLayout == null) {
+            currentLayout = new DataLineLayout(this);
+            layout = currentLayout;
+        }
+        return currentLayout;
+    }
+
+    /**
+     * Compares element types only, names are ignored
+     */
     public boolean equals(DataLineStructure lineStructure) {
         if (lineStructure.getNumberOfElements() != getNumberOfElements()) {
             return false;
@@ -0,0 +1,344 @@
+package org.dgl.commons.io.tabular;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bit packed codec for numbers, one column after another. Integral values (chars as unsigned values) are stored as
+ * the difference between consecutive deltas:
+ * <pre>
+ * 0                       same delta as the previous line
+ * 10    + 7 bits          delta of deltas between -64 and 63
+ * 110   + 9 bits          between -256 and 255
+ * 1110  + 12 bits         between -2048 and 2047
+ * 11110 + 32 bits         any int
+ * 11111 + 64 bits         any long
+ * </pre>
+ * Floating point values are stored as the XOR of their bits with the previous value:
+ * <pre>
+ * 0                                          same bits as the previous value
+ * 10 + meaningful bits                       differing bits inside the window of the previous value
+ * 11 + 5 bits leading zeros + 6 bits length  new window, length - 1 is stored
+ *    + meaningful bits
+ * </pre>
+ * The value before the first line of a block is 0, so blocks decode independently
+ */
+final class DeltaXorBlockCodec implements BlockCodec {
+
+    private static final int MAX_BYTES_PER_VALUE = 10;
+
+    private final byte[] elementsType;
+    private final int[] elementsOffset;
+    private final int bytesPerLine;
+    private byte[] output = new byte[0];
+    private int outputLength;
+    private byte[] input;
+    private int inputPosition;
+    private int inputEnd;
+    private long pendingBits;
+    private int pendingBitCount;
+    private long inputBits;
+    private int inputBitCount;
+
+    DeltaXorBlockCodec(DataLineStructure lineStructure) {
+        DataLineLayout layout = lineStructure.getLayout();
+        elementsType = layout.elementsType;
+        elementsOffset = layout.elementsOffset;
+        bytesPerLine = layout.getSizeInBytes();
+    }
+
+    @Override
+    public ByteBuffer encode(ByteBuffer lines, int numberOfLines) {
+        long capacity = (long) numberOfLines * elementsType.length * MAX_BYTES_PER_VALUE + 8;
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException();
+        }
+        if (output.length < capacity) {
+            output = new byte[(int) capacity];
+        }
+        outputLength = 0;
+        pendingBits = 0;
+        pendingBitCount = 0;
+        for (int i = 0; i < elementsType.length; i++) {
+            switch (elementsType[i]) {
+                case PrimitiveType.FLOAT:
+                    encodeFloatingPoint(lines, numberOfLines, elementsOffset[i], Float.SIZE);
+                    break;
+                case PrimitiveType.DOUBLE:
+                    encodeFloatingPoint(lines, numberOfLines, elementsOffset[i], Double.SIZE);
+                    break;
+                default:
+                    encodeIntegral(lines, numberOfLines, elementsOffset[i], elementsType[i]);
+            }
+        }
+        if (pendingBitCount > 0) {
+            output[outputLength++] = (byte) (pendingBits << (8 - pendingBitCount));
+        }
+        return ByteBuffer.wrap(output, 0, outputLength);
+    }
+
+    @Override
+    public void decode(ByteBuffer block, int numberOfLines, ByteBuffer lines) {
+        input = block.array();
+        inputPosition = block.arrayOffset() + block.position();
+        inputEnd = block.arrayOffset() + block.limit();
+        inputBits = 0;
+        inputBitCount = 0;
+        for (int i = 0; i < elementsType.length; i++) {
+            switch (elementsType[i]) {
+                case PrimitiveType.FLOAT:
+                    decodeFloatingPoint(lines, numberOfLines, elementsOffset[i], Float.SIZE);
+                    break;
+                case PrimitiveType.DOUBLE:
+                    decodeFloatingPoint(lines, numberOfLines, elementsOffset[i], Double.SIZE);
+                    break;
+                default:
+                    decodeIntegral(lines, numberOfLines, elementsOffset[i], elementsType[i]);
+            }
+        }
+        input = null;
+    }
+
+    private void encodeIntegral(ByteBuffer lines, int numberOfLines, int elementOffset, byte type) {
+        long previous = 0;
+        long previousDelta = 0;
+        int position = elementOffset;
+        for (int i = 0; i < numberOfLines; i++) {
+            long value = getIntegral(lines, position, type);
+            long delta = value - previous;
+            long deltaOfDeltas = delta - previousDelta;
+            if (deltaOfDeltas == 0) {
+                writeBits(0, 1);
+            } else if (deltaOfDeltas >= -64 && deltaOfDeltas < 64) {
+                writeBits(0b10, 2);
+                writeBits(deltaOfDeltas, 7);
+            } else if (deltaOfDeltas >= -256 && deltaOfDeltas < 256) {
+                writeBits(0b110, 3);
+                writeBits(deltaOfDeltas, 9);
+            } else if (deltaOfDeltas >= -2048 && deltaOfDeltas < 2048) {
+                writeBits(0b1110, 4);
+                writeBits(deltaOfDeltas, 12);
+            } else if (deltaOfDeltas >= Integer.MIN_VALUE && deltaOfDeltas <= Integer.MAX_VALUE) {
+                writeBits(0b11110, 5);
+                writeBits(deltaOfDeltas, 32);
+            } else {
+                writeBits(0b11111, 5);
+                writeBits(deltaOfDeltas, 64);
+            }
+            previous = value;
+            previousDelta = delta;
+            position += bytesPerLine;
+        }
+    }
+
+    private void decodeIntegral(ByteBuffer lines, int numberOfLines, int elementOffset, byte type) {
+        long previous = 0;
+        long previousDelta = 0;
+        int position = elementOffset;
+        for (int i = 0; i < numberOfLines; i++) {
+            long deltaOfDeltas;
+            switch (readPrefix(5)) {
+                case 0:
+                    deltaOfDeltas = 0;
+                    break;
+                case 1:
+                    deltaOfDeltas = readSigned(7);
+                    break;
+                case 2:
+                    deltaOfDeltas = readSigned(9);
+                    break;
+                case 3:
+                    deltaOfDeltas = readSigned(12);
+                    break;
+                case 4:
+                    deltaOfDeltas = readSigned(32);
+                    break;
+                default:
+                    deltaOfDeltas = readBits(64);
+            }
+            long delta = previousDelta + deltaOfDeltas;
+            long value = previous + delta;
+            putIntegral(lines, position, type, value);
+            previous = value;
+            previousDelta = delta;
+            position += bytesPerLine;
+        }
+    }
+
+    private void encodeFloatingPoint(ByteBuffer lines, int numberOfLines, int elementOffset, int width) {
+        long previous = 0;
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        int position = elementOffset;
+        for (int i = 0; i < numberOfLines; i++) {
+            long bits = width == Double.SIZE ? Double.doubleToRawLongBits(lines.getDouble(position))
+                    : Float.floatToRawIntBits(lines.getFloat(position)) & 0xFFFFFFFFL;
+            long xor = bits ^ previous;
+            if (xor == 0) {
+                writeBits(0, 1);
+            } else {
+                int leading = Long.numberOfLeadingZeros(xor) - (Long.SIZE - width);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                    writeBits(0b10, 2);
+                    writeBits(xor >>> previousTrailing, width - previousLeading - previousTrailing);
+                } else {
+                    leading = Math.min(leading, 31);
+                    int length = width - leading - trailing;
+                    writeBits(0b11, 2);
+                    writeBits(leading, 5);
+                    writeBits(length - 1, 6);
+                    writeBits(xor >>> trailing, length);
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+            }
+            previous = bits;
+            position += bytesPerLine;
+        }
+    }
+
+    private void decodeFloatingPoint(ByteBuffer lines, int numberOfLines, int elementOffset, int width) {
+        long previous = 0;
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        int position = elementOffset;
+        for (int i = 0; i < numberOfLines; i++) {
+            long bits = previous;
+            int prefix = readPrefix(2);
+            if (prefix != 0) {
+                if (prefix == 1) {
+                    if (previousLeading < 0) {
+                        throw new InvalidFormatException("Corrupt block");
+                    }
+                    bits ^= readBits(width - previousLeading - previousTrailing) << previousTrailing;
+                } else {
+                    previousLeading = (int) readBits(5);
+                    int length = (int) readBits(6) + 1;
+                    previousTrailing = width - previousLeading - length;
+                    if (previousTrailing < 0) {
+                        throw new InvalidFormatException("Corrupt block");
+                    }
+                    bits ^= readBits(length) << previousTrailing;
+                }
+            }
+            if (width == Double.SIZE) {
+                lines.putDouble(position, Double.longBitsToDouble(bits));
+            } else {
+                lines.putFloat(position, Float.intBitsToFloat((int) bits));
+            }
+            previous = bits;
+            position += bytesPerLine;
+        }
+    }
+
+    /**
+     * Appends the lowest count bits of the value, most significant first
+     */
+    private void writeBits(long value, int count) {
+        if (count > 32) {
+            writeBits(value >>> 32, count - 32);
+            writeBits(value, 32);
+            return;
+        }
+        pendingBits = (pendingBits << count) | (value & ((1L << count) - 1));
+        pendingBitCount += count;
+        while (pendingBitCount >= 8) {
+            pendingBitCount -= 8;
+            output[outputLength++] = (byte) (pendingBits >>> pendingBitCount);
+        }
+        pendingBits &= (1L << pendingBitCount) - 1;
+    }
+
+    /**
+     * @param maximum
+     * @return number of 1 bits before the next 0 bit, which is consumed, or maximum if there are maximum 1 bits
+     */
+    private int readPrefix(int maximum) {
+        if (inputBitCount < maximum) {
+            fillInputBits(0);
+        }
+        int ones = Math.min(Long.numberOfLeadingZeros(~inputBits), maximum);
+        int consumed = ones == maximum ? ones : ones + 1;
+        if (consumed > inputBitCount) {
+            throw new InvalidFormatException("Corrupt block");
+        }
+        inputBits <<= consumed;
+        inputBitCount -= consumed;
+        return ones;
+    }
+
+    /**
+     * @return the next count bits (at most 64) as an unsigned value
+     */
+    private long readBits(int count) {
+        if (count > 32) {
+            long high = readBits(count - 32);
+            return (high << 32) | readBits(32);
+        }
+        if (inputBitCount < count) {
+            fillInputBits(count);
+        }
+        long value = inputBits >>> (Long.SIZE - count);
+        inputBits <<= count;
+        inputBitCount -= count;
+        return value;
+    }
+
+    /**
+     * Loads whole bytes after the bits left, next bit is the highest one of inputBits
+     *
+     * @param required minimum number of bits that must be available afterwards
+     */
+    private void fillInputBits(int required) {
+        while (inputBitCount <= Long.SIZE - 8 && inputPosition < inputEnd) {
+            inputBits |= (input[inputPosition++] & 0xFFL) << (Long.SIZE - 8 - inputBitCount);
+            inputBitCount += 8;
+        }
+        if (inputBitCount < required) {
+            throw new InvalidFormatException("Corrupt block");
+        }
+    }
+
+    private long readSigned(int count) {
+        return (readBits(count) << (Long.SIZE - count)) >> (Long.SIZE - count);
+    }
+
+    private static long getIntegral(ByteBuffer lines, int position, byte type) {
+        switch (type) {
+            case PrimitiveType.BYTE:
+                return lines.get(position);
+            case PrimitiveType.CHAR:
+                return lines.getChar(position);
+            case PrimitiveType.SHORT:
+                return lines.getShort(position);
+            case PrimitiveType.INT:
+                return lines.getInt(position);
+            case PrimitiveType.LONG:
+                return lines.getLong(position);
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    private static void putIntegral(ByteBuffer lines, int position, byte type, long value) {
+        switch (type) {
+            case PrimitiveType.BYTE:
+                lines.put(position, (byte) value);
+                break;
+            case PrimitiveType.CHAR:
+                lines.putChar(position, (char) value);
+                break;
+            case PrimitiveType.SHORT:
+                lines.putShort(position, (short) value);
+                break;
+            case PrimitiveType.INT:
+                lines.putInt(position, (int) value);
+                break;
+            case PrimitiveType.LONG:
+                lines.putLong(position, value);
+                break;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+}
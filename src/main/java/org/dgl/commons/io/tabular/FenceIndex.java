@@ -0,0 +1,81 @@
+package org.dgl.commons.io.tabular;
+
+/**
+ * Sparse in-memory index of a sorted element: its value every interval lines, so a seek only searches the lines
+ * between two consecutive entries. It must only be used with the reader that created it, lines appended afterwards
+ * are searched without it
+ */
+public final class FenceIndex {
+
+    private final int elementIndex;
+    private final int interval;
+    private final long numberOfLines;
+    private final long[] values;
+
+    /**
+     * @param elementIndex
+     * @param interval      number of lines between entries
+     * @param numberOfLines lines of the reader when it was created
+     * @param values        value of lines 0, interval, 2 * interval... as returned by SeekKey.getValue()
+     */
+    FenceIndex(int elementIndex, int interval, long numberOfLines, long[] values) {
+        this.elementIndex = elementIndex;
+        this.interval = interval;
+        this.numberOfLines = numberOfLines;
+        this.values = values;
+    }
+
+    public int getElementIndex() {
+        return elementIndex;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public long getNumberOfLines() {
+        return numberOfLines;
+    }
+
+    public int getNumberOfEntries() {
+        return values.length;
+    }
+
+    /**
+     * @param key
+     * @param totalLines current number of lines of the reader
+     * @return first line of the range that holds the first line not before the key
+     */
+    long getSearchStart(SeekKey key, long totalLines) {
+        int entry = findEntry(key);
+        return entry == 0 ? 0 : Math.min((long) (entry - 1) * interval + 1, totalLines);
+    }
+
+    /**
+     * @param key
+     * @param totalLines current number of lines of the reader
+     * @return end (exclusive) of the range that holds the first line not before the key, which is that line if no
+     * line of the range qualifies
+     */
+    long getSearchEnd(SeekKey key, long totalLines) {
+        int entry = findEntry(key);
+        return entry == values.length ? totalLines : Math.min((long) entry * interval, totalLines);
+    }
+
+    /**
+     * @return first entry not before the key, number of entries if there is none
+     */
+    private int findEntry(SeekKey key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (key.isBefore(values[middle])) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,466 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Header of a tabular file. Version 1 layout, numbers are big endian whatever the byte order of the data:
+ * <pre>
+ *  0  magic "TABF"
+ *  4  version
+ *  5  byte order of the data, 'B' or 'L'
+ *  6  flags
+ *  7  reserved
+ *  8  header length, multiple of 8 so the data region is aligned
+ * 12  number of elements
+ * 16  number of lines, updated by the writer on flush and close
+ * 24  CRC32 of the header, computed with this field set to 0
+ * 28  reserved
+ * 32  one byte per element, type in the low 4 bits, element flags in the high 4 bits (0x10 sorted)
+ *     if FLAG_ELEMENT_NAMES, each element name as a 2 bytes length followed by its UTF-8 bytes
+ *     zero padding
+ * </pre>
+ * Version 2 is only written for files that do not use the row layout, so readers of version 1 reject them. Its
+ * fixed part is 48 bytes long, elements start at 48 instead of 32:
+ * <pre>
+ * 32  layout, 1 columnar or 2 compressed
+ * 33  codec of compressed files, see CompressionCodec
+ * 34  reserved
+ * 36  lines per row group or per compressed block
+ * 40  position of the block index of compressed files
+ * </pre>
+ * Files written before version 1 start with the type of each element followed by a 0 end marker, their byte order is
+ * not recorded
+ */
+final class FileHeader {
+
+    static final int LEGACY_VERSION = 0;
+    static final int VERSION = 1;
+    static final int LAYOUT_VERSION = 2;
+    static final int ROW_LAYOUT = 0;
+    static final int COLUMNAR_LAYOUT = 1;
+    static final int COMPRESSED_LAYOUT = 2;
+
+    private static final byte LEGACY_HEADER_END = 0;
+    private static final byte BIG_ENDIAN_MARKER = 'B';
+    private static final byte LITTLE_ENDIAN_MARKER = 'L';
+    private static final int MAGIC = 0x54414246;
+    private static final int FIXED_LENGTH = 32;
+    private static final int LAYOUT_FIXED_LENGTH = 48;
+    private static final int LAYOUT_OFFSET = 32;
+    private static final int CODEC_OFFSET = 33;
+    private static final int LINES_PER_GROUP_OFFSET = 36;
+    private static final int INDEX_POSITION_OFFSET = 40;
+    private static final int NUMBER_OF_LINES_OFFSET = 16;
+    private static final int CHECKSUM_OFFSET = 24;
+    private static final byte FLAG_ELEMENT_NAMES = 0x01;
+    private static final byte ELEMENT_FLAG_SORTED = 0x10;
+    private static final int READ_CHUNK_SIZE = 4096;
+
+    private final DataLineStructure lineStructure;
+    private final ByteOrder endianness;
+    private final int version;
+    private final int length;
+    private final long numberOfLines;
+    private final int layout;
+    private final int linesPerGroup;
+    private final byte codec;
+    private final long indexPosition;
+
+    private FileHeader(DataLineStructure lineStructure, ByteOrder endianness, int version, int length,
+            long numberOfLines) {
+        this(lineStructure, endianness, version, length, numberOfLines, ROW_LAYOUT, 0, (byte) 0, 0);
+    }
+
+    private FileHeader(DataLineStructure lineStructure, ByteOrder endianness, int version, int length,
+            long numberOfLines, int layout, int linesPerGroup, byte codec, long indexPosition) {
+        this.lineStructure = lineStructure;
+        this.endianness = endianness;
+        this.version = version;
+        this.length = length;
+        this.numberOfLines = numberOfLines;
+        this.layout = layout;
+        this.linesPerGroup = linesPerGroup;
+        this.codec = codec;
+        this.indexPosition = indexPosition;
+    }
+
+    /**
+     * Header of a new row layout file in the current version
+     */
+    static FileHeader create(DataLineStructure lineStructure, ByteOrder endianness) {
+        return new FileHeader(lineStructure, endianness, VERSION, getLength(lineStructure, FIXED_LENGTH), 0);
+    }
+
+    /**
+     * Header of a new columnar file
+     *
+     * @param lineStructure
+     * @param endianness
+     * @param linesPerGroup lines of each row group
+     * @return
+     */
+    static FileHeader createColumnar(DataLineStructure lineStructure, ByteOrder endianness, int linesPerGroup) {
+        if (linesPerGroup <= 0) {
+            throw new IllegalArgumentException("Invalid lines per group");
+        }
+        return new FileHeader(lineStructure, endianness, LAYOUT_VERSION,
+                getLength(lineStructure, LAYOUT_FIXED_LENGTH), 0, COLUMNAR_LAYOUT, linesPerGroup, (byte) 0, 0);
+    }
+
+    /**
+     * Header of a new compressed file, its block index starts right after it
+     *
+     * @param lineStructure
+     * @param endianness
+     * @param linesPerBlock lines of each compressed block
+     * @param codec         see CompressionCodec
+     * @return
+     */
+    static FileHeader createCompressed(DataLineStructure lineStructure, ByteOrder endianness, int linesPerBlock,
+            byte codec) {
+        if (linesPerBlock <= 0) {
+            throw new IllegalArgumentException("Invalid lines per block");
+        }
+        if (!CompressionCodec.isValid(codec)) {
+            throw new IllegalArgumentException("Invalid codec " + codec);
+        }
+        int length = getLength(lineStructure, LAYOUT_FIXED_LENGTH);
+        return new FileHeader(lineStructure, endianness, LAYOUT_VERSION, length, 0, COMPRESSED_LAYOUT,
+                linesPerBlock, codec, length);
+    }
+
+    /**
+     * Reads the header with a single read unless it is longer than READ_CHUNK_SIZE
+     *
+     * @param fileChannel
+     * @param fileSize
+     * @param legacyEndianness byte order of legacy files that do not record it
+     * @return
+     * @throws IOException
+     */
+    static FileHeader read(FileChannel fileChannel, long fileSize, ByteOrder legacyEndianness) throws IOException {
+        ByteBuffer chunk = read(fileChannel, (int) Math.min(fileSize, READ_CHUNK_SIZE));
+        if (chunk.limit() < 4 || chunk.getInt(0) != MAGIC) {
+            return readLegacy(fileChannel, fileSize, chunk, legacyEndianness);
+        }
+        if (chunk.limit() < FIXED_LENGTH) {
+            throw new InvalidFormatException("Truncated header");
+        }
+        int length = chunk.getInt(8);
+        if (length < getFixedLength(chunk.get(4)) || length % 8 != 0 || length > fileSize) {
+            throw new InvalidFormatException("Invalid header length");
+        }
+        ByteBuffer header = length <= chunk.limit() ? chunk : read(fileChannel, length);
+        header.limit(length);
+        return parse(header);
+    }
+
+    /**
+     * @param numberOfLines number of lines in the file
+     * @return encoded header, positioned at its end so it has to be flipped before being written
+     */
+    ByteBuffer encode(long numberOfLines) {
+        return encode(numberOfLines, indexPosition);
+    }
+
+    /**
+     * @param numberOfLines number of lines in the file
+     * @param indexPosition position of the block index of compressed files
+     * @return encoded header, positioned at its end so it has to be flipped before being written
+     */
+    ByteBuffer encode(long numberOfLines, long indexPosition) {
+        if (version != VERSION && version != LAYOUT_VERSION) {
+            throw new IllegalStateException();
+        }
+        ByteBuffer header = ByteBuffer.allocate(length);
+        header.putInt(MAGIC);
+        header.put((byte) version);
+        header.put(getEndiannessMarker(endianness));
+        header.put(lineStructure.hasElementNames() ? FLAG_ELEMENT_NAMES : 0);
+        header.put((byte) 0);
+        header.putInt(length);
+        header.putInt(lineStructure.getNumberOfElements());
+        header.putLong(numberOfLines);
+        header.putInt(0);
+        header.putInt(0);
+        if (version == LAYOUT_VERSION) {
+            header.put((byte) layout);
+            header.put(codec);
+            header.putShort((short) 0);
+            header.putInt(linesPerGroup);
+            header.putLong(indexPosition);
+        }
+        for (int i = 0; i < lineStructure.getNumberOfElements(); i++) {
+            header.put(encodeElement(lineStructure, i));
+        }
+        if (lineStructure.hasElementNames()) {
+            for (int i = 0; i < lineStructure.getNumberOfElements(); i++) {
+                byte[] name = getNameBytes(lineStructure.getElementName(i));
+                header.putShort((short) name.length);
+                header.put(name);
+            }
+        }
+        header.putInt(CHECKSUM_OFFSET, getChecksum(header.array(), length));
+        header.position(length);
+        return header;
+    }
+
+    DataLineStructure getLineStructure() {
+        return lineStructure;
+    }
+
+    ByteOrder getEndianness() {
+        return endianness;
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return length in bytes, the data region starts right after it
+     */
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * @return number of lines when the header was last updated, -1 for legacy files that do not record it
+     */
+    long getNumberOfLines() {
+        return numberOfLines;
+    }
+
+    /**
+     * @return ROW_LAYOUT, COLUMNAR_LAYOUT or COMPRESSED_LAYOUT
+     */
+    int getLayout() {
+        return layout;
+    }
+
+    /**
+     * @throws InvalidFormatException if the file does not use the row layout
+     */
+    void validateRowLayout() {
+        if (layout != ROW_LAYOUT) {
+            throw new InvalidFormatException("Not a row layout file");
+        }
+    }
+
+    /**
+     * @return lines of each row group of a columnar file or of each block of a compressed file, 0 for the row layout
+     */
+    int getLinesPerGroup() {
+        return linesPerGroup;
+    }
+
+    /**
+     * @return codec of a compressed file, see CompressionCodec
+     */
+    byte getCodec() {
+        return codec;
+    }
+
+    /**
+     * @return position of the block index of a compressed file when the header was last updated
+     */
+    long getIndexPosition() {
+        return indexPosition;
+    }
+
+    /**
+     * @return type and flags of the element in one byte, as stored in the header
+     */
+    static byte encodeElement(DataLineStructure lineStructure, int index) {
+        byte flags = lineStructure.isElementSorted(index) ? ELEMENT_FLAG_SORTED : 0;
+        return (byte) (lineStructure.getElementType(index) | flags);
+    }
+
+    /**
+     * Sets the type and flags of an element from a byte made by encodeElement()
+     */
+    static void decodeElement(DataLineStructure lineStructure, int index, byte element) {
+        lineStructure.setElementType(index, getValidType((byte) (element & 0x0F)));
+        lineStructure.setElementSorted(index, (element & ELEMENT_FLAG_SORTED) != 0);
+    }
+
+    private static FileHeader parse(ByteBuffer header) {
+        int version = header.get(4);
+        int fixedLength = getFixedLength(version);
+        int length = header.limit();
+        byte[] bytes = new byte[length];
+        header.get(bytes, 0, length);
+        int checksum = header.getInt(CHECKSUM_OFFSET);
+        for (int i = CHECKSUM_OFFSET; i < CHECKSUM_OFFSET + 4; i++) {
+            bytes[i] = 0;
+        }
+        if (getChecksum(bytes, length) != checksum) {
+            throw new InvalidFormatException("Header checksum mismatch");
+        }
+        ByteOrder endianness = getEndianness(header.get(5));
+        if (endianness == null) {
+            throw new InvalidFormatException("Invalid byte order");
+        }
+        int numberOfElements = header.getInt(12);
+        if (numberOfElements < 0 || numberOfElements > length - fixedLength) {
+            throw new InvalidFormatException("Invalid number of elements");
+        }
+        DataLineStructure lineStructure = new DataLineStructure(numberOfElements);
+        int layout = ROW_LAYOUT;
+        int linesPerGroup = 0;
+        byte codec = 0;
+        long indexPosition = 0;
+        if (version == LAYOUT_VERSION) {
+            layout = header.get(LAYOUT_OFFSET);
+            linesPerGroup = header.getInt(LINES_PER_GROUP_OFFSET);
+            if (layout != COLUMNAR_LAYOUT && layout != COMPRESSED_LAYOUT) {
+                throw new InvalidFormatException("Unsupported layout " + layout);
+            }
+            if (linesPerGroup <= 0) {
+                throw new InvalidFormatException("Invalid lines per group");
+            }
+            if (layout == COMPRESSED_LAYOUT) {
+                codec = header.get(CODEC_OFFSET);
+                indexPosition = header.getLong(INDEX_POSITION_OFFSET);
+                if (!CompressionCodec.isValid(codec)) {
+                    throw new InvalidFormatException("Unsupported codec " + codec);
+                }
+                if (indexPosition < length) {
+                    throw new InvalidFormatException("Invalid block index position");
+                }
+            }
+        }
+        header.position(fixedLength);
+        for (int i = 0; i < numberOfElements; i++) {
+            decodeElement(lineStructure, i, header.get());
+        }
+        if ((header.get(6) & FLAG_ELEMENT_NAMES) != 0) {
+            for (int i = 0; i < numberOfElements; i++) {
+                if (header.remaining() < 2 || header.remaining() < 2 + (header.getShort(header.position()) & 0xFFFF)) {
+                    throw new InvalidFormatException("Truncated element names");
+                }
+                byte[] name = new byte[header.getShort() & 0xFFFF];
+                header.get(name);
+                lineStructure.setElementName(i, new String(name, StandardCharsets.UTF_8));
+            }
+        }
+        return new FileHeader(lineStructure, endianness, version, length, header.getLong(NUMBER_OF_LINES_OFFSET),
+                layout, linesPerGroup, codec, indexPosition);
+    }
+
+    /**
+     * Looks for the end marker in chunks of growing size
+     */
+    private static FileHeader readLegacy(FileChannel fileChannel, long fileSize, ByteBuffer firstChunk,
+            ByteOrder legacyEndianness) throws IOException {
+        ByteBuffer chunk = firstChunk;
+        int end = 0;
+        while (true) {
+            while (end < chunk.limit() && isValidType(chunk.get(end))) {
+                end++;
+            }
+            if (end < chunk.limit()) {
+                break;
+            }
+            if (chunk.limit() >= fileSize) {
+                throw new InvalidFormatException("Header end not found");
+            }
+            chunk = read(fileChannel, (int) Math.min(fileSize, Math.min(2L * chunk.limit(), Integer.MAX_VALUE)));
+        }
+        if (chunk.get(end) != LEGACY_HEADER_END) {
+            throw new InvalidFormatException("Invalid header end");
+        }
+        DataLineStructure lineStructure = new DataLineStructure(end);
+        for (int i = 0; i < end; i++) {
+            lineStructure.setElementType(i, chunk.get(i));
+        }
+        return new FileHeader(lineStructure, legacyEndianness, LEGACY_VERSION, end + 1, -1);
+    }
+
+    private static ByteBuffer read(FileChannel fileChannel, int bytesToRead) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bytesToRead);
+        while (buffer.hasRemaining()) {
+            if (fileChannel.read(buffer, buffer.position()) < 0) {
+                throw new IOException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @return length of the fixed part of the header
+     * @throws InvalidFormatException if the version is not supported
+     */
+    private static int getFixedLength(int version) {
+        switch (version) {
+            case VERSION:
+                return FIXED_LENGTH;
+            case LAYOUT_VERSION:
+                return LAYOUT_FIXED_LENGTH;
+            default:
+                throw new InvalidFormatException("Unsupported version " + version);
+        }
+    }
+
+    /**
+     * @return length of a header of the structure, padded to a multiple of 8
+     */
+    private static int getLength(DataLineStructure lineStructure, int fixedLength) {
+        int length = fixedLength + lineStructure.getNumberOfElements();
+        if (lineStructure.hasElementNames()) {
+            for (int i = 0; i < lineStructure.getNumberOfElements(); i++) {
+                length += 2 + getNameBytes(lineStructure.getElementName(i)).length;
+            }
+        }
+        return (length + 7) & ~7;
+    }
+
+    private static int getChecksum(byte[] header, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(header, 0, length);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] getNameBytes(String name) {
+        byte[] bytes = (name == null ? "" : name).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Element name too long");
+        }
+        return bytes;
+    }
+
+    private static boolean isValidType(byte type) {
+        return type >= PrimitiveType.BYTE && type <= PrimitiveType.DOUBLE;
+    }
+
+    private static byte getValidType(byte type) {
+        if (!isValidType(type)) {
+            throw new InvalidFormatException("Invalid element type " + type);
+        }
+        return type;
+    }
+
+    private static byte getEndiannessMarker(ByteOrder endianness) {
+        return endianness == ByteOrder.LITTLE_ENDIAN ? LITTLE_ENDIAN_MARKER : BIG_ENDIAN_MARKER;
+    }
+
+    /**
+     * @return null if the marker is not valid
+     */
+    private static ByteOrder getEndianness(byte marker) {
+        switch (marker) {
+            case BIG_ENDIAN_MARKER:
+                return ByteOrder.BIG_ENDIAN;
+            case LITTLE_ENDIAN_MARKER:
+                return ByteOrder.LITTLE_ENDIAN;
+            default:
+                return null;
+        }
+    }
+}
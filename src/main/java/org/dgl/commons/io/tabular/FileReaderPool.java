@@ -0,0 +1,141 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Readers of the files of a catalog, opened on demand and kept in least recently used order. When more than
+ * maxOpenFiles are open the least recently used readers that are not acquired are closed, they are opened again
+ * the next time they are needed. Acquired readers are never closed, so the limit can be exceeded while more than
+ * maxOpenFiles readers are acquired at once
+ */
+class FileReaderPool {
+
+    private final TabularFileCatalog catalog;
+    private final int maxOpenFiles;
+    private final BlockCache blockCache;
+    private final LinkedHashMap<Integer, Handle> openReaders = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private boolean closed = false;
+
+    /**
+     * @param catalog
+     * @param maxOpenFiles
+     * @param blockCache   used by every reader, null for no cache
+     */
+    FileReaderPool(TabularFileCatalog catalog, int maxOpenFiles, BlockCache blockCache) {
+        if (maxOpenFiles <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.catalog = catalog;
+        this.maxOpenFiles = maxOpenFiles;
+        this.blockCache = blockCache;
+    }
+
+    /**
+     * Reader must be released once the request is done
+     *
+     * @param fileIndex
+     * @return
+     * @throws IOException           if the pool is closed or the file can not be opened
+     * @throws IllegalStateException if the file no longer matches the catalog
+     */
+    synchronized TabularFileReader acquire(int fileIndex) throws IOException {
+        if (closed) {
+            throw new IOException("Reader closed");
+        }
+        Handle handle = openReaders.get(fileIndex);
+        if (handle == null) {
+            misses++;
+            handle = new Handle(open(fileIndex));
+            handle.users++;
+            openReaders.put(fileIndex, handle);
+            evictIdleReaders();
+        } else {
+            hits++;
+            handle.users++;
+        }
+        return handle.reader;
+    }
+
+    synchronized void release(int fileIndex) {
+        Handle handle = openReaders.get(fileIndex);
+        if (handle != null) {
+            handle.users--;
+        }
+        evictIdleReaders();
+    }
+
+    synchronized void close() throws IOException {
+        closed = true;
+        IOException exception = null;
+        for (Handle handle : openReaders.values()) {
+            try {
+                handle.reader.close();
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+        openReaders.clear();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    int getMaxOpenFiles() {
+        return maxOpenFiles;
+    }
+
+    synchronized int getNumberOfOpenFiles() {
+        return openReaders.size();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private TabularFileReader open(int fileIndex) throws IOException {
+        TabularFileCatalog.Entry entry = catalog.getEntry(fileIndex);
+        TabularFileReader reader = new TabularFileReader(entry.getPath(), blockCache);
+        if (reader.getNumberOfLines() < entry.getNumberOfLines()
+                || !reader.getLineStructure().equals(entry.getLineStructure())) {
+            reader.closeQuietly();
+            throw new IllegalStateException("File changed since it was cataloged: " + entry.getPath());
+        }
+        return reader;
+    }
+
+    private void evictIdleReaders() {
+        Iterator<Map.Entry<Integer, Handle>> iterator = openReaders.entrySet().iterator();
+        while (openReaders.size() > maxOpenFiles && iterator.hasNext()) {
+            Handle handle = iterator.next().getValue();
+            if (handle.users == 0) {
+                iterator.remove();
+                handle.reader.closeQuietly();
+                evictions++;
+            }
+        }
+    }
+
+    private static class Handle {
+
+        private final TabularFileReader reader;
+        private int users = 0;
+
+        private Handle(TabularFileReader reader) {
+            this.reader = reader;
+        }
+    }
+}
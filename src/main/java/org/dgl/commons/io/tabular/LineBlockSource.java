@@ -0,0 +1,26 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Provider of consecutive encoded lines for cursors
+ */
+interface LineBlockSource {
+
+    /**
+     * Must not use buffers shared with other callers, so several cursors can read at once
+     *
+     * @param firstIndex
+     * @param maxLines
+     * @param buffer     cursor buffer, null if the source does not need one
+     * @return buffer holding between 1 and maxLines lines, positioned at the first one
+     * @throws IOException
+     */
+    ByteBuffer readBlock(long firstIndex, int maxLines, ByteBuffer buffer) throws IOException;
+
+    /**
+     * Called when the cursor is closed
+     */
+    default void close() {}
+}
@@ -0,0 +1,111 @@
+package org.dgl.commons.io.tabular;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Subset of the elements of a line structure. Element i of a projected line is element getElementIndexes()[i] of
+ * the full line, and only the bytes of those elements are decoded. Names and sorted flags are kept
+ */
+public final class LineProjection {
+
+    private final DataLineStructure sourceLineStructure;
+    private final DataLineStructure lineStructure;
+    private final int[] elementIndexes;
+    private final byte[] elementsType;
+    private final int[] sourceOffsets;
+
+    /**
+     * @param sourceLineStructure structure of the full lines
+     * @param elementIndexes      elements of the full lines to keep, in the order of the projected lines
+     */
+    public LineProjection(DataLineStructure sourceLineStructure, int... elementIndexes) {
+        this.sourceLineStructure = sourceLineStructure;
+        this.elementIndexes = elementIndexes.clone();
+        DataLineLayout sourceLayout = sourceLineStructure.getLayout();
+        lineStructure = new DataLineStructure(elementIndexes.length);
+        elementsType = new byte[elementIndexes.length];
+        sourceOffsets = new int[elementIndexes.length];
+        for (int i = 0; i < elementIndexes.length; i++) {
+            int sourceIndex = elementIndexes[i];
+            if (sourceIndex < 0 || sourceIndex >= sourceLayout.getNumberOfElements()) {
+                throw new IndexOutOfBoundsException();
+            }
+            elementsType[i] = sourceLayout.getElementType(sourceIndex);
+            sourceOffsets[i] = sourceLayout.getElementOffset(sourceIndex);
+            lineStructure.setElementType(i, elementsType[i]);
+            lineStructure.setElementSorted(i, sourceLineStructure.isElementSorted(sourceIndex));
+            if (sourceLineStructure.getElementName(sourceIndex) != null) {
+                lineStructure.setElementName(i, sourceLineStructure.getElementName(sourceIndex));
+            }
+        }
+    }
+
+    /**
+     * @return structure of the projected lines
+     */
+    public DataLineStructure getLineStructure() {
+        return lineStructure;
+    }
+
+    /**
+     * @return structure of the full lines
+     */
+    public DataLineStructure getSourceLineStructure() {
+        return sourceLineStructure;
+    }
+
+    public int[] getElementIndexes() {
+        return elementIndexes.clone();
+    }
+
+    public int getNumberOfElements() {
+        return elementIndexes.length;
+    }
+
+    /**
+     * @throws InvalidDataLineStructureException if lines of the structure can not be projected
+     */
+    void validate(DataLineStructure fullLineStructure) {
+        if (fullLineStructure != sourceLineStructure && !fullLineStructure.equals(sourceLineStructure)) {
+            throw new InvalidDataLineStructureException();
+        }
+    }
+
+    /**
+     * @param lines        encoded full lines
+     * @param linePosition position of the line in lines
+     * @return projected line
+     */
+    DataLine decode(ByteBuffer lines, int linePosition) {
+        DataLine dataLine = new DataLine(lineStructure);
+        for (int i = 0; i < elementsType.length; i++) {
+            int position = linePosition + sourceOffsets[i];
+            switch (elementsType[i]) {
+                case PrimitiveType.BYTE:
+                    dataLine.setByte(i, lines.get(position));
+                    break;
+                case PrimitiveType.CHAR:
+                    dataLine.setChar(i, lines.getChar(position));
+                    break;
+                case PrimitiveType.SHORT:
+                    dataLine.setShort(i, lines.getShort(position));
+                    break;
+                case PrimitiveType.INT:
+                    dataLine.setInt(i, lines.getInt(position));
+                    break;
+                case PrimitiveType.LONG:
+                    dataLine.setLong(i, lines.getLong(position));
+                    break;
+                case PrimitiveType.FLOAT:
+                    dataLine.setFloat(i, lines.getFloat(position));
+                    break;
+                case PrimitiveType.DOUBLE:
+                    dataLine.setDouble(i, lines.getDouble(position));
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+        return dataLine;
+    }
+}
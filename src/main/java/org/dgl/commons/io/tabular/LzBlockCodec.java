@@ -0,0 +1,199 @@
+package org.dgl.commons.io.tabular;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * LZ77 codec. The values of each element are first grouped by byte, so the bytes that rarely change across lines
+ * (high bytes of numbers, repeated values) end up next to each other. The result is a sequence of
+ * <pre>
+ * literal length, literals, match length, match offset
+ * </pre>
+ * as unsigned varints, ended by a match length of 0. Matches are at least 4 bytes long and may overlap
+ */
+final class LzBlockCodec implements BlockCodec {
+
+    private static final int MIN_MATCH = 4;
+    private static final int HASH_BITS = 14;
+
+    private final byte[] elementsType;
+    private final int[] elementsOffset;
+    private final int bytesPerLine;
+    private final int[] hashTable = new int[1 << HASH_BITS];
+    private byte[] shuffled = new byte[0];
+    private byte[] output = new byte[0];
+    private int outputLength;
+    private byte[] input;
+    private int inputPosition;
+    private int inputEnd;
+
+    LzBlockCodec(DataLineStructure lineStructure) {
+        DataLineLayout layout = lineStructure.getLayout();
+        elementsType = layout.elementsType;
+        elementsOffset = layout.elementsOffset;
+        bytesPerLine = layout.getSizeInBytes();
+    }
+
+    @Override
+    public ByteBuffer encode(ByteBuffer lines, int numberOfLines) {
+        int size = numberOfLines * bytesPerLine;
+        shuffle(lines, numberOfLines);
+        outputLength = 0;
+        ensureOutputCapacity(size / 64 + 16);
+        Arrays.fill(hashTable, -1);
+        int anchor = 0;
+        int position = 0;
+        while (position <= size - MIN_MATCH) {
+            int sequence = getInt(shuffled, position);
+            int hash = (sequence * 0x9E3779B1) >>> (Integer.SIZE - HASH_BITS);
+            int candidate = hashTable[hash];
+            hashTable[hash] = position;
+            if (candidate >= 0 && getInt(shuffled, candidate) == sequence) {
+                int length = MIN_MATCH;
+                while (position + length < size && shuffled[candidate + length] == shuffled[position + length]) {
+                    length++;
+                }
+                writeLiterals(anchor, position - anchor);
+                writeVarint(length);
+                writeVarint(position - candidate);
+                position += length;
+                anchor = position;
+            } else {
+                position += 1 + ((position - anchor) >>> 6);
+            }
+        }
+        writeLiterals(anchor, size - anchor);
+        writeVarint(0);
+        return ByteBuffer.wrap(output, 0, outputLength);
+    }
+
+    @Override
+    public void decode(ByteBuffer block, int numberOfLines, ByteBuffer lines) {
+        int size = numberOfLines * bytesPerLine;
+        if (shuffled.length < size) {
+            shuffled = new byte[size];
+        }
+        input = block.array();
+        inputPosition = block.arrayOffset() + block.position();
+        inputEnd = block.arrayOffset() + block.limit();
+        int position = 0;
+        while (true) {
+            int literals = readVarint();
+            if (literals > size - position || literals > inputEnd - inputPosition) {
+                throw new InvalidFormatException("Corrupt block");
+            }
+            System.arraycopy(input, inputPosition, shuffled, position, literals);
+            inputPosition += literals;
+            position += literals;
+            int length = readVarint();
+            if (length == 0) {
+                break;
+            }
+            int offset = readVarint();
+            if (offset <= 0 || offset > position || length > size - position) {
+                throw new InvalidFormatException("Corrupt block");
+            }
+            if (offset >= length) {
+                System.arraycopy(shuffled, position - offset, shuffled, position, length);
+                position += length;
+            } else {
+                for (int i = 0; i < length; i++) {
+                    shuffled[position] = shuffled[position - offset];
+                    position++;
+                }
+            }
+        }
+        input = null;
+        if (position != size) {
+            throw new InvalidFormatException("Corrupt block");
+        }
+        unshuffle(numberOfLines, lines);
+    }
+
+    /**
+     * Byte b of the value of element e in line i goes to numberOfLines * (offset of e + b) + i
+     */
+    private void shuffle(ByteBuffer lines, int numberOfLines) {
+        int size = numberOfLines * bytesPerLine;
+        if (shuffled.length < size) {
+            shuffled = new byte[size];
+        }
+        byte[] linesArray = lines.array();
+        for (int i = 0; i < elementsType.length; i++) {
+            int elementSize = PrimitiveType.getSizeInBytesForType(elementsType[i]);
+            for (int j = 0; j < elementSize; j++) {
+                int target = numberOfLines * (elementsOffset[i] + j);
+                int source = lines.arrayOffset() + elementsOffset[i] + j;
+                for (int k = 0; k < numberOfLines; k++) {
+                    shuffled[target++] = linesArray[source];
+                    source += bytesPerLine;
+                }
+            }
+        }
+    }
+
+    private void unshuffle(int numberOfLines, ByteBuffer lines) {
+        byte[] linesArray = lines.array();
+        for (int i = 0; i < elementsType.length; i++) {
+            int elementSize = PrimitiveType.getSizeInBytesForType(elementsType[i]);
+            for (int j = 0; j < elementSize; j++) {
+                int source = numberOfLines * (elementsOffset[i] + j);
+                int target = lines.arrayOffset() + elementsOffset[i] + j;
+                for (int k = 0; k < numberOfLines; k++) {
+                    linesArray[target] = shuffled[source++];
+                    target += bytesPerLine;
+                }
+            }
+        }
+    }
+
+    private void writeLiterals(int position, int length) {
+        ensureOutputCapacity(length + 16);
+        writeVarint(length);
+        System.arraycopy(shuffled, position, output, outputLength, length);
+        outputLength += length;
+    }
+
+    /**
+     * Room for the bytes plus a few varints
+     */
+    private void ensureOutputCapacity(int bytes) {
+        int required = outputLength + bytes + 16;
+        if (output.length < required) {
+            output = Arrays.copyOf(output, Math.max(required, output.length + (output.length >> 1)));
+        }
+    }
+
+    private void writeVarint(int value) {
+        ensureOutputCapacity(5);
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            output[outputLength++] = (byte) ((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        output[outputLength++] = (byte) remaining;
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            if (inputPosition >= inputEnd) {
+                throw new InvalidFormatException("Corrupt block");
+            }
+            byte b = input[inputPosition++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0) {
+                    throw new InvalidFormatException("Corrupt block");
+                }
+                return value;
+            }
+        }
+        throw new InvalidFormatException("Corrupt block");
+    }
+
+    private static int getInt(byte[] bytes, int position) {
+        return (bytes[position] & 0xFF) | (bytes[position + 1] & 0xFF) << 8 | (bytes[position + 2] & 0xFF) << 16
+                | (bytes[position + 3] & 0xFF) << 24;
+    }
+}
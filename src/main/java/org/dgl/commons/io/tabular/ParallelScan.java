@@ -0,0 +1,129 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Scan of several files split in file and block aligned ranges, every range is read by a fork/join worker with
+ * its own cursor. Each worker accumulates into its own container, containers are merged with the combiner
+ */
+class ParallelScan<A> {
+
+    private static final int SPLITS_PER_THREAD = 4;
+
+    private final List<Split> splits = new ArrayList<>();
+    private final Supplier<A> supplier;
+    private final BiConsumer<A, DataLineCursor> accumulator;
+    private final BinaryOperator<A> combiner;
+
+    private final FileCursorFactory cursorFactory;
+
+    /**
+     * @param numberOfLines  number of lines of each file to scan, all lines of every file are included
+     * @param lineStructures structure of each file
+     * @param cursorFactory  opens a cursor over a range of lines of one file
+     * @param supplier       creates an empty container for each range
+     * @param accumulator    called once per line with the cursor positioned on it
+     * @param combiner       merges two containers, ranges are combined in order
+     * @param parallelism    number of threads the lines are divided for
+     */
+    ParallelScan(long[] numberOfLines, DataLineStructure[] lineStructures, FileCursorFactory cursorFactory,
+            Supplier<A> supplier, BiConsumer<A, DataLineCursor> accumulator, BinaryOperator<A> combiner,
+            int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.cursorFactory = cursorFactory;
+        this.supplier = supplier;
+        this.accumulator = accumulator;
+        this.combiner = combiner;
+        long totalLines = 0;
+        for (long fileLines : numberOfLines) {
+            totalLines += fileLines;
+        }
+        long targetLinesPerSplit = Math.max(1, totalLines / ((long) parallelism * SPLITS_PER_THREAD));
+        for (int i = 0; i < numberOfLines.length; i++) {
+            long linesPerBlock = DataLineCursor.getLinesPerBlock(lineStructures[i].getSizeInBytes());
+            long linesPerSplit = ((targetLinesPerSplit + linesPerBlock - 1) / linesPerBlock) * linesPerBlock;
+            for (long first = 0; first < numberOfLines[i]; first += linesPerSplit) {
+                splits.add(new Split(i, first, Math.min(first + linesPerSplit, numberOfLines[i])));
+            }
+        }
+    }
+
+    A invoke(ForkJoinPool pool) throws IOException {
+        if (splits.isEmpty()) {
+            return supplier.get();
+        }
+        try {
+            return pool.invoke(new ScanTask(0, splits.size()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private A scan(Split split) throws IOException {
+        A container = supplier.get();
+        DataLineCursor cursor = cursorFactory.cursor(split.fileIndex, split.firstIndex, split.lastIndex);
+        while (cursor.next()) {
+            accumulator.accept(container, cursor);
+        }
+        return container;
+    }
+
+    /**
+     * Opens a cursor over a range of lines of one file
+     */
+    interface FileCursorFactory {
+
+        DataLineCursor cursor(int fileIndex, long firstIndex, long lastIndex) throws IOException;
+    }
+
+    private static class Split {
+
+        private final int fileIndex;
+        private final long firstIndex;
+        private final long lastIndex;
+
+        private Split(int fileIndex, long firstIndex, long lastIndex) {
+            this.fileIndex = fileIndex;
+            this.firstIndex = firstIndex;
+            this.lastIndex = lastIndex;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class ScanTask extends RecursiveTask<A> {
+
+        private final int firstSplit;
+        private final int lastSplit;
+
+        private ScanTask(int firstSplit, int lastSplit) {
+            this.firstSplit = firstSplit;
+            this.lastSplit = lastSplit;
+        }
+
+        @Override
+        protected A compute() {
+            if (lastSplit - firstSplit == 1) {
+                try {
+                    return scan(splits.get(firstSplit));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            int middleSplit = (firstSplit + lastSplit) >>> 1;
+            ScanTask secondHalf = new ScanTask(middleSplit, lastSplit);
+            secondHalf.fork();
+            A firstResult = new ScanTask(firstSplit, middleSplit).compute();
+            return combiner.apply(firstResult, secondHalf.join());
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.dgl.commons.io.Definitions.DEFAULT_BLOCK_SIZE;
+import static org.dgl.commons.io.Definitions.MAX_BUFFER_SIZE;
+
+/**
+ * Reads the blocks of a range of lines ahead of a cursor on a dedicated thread. Blocks are read into a ring of
+ * direct buffers: the cursor keeps the block it is reading until it asks for the next one, while the thread fills
+ * the others, so reading overlaps decoding. Blocks must be requested in order.
+ * The thread is not interrupted on close, interrupting a read would close the channel of the reader
+ */
+class PrefetchingBlockSource implements LineBlockSource {
+
+    static final int DEFAULT_PREFETCH_BLOCK_SIZE = 16 * DEFAULT_BLOCK_SIZE;
+    static final int DEFAULT_PREFETCH_DEPTH = 2;
+
+    private static final Block END = new Block(null);
+
+    private final LineBlockSource source;
+    private final int bytesPerLine;
+    private final int linesPerBlock;
+    private final long lastIndex;
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private final BlockingQueue<Block> readBlocks = new LinkedBlockingQueue<>();
+    private final Thread ioThread;
+    private Block currentBlock = null;
+    private long nextIndex;
+    private volatile boolean closed = false;
+    private volatile IOException failure = null;
+
+    /**
+     * @param source        must be safe to call from another thread
+     * @param name          name of the thread
+     * @param bytesPerLine
+     * @param blockSize     size of each block, rounded down to whole lines (at least one)
+     * @param prefetchDepth number of blocks read ahead of the one the cursor is reading
+     * @param firstIndex    inclusive
+     * @param lastIndex     exclusive
+     */
+    PrefetchingBlockSource(LineBlockSource source, String name, int bytesPerLine, int blockSize, int prefetchDepth,
+            long firstIndex, long lastIndex) {
+        if (blockSize <= 0 || prefetchDepth <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.source = source;
+        this.bytesPerLine = bytesPerLine;
+        this.lastIndex = lastIndex;
+        linesPerBlock = getLinesPerBlock(bytesPerLine, blockSize);
+        nextIndex = firstIndex;
+        freeBuffers = new ArrayBlockingQueue<>(prefetchDepth + 1);
+        long rangeBlocks = (lastIndex - firstIndex + linesPerBlock - 1) / linesPerBlock;
+        for (int i = 0; i < Math.min(prefetchDepth + 1, Math.max(1, rangeBlocks)); i++) {
+            freeBuffers.add(ByteBuffer.allocateDirect(linesPerBlock * bytesPerLine));
+        }
+        ioThread = new Thread(() -> prefetch(firstIndex), name);
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    /**
+     * @param bytesPerLine
+     * @param blockSize
+     * @return number of lines of each block
+     */
+    static int getLinesPerBlock(int bytesPerLine, int blockSize) {
+        return Math.max(1, Math.min(blockSize, MAX_BUFFER_SIZE) / Math.max(1, bytesPerLine));
+    }
+
+    /**
+     * Hands the previous block back to the thread and waits for the next one
+     *
+     * @param firstIndex must be the line after the last line of the previous block
+     * @param maxLines   ignored, blocks are already read
+     * @param buffer     ignored, blocks are read into the buffers of this source
+     * @return
+     * @throws IOException if the read failed on the thread or the source is closed
+     */
+    @Override
+    public ByteBuffer readBlock(long firstIndex, int maxLines, ByteBuffer buffer) throws IOException {
+        if (closed) {
+            throw new IOException("Cursor closed");
+        }
+        if (firstIndex != nextIndex) {
+            throw new IllegalStateException("Blocks must be read in order");
+        }
+        releaseCurrentBlock();
+        Block block;
+        try {
+            block = readBlocks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (block == END) {
+            readBlocks.add(END);
+            throw failure != null ? new IOException(failure) : new IOException("Cursor closed");
+        }
+        currentBlock = block;
+        nextIndex += block.data.remaining() / bytesPerLine;
+        return block.data;
+    }
+
+    /**
+     * Stops reading ahead, the thread ends once its current read is done
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        releaseCurrentBlock();
+        Block block;
+        while ((block = readBlocks.poll()) != null) {
+            if (block != END) {
+                freeBuffers.add(block.buffer);
+            }
+        }
+    }
+
+    private void releaseCurrentBlock() {
+        if (currentBlock != null) {
+            freeBuffers.add(currentBlock.buffer);
+            currentBlock = null;
+        }
+    }
+
+    private void prefetch(long firstIndex) {
+        long lineIndex = firstIndex;
+        try {
+            while (lineIndex < lastIndex) {
+                ByteBuffer buffer = freeBuffers.take();
+                if (closed) {
+                    break;
+                }
+                buffer.clear();
+                Block block = new Block(buffer);
+                block.data = source.readBlock(lineIndex, (int) Math.min(linesPerBlock, lastIndex - lineIndex),
+                        buffer);
+                lineIndex += block.data.remaining() / bytesPerLine;
+                readBlocks.add(block);
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException();
+        } finally {
+            readBlocks.add(END);
+        }
+    }
+
+    /**
+     * Buffer owned by the source and the lines read into it, which might be a slice of it
+     */
+    private static class Block {
+
+        private final ByteBuffer buffer;
+        private ByteBuffer data;
+
+        private Block(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
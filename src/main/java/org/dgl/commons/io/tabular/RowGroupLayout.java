@@ -0,0 +1,167 @@
+package org.dgl.commons.io.tabular;
+
+import java.nio.ByteBuffer;
+
+import static org.dgl.commons.io.Definitions.DEFAULT_BLOCK_SIZE;
+import static org.dgl.commons.io.Definitions.MAX_BUFFER_SIZE;
+
+/**
+ * Position of the values of a columnar file. Lines are stored in row groups of a fixed number of lines, each one
+ * holding the values of every element contiguously, element after element. Every group is full except maybe the
+ * last one, whose columns are as long as its number of lines
+ */
+final class RowGroupLayout {
+
+    static final int DEFAULT_GROUP_SIZE = 16 * DEFAULT_BLOCK_SIZE;
+
+    private final int linesPerGroup;
+    private final int bytesPerLine;
+    private final int groupSize;
+    private final long dataPosition;
+    private final int[] elementsOffset;
+    private final int[] elementsSize;
+
+    /**
+     * @param lineStructure
+     * @param linesPerGroup
+     * @param dataPosition  position of the first group in the file
+     */
+    RowGroupLayout(DataLineStructure lineStructure, int linesPerGroup, long dataPosition) {
+        this.linesPerGroup = linesPerGroup;
+        this.dataPosition = dataPosition;
+        bytesPerLine = lineStructure.getSizeInBytes();
+        if (bytesPerLine == 0 || (long) linesPerGroup * (long) bytesPerLine > MAX_BUFFER_SIZE) {
+            throw new IllegalStateException();
+        }
+        groupSize = linesPerGroup * bytesPerLine;
+        DataLineLayout layout = lineStructure.getLayout();
+        elementsOffset = layout.elementsOffset;
+        elementsSize = new int[layout.getNumberOfElements()];
+        for (int i = 0; i < elementsSize.length; i++) {
+            elementsSize[i] = PrimitiveType.getSizeInBytesForType(layout.getElementType(i));
+        }
+    }
+
+    /**
+     * @return lines of a group of about DEFAULT_GROUP_SIZE bytes, at least one
+     */
+    static int getDefaultLinesPerGroup(int bytesPerLine) {
+        return Math.max(1, DEFAULT_GROUP_SIZE / bytesPerLine);
+    }
+
+    int getLinesPerGroup() {
+        return linesPerGroup;
+    }
+
+    /**
+     * @return size in bytes of a full group
+     */
+    int getGroupSize() {
+        return groupSize;
+    }
+
+    int getElementSize(int elementIndex) {
+        return elementsSize[elementIndex];
+    }
+
+    /**
+     * @param dataSize bytes after the header
+     * @return
+     * @throws IllegalStateException if the size does not hold whole lines
+     */
+    long getNumberOfLines(long dataSize) {
+        long lastGroupSize = dataSize % groupSize;
+        if (lastGroupSize % bytesPerLine != 0) {
+            throw new IllegalStateException("Invalid file size");
+        }
+        return dataSize / groupSize * linesPerGroup + lastGroupSize / bytesPerLine;
+    }
+
+    long getGroup(long lineIndex) {
+        return lineIndex / linesPerGroup;
+    }
+
+    /**
+     * @return position of the line inside its group
+     */
+    int getLineInGroup(long lineIndex) {
+        return (int) (lineIndex % linesPerGroup);
+    }
+
+    /**
+     * @param group
+     * @param numberOfLines lines of the file
+     * @return
+     */
+    int getLinesInGroup(long group, long numberOfLines) {
+        return (int) Math.min(linesPerGroup, numberOfLines - group * linesPerGroup);
+    }
+
+    long getGroupPosition(long group) {
+        return dataPosition + group * groupSize;
+    }
+
+    /**
+     * @param elementIndex
+     * @param groupLines   lines of the group
+     * @return position of the column of the element inside the group
+     */
+    int getColumnOffset(int elementIndex, int groupLines) {
+        return groupLines * elementsOffset[elementIndex];
+    }
+
+    /**
+     * @param lineIndex
+     * @param elementIndex
+     * @param numberOfLines lines of the file
+     * @return position of the value in the file
+     */
+    long getValuePosition(long lineIndex, int elementIndex, long numberOfLines) {
+        long group = getGroup(lineIndex);
+        return getGroupPosition(group) + getColumnOffset(elementIndex, getLinesInGroup(group, numberOfLines))
+                + (long) getLineInGroup(lineIndex) * elementsSize[elementIndex];
+    }
+
+    /**
+     * Copies lines of a group into row layout, both buffers must have the same byte order
+     *
+     * @param group       encoded group starting at 0
+     * @param groupLines  lines of the group
+     * @param firstLine   first line to copy, inside the group
+     * @param lines       number of lines to copy
+     * @param destination receives the lines at its position, which is moved after them
+     */
+    void copyLines(ByteBuffer group, int groupLines, int firstLine, int lines, ByteBuffer destination) {
+        int linePosition = destination.position();
+        for (int i = 0; i < elementsSize.length; i++) {
+            int size = elementsSize[i];
+            int source = getColumnOffset(i, groupLines) + firstLine * size;
+            int target = linePosition + elementsOffset[i];
+            switch (size) {
+                case 1:
+                    for (int j = 0; j < lines; j++, source++, target += bytesPerLine) {
+                        destination.put(target, group.get(source));
+                    }
+                    break;
+                case 2:
+                    for (int j = 0; j < lines; j++, source += 2, target += bytesPerLine) {
+                        destination.putShort(target, group.getShort(source));
+                    }
+                    break;
+                case 4:
+                    for (int j = 0; j < lines; j++, source += 4, target += bytesPerLine) {
+                        destination.putInt(target, group.getInt(source));
+                    }
+                    break;
+                case 8:
+                    for (int j = 0; j < lines; j++, source += 8, target += bytesPerLine) {
+                        destination.putLong(target, group.getLong(source));
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+        destination.position(linePosition + lines * bytesPerLine);
+    }
+}
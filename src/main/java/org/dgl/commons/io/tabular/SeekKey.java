@@ -0,0 +1,109 @@
+package org.dgl.commons.io.tabular;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Value searched in a sorted element. Integral elements (including chars, as unsigned values) are compared as longs
+ * and floating point elements as doubles, NaN values are never before the key
+ */
+final class SeekKey {
+
+    private final int elementIndex;
+    private final int elementOffset;
+    private final byte type;
+    private final long longKey;
+    private final double doubleKey;
+    private final boolean afterAllValues;
+
+    private SeekKey(DataLineStructure lineStructure, int elementIndex, long longKey, double doubleKey,
+            boolean afterAllValues) {
+        this.elementIndex = elementIndex;
+        this.longKey = longKey;
+        this.doubleKey = doubleKey;
+        this.afterAllValues = afterAllValues;
+        elementOffset = lineStructure.getLayout().getElementOffset(elementIndex);
+        type = lineStructure.getElementType(elementIndex);
+    }
+
+    static SeekKey create(DataLineStructure lineStructure, int elementIndex, long key) {
+        validateSorted(lineStructure, elementIndex);
+        return new SeekKey(lineStructure, elementIndex, key, key, false);
+    }
+
+    /**
+     * For integral elements the key is rounded up, values are integers
+     */
+    static SeekKey create(DataLineStructure lineStructure, int elementIndex, double key) {
+        validateSorted(lineStructure, elementIndex);
+        boolean afterAllValues = Double.isNaN(key)
+                || (!isFloatingPoint(lineStructure.getElementType(elementIndex)) && key > Long.MAX_VALUE);
+        return new SeekKey(lineStructure, elementIndex, (long) Math.ceil(key), key, afterAllValues);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the element is not declared as sorted
+     */
+    static void validateSorted(DataLineStructure lineStructure, int elementIndex) {
+        if (!lineStructure.isElementSorted(elementIndex)) {
+            throw new IllegalArgumentException("Element " + elementIndex + " is not sorted");
+        }
+    }
+
+    int getElementIndex() {
+        return elementIndex;
+    }
+
+    /**
+     * @param lines        encoded lines
+     * @param linePosition position of the line in lines
+     * @return true if the value of the line is lower than the key
+     */
+    boolean isBefore(ByteBuffer lines, int linePosition) {
+        return isBefore(getValue(lines, linePosition));
+    }
+
+    /**
+     * @param value as returned by getValue()
+     * @return true if the value is lower than the key
+     */
+    boolean isBefore(long value) {
+        if (afterAllValues) {
+            return true;
+        }
+        if (isFloatingPoint(type)) {
+            return Double.longBitsToDouble(value) < doubleKey;
+        }
+        return value < longKey;
+    }
+
+    /**
+     * @param lines        encoded lines
+     * @param linePosition position of the line in lines
+     * @return value of the element as a long, the bits of a double for floating point elements
+     */
+    long getValue(ByteBuffer lines, int linePosition) {
+        int position = linePosition + elementOffset;
+        switch (type) {
+            case PrimitiveType.BYTE:
+                return lines.get(position);
+            case PrimitiveType.CHAR:
+                return lines.getChar(position);
+            case PrimitiveType.SHORT:
+                return lines.getShort(position);
+            case PrimitiveType.INT:
+                return lines.getInt(position);
+            case PrimitiveType.LONG:
+                return lines.getLong(position);
+            case PrimitiveType.FLOAT:
+                return Double.doubleToLongBits(lines.getFloat(position));
+            case PrimitiveType.DOUBLE:
+                return Double.doubleToLongBits(lines.getDouble(position));
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    private static boolean isFloatingPoint(byte type) {
+        return type == PrimitiveType.FLOAT || type == PrimitiveType.DOUBLE;
+    }
+}
@@ -0,0 +1,276 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import static org.dgl.commons.io.Definitions.DEFAULT_ENDIANNESS;
+
+/**
+ * Immutable list of tabular files with the line structure, number of lines, size and modification time of each one.
+ * It can be saved to a manifest file, so a UnifiedTabularFileReader over thousands of files can be created without
+ * listing directories or reading any header, files are then opened on first access.
+ * Paths are stored as absolute paths
+ */
+public final class TabularFileCatalog {
+
+    private static final int MANIFEST_MAGIC = 0x5441424D;
+    private static final int MANIFEST_VERSION = 1;
+
+    private final Entry[] entries;
+    private final long numberOfLines;
+
+    private TabularFileCatalog(Entry[] entries) {
+        this.entries = entries;
+        long lines = 0;
+        for (Entry entry : entries) {
+            lines += entry.numberOfLines;
+        }
+        numberOfLines = lines;
+    }
+
+    /**
+     * Reads the header of every file
+     *
+     * @param files in the order their lines are unified
+     * @return
+     * @throws IOException
+     */
+    public static TabularFileCatalog create(File[] files) throws IOException {
+        return new TabularFileCatalog(new Entry[0]).update(files);
+    }
+
+    /**
+     * Reads a catalog saved with save(), files are not checked
+     *
+     * @param manifestFile
+     * @return
+     * @throws IOException
+     */
+    public static TabularFileCatalog load(File manifestFile) throws IOException {
+        try (DataInputStream input =
+                new DataInputStream(new BufferedInputStream(new FileInputStream(manifestFile)))) {
+            CRC32 crc = new CRC32();
+            DataInputStream checkedInput = new DataInputStream(new CheckedInputStream(input, crc));
+            if (checkedInput.readInt() != MANIFEST_MAGIC) {
+                throw new InvalidFormatException("Not a catalog manifest");
+            }
+            int version = checkedInput.readInt();
+            if (version != MANIFEST_VERSION) {
+                throw new InvalidFormatException("Unsupported version " + version);
+            }
+            Entry[] entries = new Entry[checkedInput.readInt()];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = readEntry(checkedInput);
+            }
+            if (input.readLong() != crc.getValue()) {
+                throw new InvalidFormatException("Manifest checksum mismatch");
+            }
+            return new TabularFileCatalog(entries);
+        }
+    }
+
+    /**
+     * Writes the catalog to a temporary file that then replaces the manifest, so the manifest is never left half
+     * written
+     *
+     * @param manifestFile
+     * @throws IOException
+     */
+    public void save(File manifestFile) throws IOException {
+        File temporaryFile = new File(manifestFile.getAbsolutePath() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream output =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+            DataOutputStream checkedOutput = new DataOutputStream(new CheckedOutputStream(output, crc));
+            checkedOutput.writeInt(MANIFEST_MAGIC);
+            checkedOutput.writeInt(MANIFEST_VERSION);
+            checkedOutput.writeInt(entries.length);
+            for (Entry entry : entries) {
+                writeEntry(entry, checkedOutput);
+            }
+            checkedOutput.flush();
+            output.writeLong(crc.getValue());
+        }
+        try {
+            Files.move(temporaryFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Catalog of a new list of files. Entries of this catalog are reused for files whose size and modification
+     * time did not change, only the header of the other files is read
+     *
+     * @param files in the order their lines are unified
+     * @return
+     * @throws IOException
+     */
+    public TabularFileCatalog update(File[] files) throws IOException {
+        Map<String, Entry> currentEntries = new HashMap<>();
+        for (Entry entry : entries) {
+            currentEntries.put(entry.path, entry);
+        }
+        Entry[] updatedEntries = new Entry[files.length];
+        for (int i = 0; i < files.length; i++) {
+            String path = files[i].getAbsolutePath();
+            BasicFileAttributes attributes = Files.readAttributes(files[i].toPath(), BasicFileAttributes.class);
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            Entry entry = currentEntries.get(path);
+            if (entry == null || entry.fileSize != attributes.size() || entry.lastModified != lastModified) {
+                entry = readEntry(path, lastModified);
+            }
+            updatedEntries[i] = entry;
+        }
+        return new TabularFileCatalog(updatedEntries);
+    }
+
+    /**
+     * Same files, the header is read again only for the ones whose size or modification time changed
+     *
+     * @return
+     * @throws IOException
+     */
+    public TabularFileCatalog refresh() throws IOException {
+        File[] files = new File[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            files[i] = new File(entries[i].path);
+        }
+        return update(files);
+    }
+
+    public int getNumberOfFiles() {
+        return entries.length;
+    }
+
+    public Entry getEntry(int fileIndex) {
+        return entries[fileIndex];
+    }
+
+    /**
+     * @return sum of the lines of every file
+     */
+    public long getNumberOfLines() {
+        return numberOfLines;
+    }
+
+    private static Entry readEntry(String path, long lastModified) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(path, "r")) {
+            FileChannel fileChannel = randomAccessFile.getChannel();
+            long fileSize = fileChannel.size();
+            FileHeader header = FileHeader.read(fileChannel, fileSize, DEFAULT_ENDIANNESS);
+            header.validateRowLayout();
+            long bytesPerLine = header.getLineStructure().getSizeInBytes();
+            long dataSize = fileSize - header.getLength();
+            if (bytesPerLine == 0 || dataSize % bytesPerLine != 0
+                    || header.getNumberOfLines() > dataSize / bytesPerLine) {
+                throw new IllegalStateException("Invalid file size");
+            }
+            return new Entry(path, header.getLineStructure(), dataSize / bytesPerLine, fileSize, lastModified);
+        }
+    }
+
+    /**
+     * Element types are stored with their flags as in the file header
+     */
+    private static Entry readEntry(DataInputStream input) throws IOException {
+        String path = input.readUTF();
+        long fileSize = input.readLong();
+        long lastModified = input.readLong();
+        long numberOfLines = input.readLong();
+        DataLineStructure lineStructure = new DataLineStructure(input.readInt());
+        for (int i = 0; i < lineStructure.getNumberOfElements(); i++) {
+            FileHeader.decodeElement(lineStructure, i, input.readByte());
+        }
+        if (input.readBoolean()) {
+            for (int i = 0; i < lineStructure.getNumberOfElements(); i++) {
+                lineStructure.setElementName(i, input.readUTF());
+            }
+        }
+        return new Entry(path, lineStructure, numberOfLines, fileSize, lastModified);
+    }
+
+    private static void writeEntry(Entry entry, DataOutputStream output) throws IOException {
+        DataLineStructure lineStructure = entry.lineStructure;
+        output.writeUTF(entry.path);
+        output.writeLong(entry.fileSize);
+        output.writeLong(entry.lastModified);
+        output.writeLong(entry.numberOfLines);
+        output.writeInt(lineStructure.getNumberOfElements());
+        for (int i = 0; i < lineStructure.getNumberOfElements(); i++) {
+            output.writeByte(FileHeader.encodeElement(lineStructure, i));
+        }
+        output.writeBoolean(lineStructure.hasElementNames());
+        if (lineStructure.hasElementNames()) {
+            for (int i = 0; i < lineStructure.getNumberOfElements(); i++) {
+                String name = lineStructure.getElementName(i);
+                output.writeUTF(name == null ? "" : name);
+            }
+        }
+    }
+
+    /**
+     * File as it was when it was cataloged
+     */
+    public static final class Entry {
+
+        private final String path;
+        private final DataLineStructure lineStructure;
+        private final long numberOfLines;
+        private final long fileSize;
+        private final long lastModified;
+
+        private Entry(String path, DataLineStructure lineStructure, long numberOfLines, long fileSize,
+                long lastModified) {
+            this.path = path;
+            this.lineStructure = lineStructure;
+            this.numberOfLines = numberOfLines;
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return copy of the structure, modifying it does not change the catalog
+         */
+        public DataLineStructure getLineStructure() {
+            return lineStructure.copy();
+        }
+
+        public long getNumberOfLines() {
+            return numberOfLines;
+        }
+
+        public long getFileSize() {
+            return fileSize;
+        }
+
+        /**
+         * @return modification time in milliseconds since the epoch
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package org.dgl.commons.io.tabular;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import static org.dgl.commons.io.Definitions.DEFAULT_BLOCK_SIZE;
 import static org.dgl.commons.io.Definitions.DEFAULT_ENDIANNESS;
 import static org.dgl.commons.io.Definitions.MAX_BUFFER_SIZE;
 
 public class TabularFileReader implements TabularReader {
 
+    private static final int COLUMN_BLOCK_SIZE = 16 * DEFAULT_BLOCK_SIZE;
+
+    private final FileHeader header;
     private final int headerLength;
     private final long numberOfLines;
     private final int bytesPerLine;
@@ -20,43 +30,250 @@ public class TabularFileReader implements TabularReader {
     private final RandomAccessFile randomAccessFile;
     private final ByteBuffer lineBuffer;
     private final String filePath;
+    private final long fileSize;
+    private final ByteOrder endianness;
+    private final ByteBuffer[] mappedSegments;
+    private final long linesPerSegment;
+    private final BlockCache blockCache;
+    private final String cacheKey;
     private ByteBuffer multipleLinesBuffer = null;
+    private ZoneMap zoneMap = null;
+    private long[] zoneMapStamp = null;
 
-    public TabularFileReader(String filePath, ByteOrder endianness) throws IOException {
+    /**
+     * @param filePath
+     * @param endianness   only used if the file does not record its byte order, otherwise the recorded one is used
+     * @param memoryMapped if true, the data region is mapped in memory and lines are decoded straight from the
+     *                     mapping instead of issuing a read per request. Mapped segments stay valid until garbage
+     *                     collected, even after the reader is closed
+     * @throws IOException
+     */
+    public TabularFileReader(String filePath, ByteOrder endianness, boolean memoryMapped) throws IOException {
+        this(filePath, endianness, memoryMapped, null);
+    }
+
+    /**
+     * @param filePath
+     * @param endianness only used if the file does not record its byte order, otherwise the recorded one is used
+     * @param blockCache single line reads are served from this cache, which can be shared with other readers.
+     *                   Range, column and cursor reads bypass it so scans do not evict the lines that are hot
+     * @throws IOException
+     */
+    public TabularFileReader(String filePath, ByteOrder endianness, BlockCache blockCache) throws IOException {
+        this(filePath, endianness, false, blockCache);
+    }
+
+    public TabularFileReader(String filePath, BlockCache blockCache) throws IOException {
+        this(filePath, DEFAULT_ENDIANNESS, false, blockCache);
+    }
+
+    /**
+     * @param filePath
+     * @param endianness
+     * @param memoryMapped
+     * @param blockCache   null for no cache, ignored if memoryMapped or if lines do not fit in a cache block
+     * @throws IOException
+     */
+    protected TabularFileReader(String filePath, ByteOrder endianness, boolean memoryMapped, BlockCache blockCache)
+            throws IOException {
         this.filePath = filePath;
         randomAccessFile = new RandomAccessFile(filePath, "r");
         fileChannel = randomAccessFile.getChannel();
-        lineStructure = getLineStructureFromFile();
+        fileSize = fileChannel.size();
+        try {
+            header = FileHeader.read(fileChannel, fileSize, endianness);
+            header.validateRowLayout();
+        } catch (IOException | RuntimeException e) {
+            closeQuietly();
+            throw e;
+        }
+        lineStructure = header.getLineStructure();
+        this.endianness = header.getEndianness();
         bytesPerLine = lineStructure.getSizeInBytes();
         if (bytesPerLine > MAX_BUFFER_SIZE) {
             throw new IllegalStateException();
         }
-        headerLength = lineStructure.getNumberOfElements() + 1;
-        long fileSize = fileChannel.size();
+        headerLength = header.getLength();
         if ((fileSize - (long) headerLength) % (long) bytesPerLine != 0) {
             close();
             throw new IllegalStateException("Invalid file size");
         }
         numberOfLines = ((fileSize - (long) headerLength) / (long) bytesPerLine);
+        if (header.getNumberOfLines() > numberOfLines) {
+            close();
+            throw new IllegalStateException("Invalid file size");
+        }
         lineBuffer = ByteBuffer.allocateDirect(bytesPerLine).order(endianness);
+        linesPerSegment = MAX_BUFFER_SIZE / bytesPerLine;
+        if (memoryMapped) {
+            try {
+                mappedSegments = mapDataRegion();
+            } catch (IOException e) {
+                closeQuietly();
+                throw e;
+            }
+        } else {
+            mappedSegments = null;
+        }
+        if (blockCache != null && !memoryMapped && blockCache.accepts(bytesPerLine)) {
+            this.blockCache = blockCache;
+            cacheKey = getCacheKey(filePath);
+        } else {
+            this.blockCache = null;
+            cacheKey = null;
+        }
+    }
+
+    public TabularFileReader(String filePath, ByteOrder endianness) throws IOException {
+        this(filePath, endianness, false);
+    }
+
+    public TabularFileReader(String filePath, boolean memoryMapped) throws IOException {
+        this(filePath, DEFAULT_ENDIANNESS, memoryMapped);
     }
 
     public TabularFileReader(String filePath) throws IOException {
-        this(filePath, DEFAULT_ENDIANNESS);
+        this(filePath, DEFAULT_ENDIANNESS, false);
     }
 
     public DataLine getLine(long lineIndex) throws IOException {
         validateGet(lineIndex);
-        return getDataLines(readAndFlip(lineBuffer, getLinePosition(lineIndex)))[0];
+        return getDataLine(readLine(lineIndex));
     }
 
+    /**
+     * @param lineIndex
+     * @return bytes of the line in the byte order of the file, see {@link #getEndianness()}
+     * @throws IOException
+     */
     public byte[] getLineBytes(long lineIndex) throws IOException {
         validateGet(lineIndex);
         byte[] lineBytes = new byte[bytesPerLine];
-        readAndFlip(lineBuffer, getLinePosition(lineIndex)).get(lineBytes);
+        readLine(lineIndex).get(lineBytes);
         return lineBytes;
     }
 
+    /**
+     * @param lineIndex
+     * @param projection elements to decode, for lines of the structure of this reader
+     * @return line with the structure of the projection
+     * @throws IOException
+     */
+    public DataLine getLine(long lineIndex, LineProjection projection) throws IOException {
+        projection.validate(lineStructure);
+        validateGet(lineIndex);
+        ByteBuffer line = readLine(lineIndex);
+        return projection.decode(line, line.position());
+    }
+
+    /**
+     * Lines are read whole, only the elements of the projection are decoded
+     *
+     * @param firstIndex inclusive
+     * @param lastIndex  exclusive
+     * @param projection elements to decode, for lines of the structure of this reader
+     * @return lines with the structure of the projection
+     * @throws IOException
+     */
+    public DataLine[] getLines(long firstIndex, long lastIndex, LineProjection projection) throws IOException {
+        validateGet(firstIndex, lastIndex);
+        if (lastIndex - firstIndex > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+        DataLine[] dataLines = new DataLine[(int) (lastIndex - firstIndex)];
+        getLines(firstIndex, lastIndex, projection, dataLines, 0);
+        return dataLines;
+    }
+
+    /**
+     * Lines are read whole, only the elements of the projection are decoded
+     *
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param projection        elements to decode, for lines of the structure of this reader
+     * @param destination
+     * @param destinationOffset position in destination of the first line
+     * @throws IOException
+     */
+    public void getLines(long firstIndex, long lastIndex, LineProjection projection, DataLine[] destination,
+            int destinationOffset) throws IOException {
+        projection.validate(lineStructure);
+        validateGet(firstIndex, lastIndex);
+        validateDestination(lastIndex - firstIndex, destination.length, destinationOffset);
+        int destinationIndex = destinationOffset;
+        long lineIndex = firstIndex;
+        while (lineIndex < lastIndex) {
+            ByteBuffer data = readColumnBlock(lineIndex, lastIndex);
+            int lines = data.remaining() / bytesPerLine;
+            int position = data.position();
+            for (int i = 0; i < lines; i++) {
+                destination[destinationIndex++] = projection.decode(data, position);
+                position += bytesPerLine;
+            }
+            lineIndex += lines;
+        }
+    }
+
+    /**
+     * Index of the first line whose value of a sorted element is not lower than the key, found by binary search
+     * on the encoded lines: single values are read until the range fits in a block, which is then read at once
+     *
+     * @param elementIndex element declared as sorted in the file header
+     * @param key          compared as a double if the element is a float or a double
+     * @return number of lines if every value is lower than the key
+     * @throws IOException
+     */
+    public long seek(int elementIndex, long key) throws IOException {
+        return lowerBound(SeekKey.create(lineStructure, elementIndex, key), 0, numberOfLines);
+    }
+
+    /**
+     * Same as seek(elementIndex, long key), for integral elements the key is rounded up
+     */
+    public long seek(int elementIndex, double key) throws IOException {
+        return lowerBound(SeekKey.create(lineStructure, elementIndex, key), 0, numberOfLines);
+    }
+
+    /**
+     * Same as seek(elementIndex, key), only the lines between two entries of the index are searched
+     *
+     * @param fenceIndex created by this reader
+     * @param key
+     * @return
+     * @throws IOException
+     */
+    public long seek(FenceIndex fenceIndex, long key) throws IOException {
+        return seek(fenceIndex, SeekKey.create(lineStructure, fenceIndex.getElementIndex(), key));
+    }
+
+    public long seek(FenceIndex fenceIndex, double key) throws IOException {
+        return seek(fenceIndex, SeekKey.create(lineStructure, fenceIndex.getElementIndex(), key));
+    }
+
+    /**
+     * Reads the value of a sorted element every interval lines
+     *
+     * @param elementIndex element declared as sorted in the file header
+     * @param interval     number of lines between entries
+     * @return
+     * @throws IOException
+     */
+    public FenceIndex createFenceIndex(int elementIndex, int interval) throws IOException {
+        if (interval <= 0) {
+            throw new IllegalArgumentException();
+        }
+        SeekKey key = SeekKey.create(lineStructure, elementIndex, 0L);
+        long numberOfEntries = (numberOfLines + interval - 1) / interval;
+        if (numberOfEntries > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException();
+        }
+        long[] values = new long[(int) numberOfEntries];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readValue(key, (long) i * interval);
+        }
+        return new FenceIndex(elementIndex, interval, numberOfLines, values);
+    }
+
     /**
      * Buffer allocation overhead must be taken into account when calling this method
      *
@@ -67,17 +284,36 @@ public class TabularFileReader implements TabularReader {
      */
     public DataLine[] getLines(long firstIndex, long lastIndex) throws IOException {
         validateGet(firstIndex, lastIndex);
-        long bytesToRead = (lastIndex - firstIndex) * (long) bytesPerLine;
-        if (bytesToRead > MAX_BUFFER_SIZE) {
-            long splitIndex = firstIndex + ((lastIndex - firstIndex) / 2);
-            DataLine[] firstHalf = getLines(firstIndex, splitIndex);
-            DataLine[] secondHalf = getLines(splitIndex, lastIndex);
-            return Utils.mergeArrays(firstHalf, secondHalf);
+        if (lastIndex - firstIndex > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
         }
-        if (multipleLinesBuffer == null || multipleLinesBuffer.capacity() < bytesToRead) {
-            multipleLinesBuffer = ByteBuffer.allocateDirect((int) bytesToRead);
+        DataLine[] dataLines = new DataLine[(int) (lastIndex - firstIndex)];
+        getLines(firstIndex, lastIndex, dataLines, 0);
+        return dataLines;
+    }
+
+    /**
+     * Buffer allocation overhead must be taken into account when calling this method
+     *
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the first line
+     * @throws IOException
+     */
+    public void getLines(long firstIndex, long lastIndex, DataLine[] destination, int destinationOffset)
+            throws IOException {
+        validateGet(firstIndex, lastIndex);
+        validateDestination(lastIndex - firstIndex, destination.length, destinationOffset);
+        int destinationIndex = destinationOffset;
+        long lineIndex = firstIndex;
+        while (lineIndex < lastIndex) {
+            ByteBuffer data = readRange(lineIndex, lastIndex);
+            while (data.hasRemaining()) {
+                destination[destinationIndex++] = getDataLine(data);
+                lineIndex++;
+            }
         }
-        return getDataLines(readAndFlip(multipleLinesBuffer, (int) bytesToRead, getLinePosition(firstIndex)));
     }
 
     /**
@@ -85,27 +321,457 @@ public class TabularFileReader implements TabularReader {
      *
      * @param firstIndex inclusive
      * @param lastIndex  exclusive
-     * @return
+     * @return bytes of the lines in the byte order of the file, see {@link #getEndianness()}
      * @throws IOException
      */
     public byte[] getLinesBytes(long firstIndex, long lastIndex) throws IOException {
         validateGet(firstIndex, lastIndex);
         long bytesToRead = (lastIndex - firstIndex) * (long) bytesPerLine;
-        if (bytesToRead > MAX_BUFFER_SIZE) {
-            long splitIndex = firstIndex + ((lastIndex - firstIndex) / 2);
-            byte[] firstHalf = getLinesBytes(firstIndex, splitIndex);
-            byte[] secondHalf = getLinesBytes(splitIndex, lastIndex);
-            return Utils.mergeArrays(firstHalf, secondHalf);
-        }
-        if (multipleLinesBuffer == null || multipleLinesBuffer.capacity() < bytesToRead) {
-            multipleLinesBuffer = ByteBuffer.allocateDirect((int) bytesToRead);
+        if (bytesToRead > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
         }
         byte[] linesBytes = new byte[(int) bytesToRead];
-
-        readAndFlip(multipleLinesBuffer, (int) bytesToRead, getLinePosition(firstIndex)).get(linesBytes);
+        getLinesBytes(firstIndex, lastIndex, linesBytes, 0);
         return linesBytes;
     }
 
+    /**
+     * Buffer allocation overhead must be taken into account when calling this method
+     *
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the first byte of the first line
+     * @throws IOException
+     */
+    public void getLinesBytes(long firstIndex, long lastIndex, byte[] destination, int destinationOffset)
+            throws IOException {
+        validateGet(firstIndex, lastIndex);
+        validateDestination((lastIndex - firstIndex) * (long) bytesPerLine, destination.length, destinationOffset);
+        int destinationIndex = destinationOffset;
+        long lineIndex = firstIndex;
+        while (lineIndex < lastIndex) {
+            ByteBuffer data = readRange(lineIndex, lastIndex);
+            int bytesRead = data.remaining();
+            data.get(destination, destinationIndex, bytesRead);
+            destinationIndex += bytesRead;
+            lineIndex += bytesRead / bytesPerLine;
+        }
+    }
+
+    /**
+     * Reusable cursor over all lines, values are read in place so no DataLine is created per line
+     */
+    public DataLineCursor cursor() {
+        return cursor(0, numberOfLines);
+    }
+
+    /**
+     * Reusable cursor over a range of lines, values are read in place so no DataLine is created per line
+     *
+     * @param firstIndex inclusive
+     * @param lastIndex  exclusive
+     * @return
+     */
+    public DataLineCursor cursor(long firstIndex, long lastIndex) {
+        if (firstIndex < 0 || lastIndex > numberOfLines || lastIndex < firstIndex) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new DataLineCursor(this::readBlock, !isMemoryMapped(), lineStructure, firstIndex, lastIndex);
+    }
+
+    /**
+     * Cursor over a range of lines that reads large blocks ahead on a dedicated thread, so reading overlaps
+     * decoding. It must be closed if it is not read to the end. Memory mapped readers return a plain cursor
+     *
+     * @param firstIndex    inclusive
+     * @param lastIndex     exclusive
+     * @param blockSize     size of each read, rounded down to whole lines (at least one)
+     * @param prefetchDepth number of blocks read ahead of the one being decoded
+     * @return
+     */
+    public DataLineCursor prefetchingCursor(long firstIndex, long lastIndex, int blockSize, int prefetchDepth) {
+        if (firstIndex < 0 || lastIndex > numberOfLines || lastIndex < firstIndex) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (isMemoryMapped()) {
+            return cursor(firstIndex, lastIndex);
+        }
+        LineBlockSource source = new PrefetchingBlockSource(this::readBlock,
+                "TabularFileReader-prefetch-" + new File(filePath).getName(), bytesPerLine, blockSize, prefetchDepth,
+                firstIndex, lastIndex);
+        return new DataLineCursor(source, false, lineStructure,
+                PrefetchingBlockSource.getLinesPerBlock(bytesPerLine, blockSize), firstIndex, lastIndex);
+    }
+
+    /**
+     * Prefetching cursor over all lines with blocks of 1 MB read two blocks ahead
+     */
+    public DataLineCursor prefetchingCursor() {
+        return prefetchingCursor(0, numberOfLines, PrefetchingBlockSource.DEFAULT_PREFETCH_BLOCK_SIZE,
+                PrefetchingBlockSource.DEFAULT_PREFETCH_DEPTH);
+    }
+
+    /**
+     * Reads the values of one element for a range of lines straight into an array, no DataLine is created
+     *
+     * @param elementIndex
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the value of the first line
+     * @throws IOException
+     */
+    public void readByteColumn(int elementIndex, long firstIndex, long lastIndex, byte[] destination,
+            int destinationOffset) throws IOException {
+        validateColumnRead(elementIndex, PrimitiveType.BYTE, firstIndex, lastIndex, destination.length,
+                destinationOffset);
+        int elementOffset = lineStructure.getLayout().getElementOffset(elementIndex);
+        int destinationIndex = destinationOffset;
+        long lineIndex = firstIndex;
+        while (lineIndex < lastIndex) {
+            ByteBuffer block = readColumnBlock(lineIndex, lastIndex);
+            int lines = block.remaining() / bytesPerLine;
+            int position = block.position() + elementOffset;
+            for (int i = 0; i < lines; i++) {
+                destination[destinationIndex++] = block.get(position);
+                position += bytesPerLine;
+            }
+            lineIndex += lines;
+        }
+    }
+
+    public void readByteColumn(int elementIndex, long firstIndex, long lastIndex, byte[] destination)
+            throws IOException {
+        readByteColumn(elementIndex, firstIndex, lastIndex, destination, 0);
+    }
+
+    /**
+     * Reads the values of one element for a range of lines straight into an array, no DataLine is created
+     *
+     * @param elementIndex
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the value of the first line
+     * @throws IOException
+     */
+    public void readCharColumn(int elementIndex, long firstIndex, long lastIndex, char[] destination,
+            int destinationOffset) throws IOException {
+        validateColumnRead(elementIndex, PrimitiveType.CHAR, firstIndex, lastIndex, destination.length,
+                destinationOffset);
+        int elementOffset = lineStructure.getLayout().getElementOffset(elementIndex);
+        int destinationIndex = destinationOffset;
+        long lineIndex = firstIndex;
+        while (lineIndex < lastIndex) {
+            ByteBuffer block = readColumnBlock(lineIndex, lastIndex);
+            int lines = block.remaining() / bytesPerLine;
+            int position = block.position() + elementOffset;
+            for (int i = 0; i < lines; i++) {
+                destination[destinationIndex++] = block.getChar(position);
+                position += bytesPerLine;
+            }
+            lineIndex += lines;
+        }
+    }
+
+    public void readCharColumn(int elementIndex, long firstIndex, long lastIndex, char[] destination)
+            throws IOException {
+        readCharColumn(elementIndex, firstIndex, lastIndex, destination, 0);
+    }
+
+    /**
+     * Reads the values of one element for a range of lines straight into an array, no DataLine is created
+     *
+     * @param elementIndex
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the value of the first line
+     * @throws IOException
+     */
+    public void readShortColumn(int elementIndex, long firstIndex, long lastIndex, short[] destination,
+            int destinationOffset) throws IOException {
+        validateColumnRead(elementIndex, PrimitiveType.SHORT, firstIndex, lastIndex, destination.length,
+                destinationOffset);
+        int elementOffset = lineStructure.getLayout().getElementOffset(elementIndex);
+        int destinationIndex = destinationOffset;
+        long lineIndex = firstIndex;
+        while (lineIndex < lastIndex) {
+            ByteBuffer block = readColumnBlock(lineIndex, lastIndex);
+            int lines = block.remaining() / bytesPerLine;
+            int position = block.position() + elementOffset;
+            for (int i = 0; i < lines; i++) {
+                destination[destinationIndex++] = block.getShort(position);
+                position += bytesPerLine;
+            }
+            lineIndex += lines;
+        }
+    }
+
+    public void readShortColumn(int elementIndex, long firstIndex, long lastIndex, short[] destination)
+            throws IOException {
+        readShortColumn(elementIndex, firstIndex, lastIndex, destination, 0);
+    }
+
+    /**
+     * Reads the values of one element for a range of lines straight into an array, no DataLine is created
+     *
+     * @param elementIndex
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the value of the first line
+     * @throws IOException
+     */
+    public void readIntColumn(int elementIndex, long firstIndex, long lastIndex, int[] destination,
+            int destinationOffset) throws IOException {
+        validateColumnRead(elementIndex, PrimitiveType.INT, firstIndex, lastIndex, destination.length,
+                destinationOffset);
+        int elementOffset = lineStructure.getLayout().getElementOffset(elementIndex);
+        int destinationIndex = destinationOffset;
+        long lineIndex = firstIndex;
+        while (lineIndex < lastIndex) {
+            ByteBuffer block = readColumnBlock(lineIndex, lastIndex);
+            int lines = block.remaining() / bytesPerLine;
+            int position = block.position() + elementOffset;
+            for (int i = 0; i < lines; i++) {
+                destination[destinationIndex++] = block.getInt(position);
+                position += bytesPerLine;
+            }
+            lineIndex += lines;
+        }
+    }
+
+    public void readIntColumn(int elementIndex, long firstIndex, long lastIndex, int[] destination)
+            throws IOException {
+        readIntColumn(elementIndex, firstIndex, lastIndex, destination, 0);
+    }
+
+    /**
+     * Reads the values of one element for a range of lines straight into an array, no DataLine is created
+     *
+     * @param elementIndex
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the value of the first line
+     * @throws IOException
+     */
+    public void readLongColumn(int elementIndex, long firstIndex, long lastIndex, long[] destination,
+            int destinationOffset) throws IOException {
+        validateColumnRead(elementIndex, PrimitiveType.LONG, firstIndex, lastIndex, destination.length,
+                destinationOffset);
+        int elementOffset = lineStructure.getLayout().getElementOffset(elementIndex);
+        int destinationIndex = destinationOffset;
+        long lineIndex = firstIndex;
+        while (lineIndex < lastIndex) {
+            ByteBuffer block = readColumnBlock(lineIndex, lastIndex);
+            int lines = block.remaining() / bytesPerLine;
+            int position = block.position() + elementOffset;
+            for (int i = 0; i < lines; i++) {
+                destination[destinationIndex++] = block.getLong(position);
+                position += bytesPerLine;
+            }
+            lineIndex += lines;
+        }
+    }
+
+    public void readLongColumn(int elementIndex, long firstIndex, long lastIndex, long[] destination)
+            throws IOException {
+        readLongColumn(elementIndex, firstIndex, lastIndex, destination, 0);
+    }
+
+    /**
+     * Reads the values of one element for a range of lines straight into an array, no DataLine is created
+     *
+     * @param elementIndex
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the value of the first line
+     * @throws IOException
+     */
+    public void readFloatColumn(int elementIndex, long firstIndex, long lastIndex, float[] destination,
+            int destinationOffset) throws IOException {
+        validateColumnRead(elementIndex, PrimitiveType.FLOAT, firstIndex, lastIndex, destination.length,
+                destinationOffset);
+        int elementOffset = lineStructure.getLayout().getElementOffset(elementIndex);
+        int destinationIndex = destinationOffset;
+        long lineIndex = firstIndex;
+        while (lineIndex < lastIndex) {
+            ByteBuffer block = readColumnBlock(lineIndex, lastIndex);
+            int lines = block.remaining() / bytesPerLine;
+            int position = block.position() + elementOffset;
+            for (int i = 0; i < lines; i++) {
+                destination[destinationIndex++] = block.getFloat(position);
+                position += bytesPerLine;
+            }
+            lineIndex += lines;
+        }
+    }
+
+    public void readFloatColumn(int elementIndex, long firstIndex, long lastIndex, float[] destination)
+            throws IOException {
+        readFloatColumn(elementIndex, firstIndex, lastIndex, destination, 0);
+    }
+
+    /**
+     * Reads the values of one element for a range of lines straight into an array, no DataLine is created
+     *
+     * @param elementIndex
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the value of the first line
+     * @throws IOException
+     */
+    public void readDoubleColumn(int elementIndex, long firstIndex, long lastIndex, double[] destination,
+            int destinationOffset) throws IOException {
+        validateColumnRead(elementIndex, PrimitiveType.DOUBLE, firstIndex, lastIndex, destination.length,
+                destinationOffset);
+        int elementOffset = lineStructure.getLayout().getElementOffset(elementIndex);
+        int destinationIndex = destinationOffset;
+        long lineIndex = firstIndex;
+        while (lineIndex < lastIndex) {
+            ByteBuffer block = readColumnBlock(lineIndex, lastIndex);
+            int lines = block.remaining() / bytesPerLine;
+            int position = block.position() + elementOffset;
+            for (int i = 0; i < lines; i++) {
+                destination[destinationIndex++] = block.getDouble(position);
+                position += bytesPerLine;
+            }
+            lineIndex += lines;
+        }
+    }
+
+    public void readDoubleColumn(int elementIndex, long firstIndex, long lastIndex, double[] destination)
+            throws IOException {
+        readDoubleColumn(elementIndex, firstIndex, lastIndex, destination, 0);
+    }
+
+    /**
+     * Scans every line in parallel on the given fork/join pool. Lines are divided in block aligned ranges, each
+     * range is read by a worker with its own cursor and accumulated into its own container
+     *
+     * @param supplier    creates an empty container for each range
+     * @param accumulator called once per line with the cursor positioned on it, cursor must not be kept
+     * @param combiner    merges two containers, ranges are combined in order
+     * @param pool        lines are divided for its parallelism, it is not shut down
+     * @return the combined container
+     * @throws IOException
+     */
+    public <A> A parallelScan(Supplier<A> supplier, BiConsumer<A, DataLineCursor> accumulator,
+            BinaryOperator<A> combiner, ForkJoinPool pool) throws IOException {
+        return newParallelScan(supplier, accumulator, combiner, pool.getParallelism()).invoke(pool);
+    }
+
+    /**
+     * Same as parallelScan(supplier, accumulator, combiner, pool), run on a pool of parallelism threads created
+     * for this call and shut down afterwards. Starting the threads is paid on every call, repeated scans should
+     * pass their own pool instead
+     *
+     * @param supplier
+     * @param accumulator
+     * @param combiner
+     * @param parallelism number of worker threads
+     * @return the combined container
+     * @throws IOException
+     */
+    public <A> A parallelScan(Supplier<A> supplier, BiConsumer<A, DataLineCursor> accumulator,
+            BinaryOperator<A> combiner, int parallelism) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return parallelScan(supplier, accumulator, combiner, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Same as parallelScan(supplier, accumulator, combiner, pool), run on the common fork/join pool
+     */
+    public <A> A parallelScan(Supplier<A> supplier, BiConsumer<A, DataLineCursor> accumulator,
+            BinaryOperator<A> combiner) throws IOException {
+        return parallelScan(supplier, accumulator, combiner, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Calls the action for every line that matches all the predicates, with the cursor positioned on it. Zones of
+     * lines ruled out by the zone map of the file are not read, files without an up to date and readable zone map
+     * (see TabularFileWriter) are read entirely
+     *
+     * @param predicates
+     * @param action     called once per matching line, cursor must not be kept
+     * @return number of matching lines
+     * @throws IOException
+     */
+    public long scan(ColumnPredicate[] predicates, Consumer<DataLineCursor> action) throws IOException {
+        for (ColumnPredicate predicate : predicates) {
+            if (predicate.getElementIndex() >= lineStructure.getNumberOfElements()) {
+                throw new IndexOutOfBoundsException();
+            }
+        }
+        ZoneMap zoneMap = getZoneMap();
+        long coveredLines = zoneMap == null ? 0 : Math.min(zoneMap.getNumberOfLines(), numberOfLines);
+        long matches = 0;
+        long rangeStart = -1;
+        long lineIndex = 0;
+        for (int zoneIndex = 0; lineIndex < coveredLines; zoneIndex++) {
+            if (zoneMap.mayMatch(zoneIndex, predicates)) {
+                if (rangeStart < 0) {
+                    rangeStart = lineIndex;
+                }
+            } else if (rangeStart >= 0) {
+                matches += scan(rangeStart, lineIndex, predicates, action);
+                rangeStart = -1;
+            }
+            lineIndex = Math.min(lineIndex + zoneMap.getLinesPerZone(), coveredLines);
+        }
+        return matches + scan(rangeStart < 0 ? coveredLines : rangeStart, numberOfLines, predicates, action);
+    }
+
+    /**
+     * Zone map of the file, read again only when the file or its sidecar changed since it was last read
+     */
+    private synchronized ZoneMap getZoneMap() {
+        long[] stamp = ZoneMap.getStamp(filePath);
+        if (!Arrays.equals(stamp, zoneMapStamp)) {
+            zoneMap = ZoneMap.read(filePath, lineStructure);
+            zoneMapStamp = stamp;
+        }
+        return zoneMap;
+    }
+
+    private long scan(long firstIndex, long lastIndex, ColumnPredicate[] predicates, Consumer<DataLineCursor> action)
+            throws IOException {
+        long matches = 0;
+        DataLineCursor cursor = cursor(firstIndex, lastIndex);
+        while (cursor.next()) {
+            if (matchesAll(predicates, cursor)) {
+                action.accept(cursor);
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static boolean matchesAll(ColumnPredicate[] predicates, DataLineCursor cursor) {
+        for (ColumnPredicate predicate : predicates) {
+            if (!predicate.matches(cursor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private <A> ParallelScan<A> newParallelScan(Supplier<A> supplier, BiConsumer<A, DataLineCursor> accumulator,
+            BinaryOperator<A> combiner, int parallelism) {
+        return new ParallelScan<>(new long[]{numberOfLines}, new DataLineStructure[]{lineStructure},
+                (fileIndex, firstIndex, lastIndex) -> cursor(firstIndex, lastIndex), supplier, accumulator, combiner,
+                parallelism);
+    }
+
     public long getNumberOfLines() {
         return numberOfLines;
     }
@@ -132,43 +798,218 @@ public class TabularFileReader implements TabularReader {
         return filePath;
     }
 
-    private DataLine[] getDataLines(ByteBuffer data) {
-        if (data.limit() % lineStructure.getSizeInBytes() != 0) {
-            throw new IllegalStateException();
+    public boolean isMemoryMapped() {
+        return mappedSegments != null;
+    }
+
+    /**
+     * @return cache used for single line reads, null if there is none
+     */
+    public BlockCache getBlockCache() {
+        return blockCache;
+    }
+
+    /**
+     * @return byte order recorded in the file, or the one given on construction for files that do not record it
+     */
+    public ByteOrder getEndianness() {
+        return endianness;
+    }
+
+    /**
+     * @return version of the file header, 0 for files written before headers were versioned
+     */
+    public int getFormatVersion() {
+        return header.getVersion();
+    }
+
+    FileHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Buffer used for single line reads, its capacity is exactly one line
+     */
+    protected ByteBuffer getLineBuffer() {
+        return lineBuffer;
+    }
+
+    /**
+     * Buffer used for multiple lines reads
+     *
+     * @param minimumCapacity
+     * @return buffer with at least the requested capacity
+     */
+    protected ByteBuffer getMultipleLinesBuffer(int minimumCapacity) {
+        if (multipleLinesBuffer == null || multipleLinesBuffer.capacity() < minimumCapacity) {
+            multipleLinesBuffer = ByteBuffer.allocateDirect(minimumCapacity).order(endianness);
+        }
+        return multipleLinesBuffer;
+    }
+
+    /**
+     * Maximum number of lines read at once into the multiple lines buffer, longer ranges are read in several chunks
+     */
+    protected long getMaxLinesPerRead() {
+        return linesPerSegment;
+    }
+
+    /**
+     * Reads a block of lines without touching the reader buffers, so it can be used by several cursors at once
+     *
+     * @param firstIndex
+     * @param maxLines
+     * @param buffer     used if the file is not memory mapped, null otherwise
+     * @return buffer holding between 1 and maxLines lines, positioned at the first one
+     * @throws IOException
+     */
+    ByteBuffer readBlock(long firstIndex, int maxLines, ByteBuffer buffer) throws IOException {
+        validateGet(firstIndex);
+        long lastIndex = Math.min(firstIndex + maxLines, numberOfLines);
+        if (isMemoryMapped()) {
+            return getMappedLines(firstIndex, Math.min(lastIndex, getSegmentEndIndex(firstIndex)));
+        }
+        int bytesToRead = (int) (lastIndex - firstIndex) * bytesPerLine;
+        return readAndFlip(buffer, bytesToRead, getLinePosition(firstIndex)).order(endianness);
+    }
+
+    /**
+     * @param key
+     * @param firstIndex inclusive
+     * @param lastIndex  exclusive
+     * @return first line of the range not before the key, lastIndex if there is none
+     * @throws IOException
+     */
+    long lowerBound(SeekKey key, long firstIndex, long lastIndex) throws IOException {
+        long low = firstIndex;
+        long high = lastIndex;
+        int linesPerBlock = DataLineCursor.getLinesPerBlock(bytesPerLine);
+        while (high - low > linesPerBlock) {
+            long middle = (low + high) >>> 1;
+            if (key.isBefore(readValue(key, middle))) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
         }
-        DataLine[] dataLines = new DataLine[data.limit() / lineStructure.getSizeInBytes()];
-        for (int i = 0; i < dataLines.length; i++) {
-            DataLine dataLine = new DataLine(lineStructure);
-            for (int j = 0; j < lineStructure.getNumberOfElements(); j++) {
-                switch (lineStructure.getElementType(j)) {
-                    case PrimitiveType.BYTE:
-                        dataLine.setByte(j, data.get());
-                        break;
-                    case PrimitiveType.CHAR:
-                        dataLine.setChar(j, data.getChar());
-                        break;
-                    case PrimitiveType.SHORT:
-                        dataLine.setShort(j, data.getShort());
-                        break;
-                    case PrimitiveType.INT:
-                        dataLine.setInt(j, data.getInt());
-                        break;
-                    case PrimitiveType.LONG:
-                        dataLine.setLong(j, data.getLong());
-                        break;
-                    case PrimitiveType.FLOAT:
-                        dataLine.setFloat(j, data.getFloat());
-                        break;
-                    case PrimitiveType.DOUBLE:
-                        dataLine.setDouble(j, data.getDouble());
-                        break;
-                    default:
-                        throw new IllegalArgumentException();
+        while (low < high) {
+            ByteBuffer block = readBlock(low, (int) (high - low), getMultipleLinesBuffer(linesPerBlock * bytesPerLine));
+            int lines = block.remaining() / bytesPerLine;
+            int blockLow = 0;
+            int blockHigh = lines;
+            while (blockLow < blockHigh) {
+                int middle = (blockLow + blockHigh) >>> 1;
+                if (key.isBefore(block, block.position() + middle * bytesPerLine)) {
+                    blockLow = middle + 1;
+                } else {
+                    blockHigh = middle;
                 }
             }
-            dataLines[i] = dataLine;
+            if (blockLow < lines) {
+                return low + blockLow;
+            }
+            low += lines;
         }
-        return dataLines;
+        return high;
+    }
+
+    /**
+     * @return value of the element of the key in the line, see SeekKey.getValue()
+     */
+    long readValue(SeekKey key, long lineIndex) throws IOException {
+        validateGet(lineIndex);
+        ByteBuffer line = readLine(lineIndex);
+        return key.getValue(line, line.position());
+    }
+
+    /**
+     * Identifies a file in a BlockCache
+     */
+    static String getCacheKey(String filePath) {
+        return new File(filePath).toPath().toAbsolutePath().normalize().toString();
+    }
+
+    private long seek(FenceIndex fenceIndex, SeekKey key) throws IOException {
+        return lowerBound(key, fenceIndex.getSearchStart(key, numberOfLines),
+                fenceIndex.getSearchEnd(key, numberOfLines));
+    }
+
+    /**
+     * @return buffer positioned at the line, only valid until the next single line read
+     */
+    private ByteBuffer readLine(long lineIndex) throws IOException {
+        if (isMemoryMapped()) {
+            return getMappedLines(lineIndex, lineIndex + 1);
+        }
+        if (blockCache != null) {
+            return readCachedLine(lineIndex);
+        }
+        return readAndFlip(getLineBuffer(), getLinePosition(lineIndex)).order(endianness);
+    }
+
+    private ByteBuffer readCachedLine(long lineIndex) throws IOException {
+        ByteBuffer buffer = getLineBuffer();
+        buffer.clear();
+        blockCache.getLine(this, cacheKey, lineIndex, buffer);
+        buffer.flip();
+        return buffer.order(endianness);
+    }
+
+    /**
+     * Decodes the line at the buffer position and moves the position to the next line
+     */
+    private DataLine getDataLine(ByteBuffer data) {
+        if (data.remaining() < bytesPerLine) {
+            throw new IllegalStateException();
+        }
+        DataLine dataLine = new DataLine(lineStructure);
+        for (int j = 0; j < lineStructure.getNumberOfElements(); j++) {
+            switch (lineStructure.getElementType(j)) {
+                case PrimitiveType.BYTE:
+                    dataLine.setByte(j, data.get());
+                    break;
+                case PrimitiveType.CHAR:
+                    dataLine.setChar(j, data.getChar());
+                    break;
+                case PrimitiveType.SHORT:
+                    dataLine.setShort(j, data.getShort());
+                    break;
+                case PrimitiveType.INT:
+                    dataLine.setInt(j, data.getInt());
+                    break;
+                case PrimitiveType.LONG:
+                    dataLine.setLong(j, data.getLong());
+                    break;
+                case PrimitiveType.FLOAT:
+                    dataLine.setFloat(j, data.getFloat());
+                    break;
+                case PrimitiveType.DOUBLE:
+                    dataLine.setDouble(j, data.getDouble());
+                    break;
+                default:
+                    throw new IllegalArgumentException();
+            }
+        }
+        return dataLine;
+    }
+
+    /**
+     * Reads as many lines of the range as fit in one buffer or mapped segment
+     *
+     * @param firstIndex inclusive
+     * @param lastIndex  exclusive
+     * @return buffer holding at least one line, positioned at the first one
+     * @throws IOException
+     */
+    private ByteBuffer readRange(long firstIndex, long lastIndex) throws IOException {
+        if (isMemoryMapped()) {
+            long chunkLastIndex = Math.min(lastIndex, firstIndex + linesPerSegment);
+            return getMappedLines(firstIndex, Math.min(chunkLastIndex, getSegmentEndIndex(firstIndex)));
+        }
+        long chunkLastIndex = Math.min(lastIndex, firstIndex + getMaxLinesPerRead());
+        int bytesToRead = (int) (chunkLastIndex - firstIndex) * bytesPerLine;
+        return readAndFlip(getMultipleLinesBuffer(bytesToRead), bytesToRead, getLinePosition(firstIndex))
+                .order(endianness);
     }
 
     private void validateGet(long lineIndex) throws IOException {
@@ -192,28 +1033,69 @@ public class TabularFileReader implements TabularReader {
         }
     }
 
+    private void validateDestination(long length, int destinationLength, int destinationOffset) {
+        if (destinationOffset < 0 || destinationOffset + length > destinationLength) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private void validateColumnRead(int elementIndex, byte type, long firstIndex, long lastIndex,
+            int destinationLength, int destinationOffset) throws IOException {
+        validateGet(firstIndex, lastIndex);
+        if (elementIndex < 0 || elementIndex >= lineStructure.getNumberOfElements()) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (lineStructure.getElementType(elementIndex) != type) {
+            throw new InvalidFormatException();
+        }
+        validateDestination(lastIndex - firstIndex, destinationLength, destinationOffset);
+    }
+
+    private ByteBuffer readColumnBlock(long firstIndex, long lastIndex) throws IOException {
+        int linesPerBlock = Math.max(1, COLUMN_BLOCK_SIZE / bytesPerLine);
+        int maxLines = (int) Math.min(linesPerBlock, lastIndex - firstIndex);
+        ByteBuffer buffer = isMemoryMapped() ? null : getMultipleLinesBuffer(linesPerBlock * bytesPerLine);
+        return readBlock(firstIndex, maxLines, buffer);
+    }
+
     private long getLinePosition(long lineIndex) {
         return (lineIndex * (long) bytesPerLine) + (long) headerLength;
     }
 
-    private DataLineStructure getLineStructureFromFile() throws IOException {
-        ArrayList<Byte> header = new ArrayList<Byte>();
-        ByteBuffer byteBuffer = ByteBuffer.allocate(1);
-        boolean done = false;
-        while (!done) {
-            readAndFlip(byteBuffer, header.size());
-            byte readByte = byteBuffer.get();
-            if (readByte == 0) {
-                done = true;
-            } else {
-                header.add(readByte);
-            }
-        }
-        DataLineStructure lineStructure = new DataLineStructure(header.size());
-        for (int i = 0; i < header.size(); i++) {
-            lineStructure.setElementType(i, header.get(i));
+    /**
+     * Segments hold a whole number of lines, so a line never spans two mappings
+     */
+    private ByteBuffer[] mapDataRegion() throws IOException {
+        long segmentSize = linesPerSegment * (long) bytesPerLine;
+        long dataSize = fileSize - (long) headerLength;
+        ByteBuffer[] segments = new ByteBuffer[(int) ((dataSize + segmentSize - 1) / segmentSize)];
+        for (int i = 0; i < segments.length; i++) {
+            long segmentStart = (long) i * segmentSize;
+            long size = Math.min(segmentSize, dataSize - segmentStart);
+            segments[i] = fileChannel.map(FileChannel.MapMode.READ_ONLY, headerLength + segmentStart, size)
+                    .order(endianness);
         }
-        return lineStructure;
+        return segments;
+    }
+
+    private long getSegmentEndIndex(long lineIndex) {
+        return Math.min(((lineIndex / linesPerSegment) + 1) * linesPerSegment, numberOfLines);
+    }
+
+    /**
+     * Lines must belong to the same segment
+     *
+     * @param firstIndex inclusive
+     * @param lastIndex  exclusive
+     * @return view of the mapping holding the lines, positioned at the first one
+     */
+    private ByteBuffer getMappedLines(long firstIndex, long lastIndex) {
+        ByteBuffer segment = mappedSegments[(int) (firstIndex / linesPerSegment)];
+        int position = (int) (firstIndex % linesPerSegment) * bytesPerLine;
+        ByteBuffer view = segment.duplicate().order(endianness);
+        view.limit(position + (int) (lastIndex - firstIndex) * bytesPerLine);
+        view.position(position);
+        return view;
     }
 
     private ByteBuffer readAndFlip(ByteBuffer buffer, long filePosition) throws IOException {
@@ -230,7 +1112,7 @@ public class TabularFileReader implements TabularReader {
      * @throws IOException
      */
     private ByteBuffer readAndFlip(ByteBuffer buffer, int bytesToRead, long filePosition) throws IOException {
-        if (filePosition + bytesToRead > fileChannel.size() || bytesToRead > buffer.capacity()) {
+        if (filePosition + bytesToRead > fileSize || bytesToRead > buffer.capacity()) {
             throw new IOException();
         }
         ByteBuffer finalBuffer = buffer;
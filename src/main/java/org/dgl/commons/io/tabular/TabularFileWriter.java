@@ -4,6 +4,7 @@ import javafx.util.Pair;
 
 import java.io.Closeable;
 import java.io.File;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
@@ -11,53 +12,154 @@ import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 
 import static org.dgl.commons.io.Definitions.DEFAULT_ENDIANNESS;
+import static org.dgl.commons.io.Definitions.DEFAULT_FILE_ENDIANNESS;
 import static org.dgl.commons.io.Definitions.MAX_BUFFER_SIZE;
 
-public class TabularFileWriter implements Closeable {
+public class TabularFileWriter implements Closeable, Flushable {
 
     private final int bytesPerLine;
+    private final FileHeader header;
     private final int headerLength;
     private final DataLineStructure lineStructure;
     private final ByteBuffer lineBuffer;
     private final FileChannel fileChannel;
     private final RandomAccessFile randomAccessFile;
     private final String filePath;
+    private final ByteOrder endianness;
+    private final ByteBuffer writeBehindBuffer;
+    private final ZoneMap zoneMap;
     private ByteBuffer multipleLinesBuffer = null;
     private long currentLineIndex;
+    private long flushedLineIndex;
+    private int bufferedLines = 0;
+    private long headerNumberOfLines;
+
+    /**
+     * @param filePath
+     * @param lineStructure
+     * @param endianness      byte order of the file if it is created, existing files keep the one they record (this
+     *                        one if they do not record it)
+     * @param writeBufferSize if greater than 0, appended lines are accumulated in a buffer of this size (rounded down
+     *                        to whole lines, at least one) and written in one go when it is full, on flush() or on
+     *                        close(). Lines still in the buffer are not visible to readers
+     * @throws IOException
+     */
+    public TabularFileWriter(String filePath, DataLineStructure lineStructure, ByteOrder endianness,
+            int writeBufferSize) throws IOException {
+        this(filePath, lineStructure, endianness, endianness, writeBufferSize, false);
+    }
+
+    /**
+     * @param filePath
+     * @param lineStructure
+     * @param endianness      see {@link #TabularFileWriter(String, DataLineStructure, ByteOrder, int)}
+     * @param writeBufferSize see {@link #TabularFileWriter(String, DataLineStructure, ByteOrder, int)}
+     * @param zoneMap         if true, the minimum and maximum of every element are kept per zone of lines and saved
+     *                        next to the file on flush() and close(), so TabularFileReader.scan() can skip zones.
+     *                        It is rebuilt from the file when it is missing or outdated
+     * @throws IOException
+     */
+    public TabularFileWriter(String filePath, DataLineStructure lineStructure, ByteOrder endianness,
+            int writeBufferSize, boolean zoneMap) throws IOException {
+        this(filePath, lineStructure, endianness, endianness, writeBufferSize, zoneMap);
+    }
 
     public TabularFileWriter(String filePath, DataLineStructure lineStructure, ByteOrder endianness)
             throws IOException {
+        this(filePath, lineStructure, endianness, 0);
+    }
+
+    /**
+     * New files use the native byte order, existing files keep the one they record
+     *
+     * @param filePath
+     * @param lineStructure
+     * @param writeBufferSize see {@link #TabularFileWriter(String, DataLineStructure, ByteOrder, int)}
+     * @throws IOException
+     */
+    public TabularFileWriter(String filePath, DataLineStructure lineStructure, int writeBufferSize)
+            throws IOException {
+        this(filePath, lineStructure, DEFAULT_FILE_ENDIANNESS, DEFAULT_ENDIANNESS, writeBufferSize, false);
+    }
+
+    /**
+     * New files use the native byte order, existing files keep the one they record
+     *
+     * @param filePath
+     * @param lineStructure
+     * @param writeBufferSize see {@link #TabularFileWriter(String, DataLineStructure, ByteOrder, int)}
+     * @param zoneMap         see {@link #TabularFileWriter(String, DataLineStructure, ByteOrder, int, boolean)}
+     * @throws IOException
+     */
+    public TabularFileWriter(String filePath, DataLineStructure lineStructure, int writeBufferSize, boolean zoneMap)
+            throws IOException {
+        this(filePath, lineStructure, DEFAULT_FILE_ENDIANNESS, DEFAULT_ENDIANNESS, writeBufferSize, zoneMap);
+    }
+
+    /**
+     * New files use the native byte order, existing files keep the one they record
+     *
+     * @param filePath
+     * @param lineStructure
+     * @throws IOException
+     */
+    public TabularFileWriter(String filePath, DataLineStructure lineStructure) throws IOException {
+        this(filePath, lineStructure, 0);
+    }
+
+    /**
+     * @param newFileEndianness    byte order if the file is created
+     * @param legacyFileEndianness byte order of existing files that do not record it
+     */
+    private TabularFileWriter(String filePath, DataLineStructure lineStructure, ByteOrder newFileEndianness,
+            ByteOrder legacyFileEndianness, int writeBufferSize, boolean zoneMap) throws IOException {
         this.filePath = filePath;
         this.lineStructure = lineStructure;
         bytesPerLine = lineStructure.getSizeInBytes();
         if (bytesPerLine > MAX_BUFFER_SIZE) {
             throw new IllegalStateException();
         }
-        headerLength = lineStructure.getNumberOfElements() + 1;
-        boolean newFile = true;
-        if (new File(filePath).exists()) {
-            try {
-                verifyFileHeader(filePath);
-            } catch (IllegalStateException | InvalidDataLineStructureException e) {
-                close();
-                throw e;
-            }
-            newFile = false;
+        boolean newFile = !new File(filePath).exists();
+        if (newFile) {
+            header = FileHeader.create(lineStructure, newFileEndianness);
+        } else {
+            header = readFileHeader(filePath, legacyFileEndianness);
         }
+        endianness = header.getEndianness();
+        headerLength = header.getLength();
+        headerNumberOfLines = header.getNumberOfLines();
         randomAccessFile = new RandomAccessFile(filePath, "rw");
         fileChannel = randomAccessFile.getChannel();
         if (newFile) {
-            writeFileHeader();
+            flipAndWrite(header.encode(0), 0);
         }
         lineBuffer = ByteBuffer.allocateDirect(lineStructure.getSizeInBytes()).order(endianness);
+        if (writeBufferSize > 0) {
+            int linesPerBuffer = Math.max(1, Math.min(writeBufferSize, MAX_BUFFER_SIZE) / bytesPerLine);
+            writeBehindBuffer = ByteBuffer.allocateDirect(linesPerBuffer * bytesPerLine).order(endianness);
+        } else {
+            writeBehindBuffer = null;
+        }
         currentLineIndex = ((fileChannel.size() - (long) headerLength) / (long) bytesPerLine);
-    }
-
-    public TabularFileWriter(String filePath, DataLineStructure lineStructure) throws IOException {
-        this(filePath, lineStructure, DEFAULT_ENDIANNESS);
+        flushedLineIndex = currentLineIndex;
+        if (zoneMap) {
+            try {
+                this.zoneMap = newFile ? new ZoneMap(lineStructure, DataLineCursor.getLinesPerBlock(bytesPerLine))
+                        : loadZoneMap();
+            } catch (IOException | RuntimeException e) {
+                randomAccessFile.close();
+                throw e;
+            }
+        } else {
+            this.zoneMap = null;
+        }
     }
 
     public void writeLine(DataLine dataLine) throws IOException {
+        if (isBuffered()) {
+            appendToWriteBehindBuffer(dataLine);
+            return;
+        }
         writeLines(currentLineIndex, new DataLine[]{dataLine});
     }
 
@@ -73,6 +175,16 @@ public class TabularFileWriter implements Closeable {
         if (startLineIndex < 0 || startLineIndex > currentLineIndex) {
             throw new IndexOutOfBoundsException();
         }
+        if (isBuffered()) {
+            if (startLineIndex == currentLineIndex
+                    && (long) dataLines.length * (long) bytesPerLine < writeBehindBuffer.capacity()) {
+                for (DataLine dataLine : dataLines) {
+                    appendToWriteBehindBuffer(dataLine);
+                }
+                return;
+            }
+            writeBehindLines();
+        }
         ByteBuffer writeBuffer;
         if (dataLines.length > 1) {
             long bytesToWrite = (long) dataLines.length * (long) bytesPerLine;
@@ -83,7 +195,7 @@ public class TabularFileWriter implements Closeable {
                 return;
             }
             if (multipleLinesBuffer == null || multipleLinesBuffer.capacity() < bytesToWrite) {
-                multipleLinesBuffer = ByteBuffer.allocateDirect((int) bytesToWrite);
+                multipleLinesBuffer = ByteBuffer.allocateDirect((int) bytesToWrite).order(endianness);
             }
             writeBuffer = multipleLinesBuffer;
         } else {
@@ -91,10 +203,43 @@ public class TabularFileWriter implements Closeable {
         }
         writeBuffer.clear();
         writeDataLinesToBuffer(dataLines, writeBuffer);
-        flipAndWrite(writeBuffer, getLinePosition(startLineIndex));
+        writeEncodedLines(writeBuffer, startLineIndex);
         if (startLineIndex + dataLines.length > currentLineIndex) {
             currentLineIndex += dataLines.length + startLineIndex - currentLineIndex;
         }
+        flushedLineIndex = currentLineIndex;
+    }
+
+    /**
+     * Writes the lines accumulated in the write behind buffer, if any, updates the number of lines recorded in the
+     * file header and saves the zone map if it is kept
+     *
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        writeBehindLines();
+        updateFileHeader();
+        if (zoneMap != null && zoneMap.isModified()) {
+            zoneMap.write(filePath);
+        }
+    }
+
+    /**
+     * @return number of lines, including the ones not flushed yet
+     */
+    public long getNumberOfLines() {
+        return currentLineIndex;
+    }
+
+    public boolean isBuffered() {
+        return writeBehindBuffer != null;
+    }
+
+    /**
+     * @return true if a zone map is kept for the file
+     */
+    public boolean hasZoneMap() {
+        return zoneMap != null;
     }
 
     public boolean isOpen() {
@@ -108,17 +253,123 @@ public class TabularFileWriter implements Closeable {
     }
 
     public void close() throws IOException {
-        randomAccessFile.close();
+        try {
+            flush();
+        } finally {
+            randomAccessFile.close();
+        }
     }
 
     public String getFilePath() {
         return filePath;
     }
 
+    public DataLineStructure getLineStructure() {
+        return lineStructure;
+    }
+
+    /**
+     * @return byte order of the file
+     */
+    public ByteOrder getEndianness() {
+        return endianness;
+    }
+
+    /**
+     * Encodes a line at the current position of the buffer
+     *
+     * @param dataLine
+     * @param buffer   must have the writer endianness
+     */
+    void encodeLine(DataLine dataLine, ByteBuffer buffer) {
+        if (!dataLine.getLineStructure().equals(lineStructure)) {
+            throw new InvalidDataLineStructureException();
+        }
+        appendDataLineToBuffer(dataLine, buffer);
+    }
+
+    /**
+     * Appends already encoded lines to the end of the file
+     *
+     * @param encodedLines whole lines between 0 and the buffer position
+     * @throws IOException
+     */
+    void appendEncodedLines(ByteBuffer encodedLines) throws IOException {
+        if (encodedLines.position() % bytesPerLine != 0) {
+            throw new IllegalArgumentException();
+        }
+        writeBehindLines();
+        int lines = encodedLines.position() / bytesPerLine;
+        writeEncodedLines(encodedLines, currentLineIndex);
+        currentLineIndex += lines;
+        flushedLineIndex = currentLineIndex;
+    }
+
+    private void writeBehindLines() throws IOException {
+        if (bufferedLines == 0) {
+            return;
+        }
+        writeEncodedLines(writeBehindBuffer, flushedLineIndex);
+        writeBehindBuffer.clear();
+        flushedLineIndex += bufferedLines;
+        bufferedLines = 0;
+    }
+
+    /**
+     * Legacy headers do not record the number of lines, they are left untouched
+     */
+    private void updateFileHeader() throws IOException {
+        if (header.getVersion() == FileHeader.LEGACY_VERSION || headerNumberOfLines == flushedLineIndex) {
+            return;
+        }
+        flipAndWrite(header.encode(flushedLineIndex), 0);
+        headerNumberOfLines = flushedLineIndex;
+    }
+
+    /**
+     * @param encodedLines whole lines between 0 and the buffer position
+     * @param lineIndex    index of the first line
+     * @throws IOException
+     */
+    private void writeEncodedLines(ByteBuffer encodedLines, long lineIndex) throws IOException {
+        if (zoneMap != null) {
+            zoneMap.update(lineIndex, encodedLines, 0, encodedLines.position());
+        }
+        flipAndWrite(encodedLines, getLinePosition(lineIndex));
+    }
+
+    /**
+     * Zone map saved next to the file, rebuilt from the file if it is missing or does not cover every line
+     */
+    private ZoneMap loadZoneMap() throws IOException {
+        ZoneMap savedZoneMap = ZoneMap.read(filePath, lineStructure);
+        if (savedZoneMap != null && savedZoneMap.getNumberOfLines() == currentLineIndex) {
+            return savedZoneMap;
+        }
+        TabularFileReader reader = new TabularFileReader(filePath, endianness);
+        try {
+            return ZoneMap.build(reader, DataLineCursor.getLinesPerBlock(bytesPerLine));
+        } finally {
+            reader.close();
+        }
+    }
+
     private long getLinePosition(long lineIndex) {
         return (lineIndex * (long) bytesPerLine) + (long) headerLength;
     }
 
+    private void appendToWriteBehindBuffer(DataLine dataLine) throws IOException {
+        if (!dataLine.getLineStructure().equals(lineStructure)) {
+            throw new InvalidDataLineStructureException();
+        }
+        if (writeBehindBuffer.remaining() < bytesPerLine) {
+            writeBehindLines();
+        }
+        appendDataLineToBuffer(dataLine, writeBehindBuffer);
+        bufferedLines++;
+        currentLineIndex++;
+    }
+
     private ByteBuffer writeDataLinesToBuffer(DataLine[] dataLines, ByteBuffer writeBuffer) {
         writeBuffer.clear();
         for (int i = 0; i < dataLines.length; i++) {
@@ -161,29 +412,21 @@ public class TabularFileWriter implements Closeable {
         return writeBuffer;
     }
 
-    private void verifyFileHeader(String filePath) throws IOException {
-        TabularFileReader reader = new TabularFileReader(filePath);
-        DataLineStructure fileLineStructure = reader.getLineStructure();
+    private FileHeader readFileHeader(String filePath, ByteOrder legacyFileEndianness) throws IOException {
+        TabularFileReader reader = new TabularFileReader(filePath, legacyFileEndianness);
+        FileHeader fileHeader = reader.getHeader();
         reader.close();
-        if (!lineStructure.equals(fileLineStructure)) {
+        if (!lineStructure.equals(fileHeader.getLineStructure())) {
             throw new InvalidDataLineStructureException();
         }
-    }
-
-    private void writeFileHeader() throws IOException {
-        ByteBuffer headerBuffer = ByteBuffer.allocate(lineStructure.getNumberOfElements() + 1);
-        headerBuffer.clear();
-        for (int i = 0; i < lineStructure.getNumberOfElements(); i++) {
-            headerBuffer.put(lineStructure.getElementType(i));
-        }
-        headerBuffer.put((byte) 0);
-        flipAndWrite(headerBuffer, 0);
+        return fileHeader;
     }
 
     private void flipAndWrite(ByteBuffer buffer, long position) throws IOException {
         buffer.flip();
+        long currentPosition = position;
         while (buffer.hasRemaining()) {
-            fileChannel.write(buffer, position);
+            currentPosition += fileChannel.write(buffer, currentPosition);
         }
     }
 }
@@ -2,6 +2,8 @@ package org.dgl.commons.io.tabular;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public interface TabularReader extends Closeable {
 
@@ -9,7 +11,38 @@ public interface TabularReader extends Closeable {
 
     long getNumberOfLines();
 
+    /**
+     * Reads the lines one by one with getLine(), readers that can read blocks of encoded lines override it
+     *
+     * @param firstIndex inclusive
+     * @param lastIndex  exclusive
+     * @return cursor over the range, independent of any other cursor of the reader
+     */
+    default DataLineCursor cursor(long firstIndex, long lastIndex) throws IOException {
+        return DataLineBlockSource.cursor(this, firstIndex, lastIndex);
+    }
+
     void close() throws IOException;
 
     void closeQuietly();
+
+    default DataLineCursor cursor() throws IOException {
+        return cursor(0, getNumberOfLines());
+    }
+
+    /**
+     * Stream of all lines, a new DataLine is created per line. Parallel streams split the lines evenly by index
+     */
+    default Stream<DataLine> lines() {
+        return StreamSupport.stream(new DataLineSpliterator<>(this, DataLineCursor::getDataLine), false);
+    }
+
+    /**
+     * Stream of all lines without allocation per line: every element is the same cursor moved to the next line, so
+     * elements must be consumed before the next one is requested and must not be kept. Each parallel split has
+     * its own cursor
+     */
+    default Stream<DataLineCursor> flyweightLines() {
+        return StreamSupport.stream(new DataLineSpliterator<>(this, cursor -> cursor), false);
+    }
 }
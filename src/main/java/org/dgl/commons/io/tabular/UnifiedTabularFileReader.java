@@ -2,17 +2,26 @@ package org.dgl.commons.io.tabular;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
- * Class to read several tabular files in one or more directories as one
+ * Class to read several tabular files in one or more directories as one. Files are opened on first access
  */
 public class UnifiedTabularFileReader implements TabularReader {
 
-    private TabularFileReader[] sortedDataFileReaders;
+    private TabularFileCatalog catalog;
+    private FileReaderPool readerPool;
     private long numberOfLines;
     private long[] fileBaseIndexes;
+    private DataLineStructure lineStructure;
+    private boolean sameLineStructure;
 
     /**
      * Files are sorted based on their full path
@@ -71,53 +80,659 @@ public class UnifiedTabularFileReader implements TabularReader {
      */
     public UnifiedTabularFileReader(File[] directories, Function<File, Boolean> filterFunction,
             Comparator<File> sortingComparator) throws IOException {
-        initialize(convertToArray(getSortedFiles(directories, filterFunction, sortingComparator)));
+        this(TabularFileCatalog.create(
+                convertToArray(getSortedFiles(directories, filterFunction, sortingComparator))));
     }
 
 
     public UnifiedTabularFileReader(File[] files) throws IOException {
-        initialize(files);
+        this(TabularFileCatalog.create(files));
+    }
+
+    /**
+     * No file is accessed until its lines are requested. A file that no longer has the lines or the structure
+     * recorded in the catalog fails with IllegalStateException when it is opened, lines appended after the catalog
+     * was created are ignored
+     *
+     * @param catalog files in the order their lines are unified
+     */
+    public UnifiedTabularFileReader(TabularFileCatalog catalog) {
+        this(catalog, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same as UnifiedTabularFileReader(catalog), with a bounded number of open files. Once maxOpenFiles are open
+     * the least recently used file is closed before opening another one, it is opened again when needed
+     *
+     * @param catalog      files in the order their lines are unified
+     * @param maxOpenFiles files being read at that moment are never closed, so the limit can be exceeded while more
+     *                     than maxOpenFiles files are read at once
+     */
+    public UnifiedTabularFileReader(TabularFileCatalog catalog, int maxOpenFiles) {
+        this(catalog, maxOpenFiles, null);
+    }
+
+    /**
+     * @param catalog      files in the order their lines are unified
+     * @param maxOpenFiles see UnifiedTabularFileReader(catalog, maxOpenFiles)
+     * @param blockCache   single line reads of every file are served from this cache, it outlives files closed to
+     *                     stay within maxOpenFiles. Null for no cache
+     */
+    public UnifiedTabularFileReader(TabularFileCatalog catalog, int maxOpenFiles, BlockCache blockCache) {
+        initialize(catalog, maxOpenFiles, blockCache);
+    }
+
+    /**
+     * Opens the catalog saved in a manifest file, see TabularFileCatalog.save()
+     *
+     * @param manifestFile
+     * @return
+     * @throws IOException
+     */
+    public static UnifiedTabularFileReader fromManifest(File manifestFile) throws IOException {
+        return new UnifiedTabularFileReader(TabularFileCatalog.load(manifestFile));
+    }
+
+    /**
+     * @param manifestFile
+     * @param maxOpenFiles see UnifiedTabularFileReader(catalog, maxOpenFiles)
+     * @return
+     * @throws IOException
+     */
+    public static UnifiedTabularFileReader fromManifest(File manifestFile, int maxOpenFiles) throws IOException {
+        return new UnifiedTabularFileReader(TabularFileCatalog.load(manifestFile), maxOpenFiles);
     }
 
     public DataLine getLine(long lineIndex) throws IOException {
-        long[] indexes = getReaderAndLineIndex(lineIndex);
-        return sortedDataFileReaders[(int) indexes[0]].getLine(indexes[1]);
+        int fileIndex = getFileIndex(lineIndex);
+        TabularFileReader reader = readerPool.acquire(fileIndex);
+        try {
+            return reader.getLine(getLineIndexInFile(fileIndex, lineIndex));
+        } finally {
+            readerPool.release(fileIndex);
+        }
     }
 
+    /**
+     * @param lineIndex
+     * @return bytes of the line in the byte order of its file, see {@link #getEndianness(long)}
+     * @throws IOException
+     */
     public byte[] getLineBytes(long lineIndex) throws IOException {
-        long[] indexes = getReaderAndLineIndex(lineIndex);
-        return sortedDataFileReaders[(int) indexes[0]].getLineBytes(indexes[1]);
+        int fileIndex = getFileIndex(lineIndex);
+        TabularFileReader reader = readerPool.acquire(fileIndex);
+        try {
+            return reader.getLineBytes(getLineIndexInFile(fileIndex, lineIndex));
+        } finally {
+            readerPool.release(fileIndex);
+        }
+    }
+
+    /**
+     * @param lineIndex
+     * @return byte order of the file holding the line
+     * @throws IOException
+     */
+    public ByteOrder getEndianness(long lineIndex) throws IOException {
+        int fileIndex = getFileIndex(lineIndex);
+        TabularFileReader reader = readerPool.acquire(fileIndex);
+        try {
+            return reader.getEndianness();
+        } finally {
+            readerPool.release(fileIndex);
+        }
+    }
+
+    /**
+     * @param lineIndex
+     * @param projection elements to decode, for lines of the structure of the files
+     * @return line with the structure of the projection
+     * @throws IOException
+     */
+    public DataLine getLine(long lineIndex, LineProjection projection) throws IOException {
+        int fileIndex = getFileIndex(lineIndex);
+        TabularFileReader reader = readerPool.acquire(fileIndex);
+        try {
+            return reader.getLine(getLineIndexInFile(fileIndex, lineIndex), projection);
+        } finally {
+            readerPool.release(fileIndex);
+        }
+    }
+
+    /**
+     * Lines are read whole, only the elements of the projection are decoded
+     *
+     * @param firstIndex inclusive
+     * @param lastIndex  exclusive
+     * @param projection elements to decode, for lines of the structure of the files
+     * @return lines with the structure of the projection
+     * @throws IOException
+     */
+    public DataLine[] getLines(long firstIndex, long lastIndex, LineProjection projection) throws IOException {
+        validateGet(firstIndex, lastIndex);
+        if (lastIndex - firstIndex > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+        DataLine[] dataLines = new DataLine[(int) (lastIndex - firstIndex)];
+        getLines(firstIndex, lastIndex, projection, dataLines, 0);
+        return dataLines;
+    }
+
+    /**
+     * Range is split at file boundaries, each part is read with one request to its file
+     *
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param projection        elements to decode, for lines of the structure of the files
+     * @param destination
+     * @param destinationOffset position in destination of the first line
+     * @throws IOException
+     */
+    public void getLines(long firstIndex, long lastIndex, LineProjection projection, DataLine[] destination,
+            int destinationOffset) throws IOException {
+        validateGet(firstIndex, lastIndex);
+        int fileIndex = getFileIndex(firstIndex);
+        int destinationIndex = destinationOffset;
+        long lineIndex = firstIndex;
+        while (lineIndex < lastIndex) {
+            long fileLastIndex = Math.min(fileBaseIndexes[fileIndex], lastIndex);
+            if (fileLastIndex > lineIndex) {
+                TabularFileReader reader = readerPool.acquire(fileIndex);
+                try {
+                    reader.getLines(getLineIndexInFile(fileIndex, lineIndex),
+                            getLineIndexInFile(fileIndex, fileLastIndex), projection, destination, destinationIndex);
+                } finally {
+                    readerPool.release(fileIndex);
+                }
+                destinationIndex += (int) (fileLastIndex - lineIndex);
+                lineIndex = fileLastIndex;
+            }
+            fileIndex++;
+        }
+    }
+
+    /**
+     * @param firstIndex inclusive
+     * @param lastIndex  exclusive
+     * @return
+     * @throws IOException
+     */
+    public DataLine[] getLines(long firstIndex, long lastIndex) throws IOException {
+        validateGet(firstIndex, lastIndex);
+        if (lastIndex - firstIndex > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+        DataLine[] dataLines = new DataLine[(int) (lastIndex - firstIndex)];
+        getLines(firstIndex, lastIndex, dataLines, 0);
+        return dataLines;
+    }
+
+    /**
+     * Range is split at file boundaries, each part is read with one request to its file
+     *
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the first line
+     * @throws IOException
+     */
+    public void getLines(long firstIndex, long lastIndex, DataLine[] destination, int destinationOffset)
+            throws IOException {
+        validateGet(firstIndex, lastIndex);
+        int fileIndex = getFileIndex(firstIndex);
+        int destinationIndex = destinationOffset;
+        long lineIndex = firstIndex;
+        while (lineIndex < lastIndex) {
+            long fileLastIndex = Math.min(fileBaseIndexes[fileIndex], lastIndex);
+            if (fileLastIndex > lineIndex) {
+                TabularFileReader reader = readerPool.acquire(fileIndex);
+                try {
+                    reader.getLines(getLineIndexInFile(fileIndex, lineIndex),
+                            getLineIndexInFile(fileIndex, fileLastIndex), destination, destinationIndex);
+                } finally {
+                    readerPool.release(fileIndex);
+                }
+                destinationIndex += (int) (fileLastIndex - lineIndex);
+                lineIndex = fileLastIndex;
+            }
+            fileIndex++;
+        }
+    }
+
+    /**
+     * @param firstIndex inclusive
+     * @param lastIndex  exclusive
+     * @return bytes of the lines, see {@link #getLinesBytes(long, long, byte[], int)}
+     * @throws IOException
+     */
+    public byte[] getLinesBytes(long firstIndex, long lastIndex) throws IOException {
+        validateGet(firstIndex, lastIndex);
+        if (!sameLineStructure) {
+            throw new InvalidDataLineStructureException();
+        }
+        long bytesToRead = (lastIndex - firstIndex) * (long) getBytesPerLine();
+        if (bytesToRead > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+        byte[] linesBytes = new byte[(int) bytesToRead];
+        getLinesBytes(firstIndex, lastIndex, linesBytes, 0);
+        return linesBytes;
+    }
+
+    /**
+     * Range is split at file boundaries, each part is read with one request to its file. Files must share one line
+     * structure, and the files of the range one byte order, which is the order of the bytes
+     *
+     * @param firstIndex        inclusive
+     * @param lastIndex         exclusive
+     * @param destination
+     * @param destinationOffset position in destination of the first byte of the first line
+     * @throws IOException
+     * @throws InvalidDataLineStructureException if the files have different structures, or the files of the range
+     *                                           different byte orders
+     */
+    public void getLinesBytes(long firstIndex, long lastIndex, byte[] destination, int destinationOffset)
+            throws IOException {
+        validateGet(firstIndex, lastIndex);
+        if (!sameLineStructure) {
+            throw new InvalidDataLineStructureException();
+        }
+        ByteOrder endianness = null;
+        int fileIndex = getFileIndex(firstIndex);
+        int destinationIndex = destinationOffset;
+        long lineIndex = firstIndex;
+        while (lineIndex < lastIndex) {
+            long fileLastIndex = Math.min(fileBaseIndexes[fileIndex], lastIndex);
+            if (fileLastIndex > lineIndex) {
+                TabularFileReader reader = readerPool.acquire(fileIndex);
+                try {
+                    if (endianness == null) {
+                        endianness = reader.getEndianness();
+                    } else if (reader.getEndianness() != endianness) {
+                        throw new InvalidDataLineStructureException("Files have different byte orders");
+                    }
+                    reader.getLinesBytes(getLineIndexInFile(fileIndex, lineIndex),
+                            getLineIndexInFile(fileIndex, fileLastIndex), destination, destinationIndex);
+                } finally {
+                    readerPool.release(fileIndex);
+                }
+                destinationIndex += (int) (fileLastIndex - lineIndex) * getBytesPerLine();
+                lineIndex = fileLastIndex;
+            }
+            fileIndex++;
+        }
+    }
+
+    /**
+     * Scans every line in parallel on the given fork/join pool. Lines are divided in file and block aligned
+     * ranges, each range is read by a worker with its own cursor and accumulated into its own container
+     *
+     * @param supplier    creates an empty container for each range
+     * @param accumulator called once per line with the cursor positioned on it, cursor must not be kept
+     * @param combiner    merges two containers, ranges are combined in order
+     * @param pool        lines are divided for its parallelism, it is not shut down
+     * @return the combined container
+     * @throws IOException
+     */
+    public <A> A parallelScan(Supplier<A> supplier, BiConsumer<A, DataLineCursor> accumulator,
+            BinaryOperator<A> combiner, ForkJoinPool pool) throws IOException {
+        return newParallelScan(supplier, accumulator, combiner, pool.getParallelism()).invoke(pool);
+    }
+
+    /**
+     * Same as parallelScan(supplier, accumulator, combiner, pool), run on a pool of parallelism threads created
+     * for this call and shut down afterwards. Starting the threads is paid on every call, repeated scans should
+     * pass their own pool instead
+     *
+     * @param supplier
+     * @param accumulator
+     * @param combiner
+     * @param parallelism number of worker threads
+     * @return the combined container
+     * @throws IOException
+     */
+    public <A> A parallelScan(Supplier<A> supplier, BiConsumer<A, DataLineCursor> accumulator,
+            BinaryOperator<A> combiner, int parallelism) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return parallelScan(supplier, accumulator, combiner, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Same as parallelScan(supplier, accumulator, combiner, pool), run on the common fork/join pool
+     */
+    public <A> A parallelScan(Supplier<A> supplier, BiConsumer<A, DataLineCursor> accumulator,
+            BinaryOperator<A> combiner) throws IOException {
+        return parallelScan(supplier, accumulator, combiner, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Cursor over a range of lines of all files, values are read in place so no DataLine is created per line
+     *
+     * @param firstIndex inclusive
+     * @param lastIndex  exclusive
+     * @return
+     */
+    public DataLineCursor cursor(long firstIndex, long lastIndex) {
+        if (!sameLineStructure) {
+            throw new InvalidDataLineStructureException();
+        }
+        if (firstIndex < 0 || lastIndex > numberOfLines || lastIndex < firstIndex) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new DataLineCursor(this::readBlock, true, lineStructure, firstIndex, lastIndex);
+    }
+
+    /**
+     * Index of the first line whose value of a sorted element is not lower than the key. Files must be in the
+     * order of the element: the file is found by binary search on the last line of the files, then the line by
+     * binary search inside it
+     *
+     * @param elementIndex element declared as sorted in the header of every file
+     * @param key          compared as a double if the element is a float or a double
+     * @return number of lines if every value is lower than the key
+     * @throws IOException
+     */
+    public long seek(int elementIndex, long key) throws IOException {
+        validateSorted(elementIndex);
+        return lowerBound(SeekKey.create(lineStructure, elementIndex, key), 0, numberOfLines);
+    }
+
+    /**
+     * Same as seek(elementIndex, long key), for integral elements the key is rounded up
+     */
+    public long seek(int elementIndex, double key) throws IOException {
+        validateSorted(elementIndex);
+        return lowerBound(SeekKey.create(lineStructure, elementIndex, key), 0, numberOfLines);
+    }
+
+    /**
+     * Same as seek(elementIndex, key), only the lines between two entries of the index are searched
+     *
+     * @param fenceIndex created by this reader
+     * @param key
+     * @return
+     * @throws IOException
+     */
+    public long seek(FenceIndex fenceIndex, long key) throws IOException {
+        validateSorted(fenceIndex.getElementIndex());
+        return seek(fenceIndex, SeekKey.create(lineStructure, fenceIndex.getElementIndex(), key));
+    }
+
+    public long seek(FenceIndex fenceIndex, double key) throws IOException {
+        validateSorted(fenceIndex.getElementIndex());
+        return seek(fenceIndex, SeekKey.create(lineStructure, fenceIndex.getElementIndex(), key));
+    }
+
+    /**
+     * Reads the value of a sorted element every interval lines of all files
+     *
+     * @param elementIndex element declared as sorted in the header of every file
+     * @param interval     number of lines between entries
+     * @return
+     * @throws IOException
+     */
+    public FenceIndex createFenceIndex(int elementIndex, int interval) throws IOException {
+        if (interval <= 0) {
+            throw new IllegalArgumentException();
+        }
+        validateSorted(elementIndex);
+        SeekKey key = SeekKey.create(lineStructure, elementIndex, 0L);
+        long numberOfEntries = (numberOfLines + interval - 1) / interval;
+        if (numberOfEntries > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException();
+        }
+        long[] values = new long[(int) numberOfEntries];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readValue(key, (long) i * interval);
+        }
+        return new FenceIndex(elementIndex, interval, numberOfLines, values);
+    }
+
+    /**
+     * Cursor over a range of lines of all files that reads large blocks ahead on a dedicated thread, so reading
+     * overlaps decoding. Blocks never span two files. It must be closed if it is not read to the end
+     *
+     * @param firstIndex    inclusive
+     * @param lastIndex     exclusive
+     * @param blockSize     size of each read, rounded down to whole lines (at least one)
+     * @param prefetchDepth number of blocks read ahead of the one being decoded
+     * @return
+     */
+    public DataLineCursor prefetchingCursor(long firstIndex, long lastIndex, int blockSize, int prefetchDepth) {
+        if (!sameLineStructure) {
+            throw new InvalidDataLineStructureException();
+        }
+        if (firstIndex < 0 || lastIndex > numberOfLines || lastIndex < firstIndex) {
+            throw new IndexOutOfBoundsException();
+        }
+        LineBlockSource source = new PrefetchingBlockSource(this::readBlock, "UnifiedTabularFileReader-prefetch",
+                getBytesPerLine(), blockSize, prefetchDepth, firstIndex, lastIndex);
+        return new DataLineCursor(source, false, lineStructure,
+                PrefetchingBlockSource.getLinesPerBlock(getBytesPerLine(), blockSize), firstIndex, lastIndex);
+    }
+
+    /**
+     * Prefetching cursor over all lines with blocks of 1 MB read two blocks ahead
+     */
+    public DataLineCursor prefetchingCursor() {
+        return prefetchingCursor(0, numberOfLines, PrefetchingBlockSource.DEFAULT_PREFETCH_BLOCK_SIZE,
+                PrefetchingBlockSource.DEFAULT_PREFETCH_DEPTH);
     }
 
     public long getNumberOfLines() {
         return numberOfLines;
     }
 
+    /**
+     * @return structure of the first file
+     */
+    public DataLineStructure getLineStructure() {
+        return lineStructure;
+    }
+
+    /**
+     * @return files read, it can be saved to open the same files faster later
+     */
+    public TabularFileCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * @return maximum number of open files, Integer.MAX_VALUE if files are never closed before close() is called
+     */
+    public int getMaxOpenFiles() {
+        return readerPool.getMaxOpenFiles();
+    }
+
+    public int getNumberOfOpenFiles() {
+        return readerPool.getNumberOfOpenFiles();
+    }
+
+    /**
+     * @return number of file accesses that found the file already open
+     */
+    public long getFileHandleHits() {
+        return readerPool.getHits();
+    }
+
+    /**
+     * @return number of file accesses that had to open the file
+     */
+    public long getFileHandleMisses() {
+        return readerPool.getMisses();
+    }
+
+    /**
+     * @return number of files closed to stay within the maximum number of open files
+     */
+    public long getFileHandleEvictions() {
+        return readerPool.getEvictions();
+    }
+
+    /**
+     * Closes the open files, lines can not be read afterwards
+     *
+     * @throws IOException
+     */
     public void close() throws IOException {
-        for (TabularFileReader reader : sortedDataFileReaders) {
-            reader.close();
-        }
+        readerPool.close();
     }
 
     public void closeQuietly() {
-        for (TabularFileReader reader : sortedDataFileReaders) {
-            reader.closeQuietly();
+        try {
+            close();
+        } catch (IOException e) {}
+    }
+
+    private int getBytesPerLine() {
+        return lineStructure.getSizeInBytes();
+    }
+
+    /**
+     * Blocks never span two files
+     */
+    private ByteBuffer readBlock(long firstIndex, int maxLines, ByteBuffer buffer) throws IOException {
+        int fileIndex = getFileIndex(firstIndex);
+        int lines = (int) Math.min(maxLines, fileBaseIndexes[fileIndex] - firstIndex);
+        return readFileBlock(fileIndex, getLineIndexInFile(fileIndex, firstIndex), lines, buffer);
+    }
+
+    /**
+     * @param fileIndex
+     * @param firstIndex index of the first line in the file
+     * @param maxLines
+     * @param buffer
+     * @return
+     * @throws IOException
+     */
+    private ByteBuffer readFileBlock(int fileIndex, long firstIndex, int maxLines, ByteBuffer buffer)
+            throws IOException {
+        TabularFileReader reader = readerPool.acquire(fileIndex);
+        try {
+            return reader.readBlock(firstIndex, maxLines, buffer);
+        } finally {
+            readerPool.release(fileIndex);
+        }
+    }
+
+    private <A> ParallelScan<A> newParallelScan(Supplier<A> supplier, BiConsumer<A, DataLineCursor> accumulator,
+            BinaryOperator<A> combiner, int parallelism) {
+        long[] fileLines = new long[catalog.getNumberOfFiles()];
+        DataLineStructure[] fileLineStructures = new DataLineStructure[catalog.getNumberOfFiles()];
+        for (int i = 0; i < fileLines.length; i++) {
+            fileLines[i] = catalog.getEntry(i).getNumberOfLines();
+            fileLineStructures[i] = catalog.getEntry(i).getLineStructure();
+        }
+        return new ParallelScan<>(fileLines, fileLineStructures, this::getFileCursor, supplier, accumulator,
+                combiner, parallelism);
+    }
+
+    private void validateSorted(int elementIndex) {
+        if (!sameLineStructure) {
+            throw new InvalidDataLineStructureException();
+        }
+        for (int i = 0; i < catalog.getNumberOfFiles(); i++) {
+            SeekKey.validateSorted(catalog.getEntry(i).getLineStructure(), elementIndex);
+        }
+    }
+
+    private long seek(FenceIndex fenceIndex, SeekKey key) throws IOException {
+        return lowerBound(key, fenceIndex.getSearchStart(key, numberOfLines),
+                fenceIndex.getSearchEnd(key, numberOfLines));
+    }
+
+    /**
+     * Finds the first file whose last line in the range is not before the key, then searches inside it
+     *
+     * @param key
+     * @param firstIndex inclusive
+     * @param lastIndex  exclusive
+     * @return first line of the range not before the key, lastIndex if there is none
+     * @throws IOException
+     */
+    private long lowerBound(SeekKey key, long firstIndex, long lastIndex) throws IOException {
+        if (firstIndex >= lastIndex) {
+            return lastIndex;
+        }
+        int lastFileIndex = getFileIndex(lastIndex - 1);
+        int low = getFileIndex(firstIndex);
+        int high = lastFileIndex + 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (key.isBefore(readValue(key, Math.min(fileBaseIndexes[middle], lastIndex) - 1))) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low > lastFileIndex) {
+            return lastIndex;
+        }
+        long fileFirstIndex = getLineIndexInFile(low, Math.max(firstIndex, getFileFirstIndex(low)));
+        long fileLastIndex = getLineIndexInFile(low, Math.min(fileBaseIndexes[low], lastIndex));
+        TabularFileReader reader = readerPool.acquire(low);
+        try {
+            return getFileFirstIndex(low) + reader.lowerBound(key, fileFirstIndex, fileLastIndex);
+        } finally {
+            readerPool.release(low);
+        }
+    }
+
+    private long readValue(SeekKey key, long lineIndex) throws IOException {
+        int fileIndex = getFileIndex(lineIndex);
+        TabularFileReader reader = readerPool.acquire(fileIndex);
+        try {
+            return reader.readValue(key, getLineIndexInFile(fileIndex, lineIndex));
+        } finally {
+            readerPool.release(fileIndex);
+        }
+    }
+
+    /**
+     * @return index of the first line of the file among the lines of all files
+     */
+    private long getFileFirstIndex(int fileIndex) {
+        return fileIndex == 0 ? 0 : fileBaseIndexes[fileIndex - 1];
+    }
+
+    private DataLineCursor getFileCursor(int fileIndex, long firstIndex, long lastIndex) {
+        return new DataLineCursor(
+                (first, maxLines, buffer) -> readFileBlock(fileIndex, first, maxLines, buffer), true,
+                catalog.getEntry(fileIndex).getLineStructure(), firstIndex, lastIndex);
+    }
+
+    private void validateGet(long firstIndex, long lastIndex) {
+        if (lastIndex <= firstIndex) {
+            throw new IllegalArgumentException();
+        }
+        if (firstIndex < 0 || lastIndex > numberOfLines) {
+            throw new IndexOutOfBoundsException();
         }
     }
 
-    private void initialize(File[] files) throws IOException {
-        sortedDataFileReaders = new TabularFileReader[files.length];
-        fileBaseIndexes = new long[files.length];
+    private void initialize(TabularFileCatalog catalog, int maxOpenFiles, BlockCache blockCache) {
+        int numberOfFiles = catalog.getNumberOfFiles();
+        this.catalog = catalog;
+        readerPool = new FileReaderPool(catalog, maxOpenFiles, blockCache);
+        fileBaseIndexes = new long[numberOfFiles];
         long lineCounter = 0;
-        for (int i = 0; i < files.length; i++) {
-            sortedDataFileReaders[i] = new TabularFileReader(files[i].getAbsolutePath());
-            lineCounter += sortedDataFileReaders[i].getNumberOfLines();
+        for (int i = 0; i < numberOfFiles; i++) {
+            lineCounter += catalog.getEntry(i).getNumberOfLines();
             fileBaseIndexes[i] = lineCounter;
         }
         numberOfLines = lineCounter;
+        lineStructure = numberOfFiles == 0 ? new DataLineStructure(0) : catalog.getEntry(0).getLineStructure();
+        sameLineStructure = true;
+        for (int i = 0; i < numberOfFiles; i++) {
+            sameLineStructure &= catalog.getEntry(i).getLineStructure().equals(lineStructure);
+        }
     }
 
-    private SortedSet<File> getSortedFiles(File[] directories, Function<File, Boolean> filterFunction,
+    private static SortedSet<File> getSortedFiles(File[] directories, Function<File, Boolean> filterFunction,
             Comparator<File> sortingComparator) {
         SortedSet<File> sortedFiles = new TreeSet<>(sortingComparator);
         for (File path : directories) {
@@ -135,19 +750,38 @@ public class UnifiedTabularFileReader implements TabularReader {
         return sortedFiles;
     }
 
-    private long[] getReaderAndLineIndex(long virtualIndex) {
-        int fileIndex = 0;
-        while (fileBaseIndexes[fileIndex] <= virtualIndex) {
-            fileIndex++;
+    /**
+     * Binary search of the first file whose accumulated number of lines is greater than the index, empty files
+     * are skipped
+     *
+     * @param virtualIndex
+     * @return index of the file holding the line
+     */
+    private int getFileIndex(long virtualIndex) {
+        if (virtualIndex < 0 || virtualIndex >= numberOfLines) {
+            throw new IndexOutOfBoundsException();
         }
-        long lineIndex = virtualIndex;
-        if (fileIndex > 0) {
-            lineIndex -= fileBaseIndexes[fileIndex - 1];
+        int low = 0;
+        int high = fileBaseIndexes.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (fileBaseIndexes[middle] <= virtualIndex) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long getLineIndexInFile(int fileIndex, long virtualIndex) {
+        if (fileIndex == 0) {
+            return virtualIndex;
         }
-        return new long[]{fileIndex, lineIndex};
+        return virtualIndex - fileBaseIndexes[fileIndex - 1];
     }
 
-    private File[] convertToArray(SortedSet<File> sortedFiles) {
+    private static File[] convertToArray(SortedSet<File> sortedFiles) {
         File[] filesArray = new File[sortedFiles.size()];
         Iterator<File> filesIterator = sortedFiles.iterator();
         int counter = 0;
@@ -4,12 +4,32 @@ import javafx.util.Pair;
 import org.dgl.commons.io.PrimitiveBytes;
 
 import java.io.File;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.dgl.commons.io.Definitions.DEFAULT_ENDIANNESS;
+
 public class Utils {
 
+    /**
+     * @deprecated decodes big endian bytes, while new files are written in the native byte order. Use
+     * {@link #getDataLineFromBytes(byte[], DataLineStructure, ByteOrder)} with the getEndianness() of the reader
+     * the bytes were read from
+     */
+    @Deprecated
     public static DataLine getDataLineFromBytes(byte[] dataLineBytes, DataLineStructure lineStructure) {
+        return getDataLineFromBytes(dataLineBytes, lineStructure, DEFAULT_ENDIANNESS);
+    }
+
+    /**
+     * @param dataLineBytes
+     * @param lineStructure
+     * @param endianness    byte order of the bytes, use the one of the file they were read from
+     * @return
+     */
+    public static DataLine getDataLineFromBytes(byte[] dataLineBytes, DataLineStructure lineStructure,
+            ByteOrder endianness) {
         DataLine dataLine = new DataLine(lineStructure);
         int currentOffset = 0;
 
@@ -20,22 +40,22 @@ public class Utils {
                     dataLine.setByte(i, dataLineBytes[currentOffset]);
                     break;
                 case PrimitiveType.CHAR:
-                    dataLine.setChar(i, PrimitiveBytes.getChar(dataLineBytes, currentOffset));
+                    dataLine.setChar(i, PrimitiveBytes.getChar(dataLineBytes, currentOffset, endianness));
                     break;
                 case PrimitiveType.SHORT:
-                    dataLine.setShort(i, PrimitiveBytes.getShort(dataLineBytes, currentOffset));
+                    dataLine.setShort(i, PrimitiveBytes.getShort(dataLineBytes, currentOffset, endianness));
                     break;
                 case PrimitiveType.INT:
-                    dataLine.setInt(i, PrimitiveBytes.getInt(dataLineBytes, currentOffset));
+                    dataLine.setInt(i, PrimitiveBytes.getInt(dataLineBytes, currentOffset, endianness));
                     break;
                 case PrimitiveType.LONG:
-                    dataLine.setLong(i, PrimitiveBytes.getLong(dataLineBytes, currentOffset));
+                    dataLine.setLong(i, PrimitiveBytes.getLong(dataLineBytes, currentOffset, endianness));
                     break;
                 case PrimitiveType.FLOAT:
-                    dataLine.setFloat(i, PrimitiveBytes.getFloat(dataLineBytes, currentOffset));
+                    dataLine.setFloat(i, PrimitiveBytes.getFloat(dataLineBytes, currentOffset, endianness));
                     break;
                 case PrimitiveType.DOUBLE:
-                    dataLine.setDouble(i, PrimitiveBytes.getDouble(dataLineBytes, currentOffset));
+                    dataLine.setDouble(i, PrimitiveBytes.getDouble(dataLineBytes, currentOffset, endianness));
                     break;
                 default:
                     throw new IllegalStateException();
@@ -45,7 +65,21 @@ public class Utils {
         return dataLine;
     }
 
+    /**
+     * @deprecated encodes big endian bytes, while new files are written in the native byte order. Use
+     * {@link #getDataLineBytes(DataLine, ByteOrder)} with the byte order of the file the bytes are meant for
+     */
+    @Deprecated
     public static byte[] getDataLineBytes(DataLine dataLine) {
+        return getDataLineBytes(dataLine, DEFAULT_ENDIANNESS);
+    }
+
+    /**
+     * @param dataLine
+     * @param endianness byte order of the returned bytes
+     * @return
+     */
+    public static byte[] getDataLineBytes(DataLine dataLine, ByteOrder endianness) {
         DataLineStructure lineStructure = dataLine.getLineStructure();
         byte[] bytes = new byte[lineStructure.getSizeInBytes()];
         int currentOffset = 0;
@@ -57,22 +91,22 @@ public class Utils {
                     bytes[currentOffset] = dataLine.getByte(i);
                     break;
                 case PrimitiveType.CHAR:
-                    PrimitiveBytes.putCharBytesInArray(dataLine.getChar(i), bytes, currentOffset);
+                    PrimitiveBytes.putCharBytesInArray(dataLine.getChar(i), bytes, currentOffset, endianness);
                     break;
                 case PrimitiveType.SHORT:
-                    PrimitiveBytes.putShortBytesInArray(dataLine.getShort(i), bytes, currentOffset);
+                    PrimitiveBytes.putShortBytesInArray(dataLine.getShort(i), bytes, currentOffset, endianness);
                     break;
                 case PrimitiveType.INT:
-                    PrimitiveBytes.putIntBytesInArray(dataLine.getInt(i), bytes, currentOffset);
+                    PrimitiveBytes.putIntBytesInArray(dataLine.getInt(i), bytes, currentOffset, endianness);
                     break;
                 case PrimitiveType.LONG:
-                    PrimitiveBytes.putLongBytesInArray(dataLine.getLong(i), bytes, currentOffset);
+                    PrimitiveBytes.putLongBytesInArray(dataLine.getLong(i), bytes, currentOffset, endianness);
                     break;
                 case PrimitiveType.FLOAT:
-                    PrimitiveBytes.putFloatBytesInArray(dataLine.getFloat(i), bytes, currentOffset);
+                    PrimitiveBytes.putFloatBytesInArray(dataLine.getFloat(i), bytes, currentOffset, endianness);
                     break;
                 case PrimitiveType.DOUBLE:
-                    PrimitiveBytes.putDoubleBytesInArray(dataLine.getDouble(i), bytes, currentOffset);
+                    PrimitiveBytes.putDoubleBytesInArray(dataLine.getDouble(i), bytes, currentOffset, endianness);
                     break;
                 default:
                     throw new IllegalStateException();
@@ -0,0 +1,374 @@
+package org.dgl.commons.io.tabular;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Minimum and maximum value of every element for each zone (fixed number of consecutive lines) of a tabular file,
+ * stored in a sidecar file next to it. Integral values are kept as longs and floating point values as the bits of
+ * a double, NaN values are ignored. Overwritten lines only widen the ranges, so they can be loose but never wrong.
+ * The sidecar records the size and modification time of the file, it is ignored once they no longer match
+ */
+final class ZoneMap {
+
+    static final String FILE_EXTENSION = ".zonemap";
+
+    private static final int MAGIC = 0x545A4D50;
+    private static final int VERSION = 1;
+
+    private final DataLineStructure lineStructure;
+    private final byte[] elementsType;
+    private final int[] elementsOffset;
+    private final int bytesPerLine;
+    private final int linesPerZone;
+    private long[] minimums;
+    private long[] maximums;
+    private long numberOfLines;
+    private boolean modified = false;
+
+    /**
+     * Empty zone map
+     */
+    ZoneMap(DataLineStructure lineStructure, int linesPerZone) {
+        this(lineStructure, linesPerZone, new long[0], new long[0], 0);
+    }
+
+    private ZoneMap(DataLineStructure lineStructure, int linesPerZone, long[] minimums, long[] maximums,
+            long numberOfLines) {
+        if (linesPerZone <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.lineStructure = lineStructure;
+        this.linesPerZone = linesPerZone;
+        this.minimums = minimums;
+        this.maximums = maximums;
+        this.numberOfLines = numberOfLines;
+        DataLineLayout layout = lineStructure.getLayout();
+        elementsType = layout.elementsType;
+        elementsOffset = layout.elementsOffset;
+        bytesPerLine = lineStructure.getSizeInBytes();
+    }
+
+    static String getFilePath(String dataFilePath) {
+        return dataFilePath + FILE_EXTENSION;
+    }
+
+    /**
+     * The zone map is only an index, so a sidecar that cannot be read (truncated, corrupt, I/O error) is treated as
+     * a missing one and the file is read entirely or the zone map rebuilt
+     *
+     * @param dataFilePath
+     * @param lineStructure structure of the file
+     * @return null if the file has no zone map, or it is outdated or unreadable
+     */
+    static ZoneMap read(String dataFilePath, DataLineStructure lineStructure) {
+        File file = new File(getFilePath(dataFilePath));
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            return read(file, dataFilePath, lineStructure);
+        } catch (IOException | InvalidFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sizes and modification times of a file and of its sidecar, a zone map read for a stamp can be reused as long
+     * as the stamp does not change
+     */
+    static long[] getStamp(String dataFilePath) {
+        File dataFile = new File(dataFilePath);
+        File file = new File(getFilePath(dataFilePath));
+        return new long[]{dataFile.length(), dataFile.lastModified(), file.length(), file.lastModified()};
+    }
+
+    private static ZoneMap read(File file, String dataFilePath, DataLineStructure lineStructure) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            CRC32 crc = new CRC32();
+            DataInputStream checkedInput = new DataInputStream(new CheckedInputStream(input, crc));
+            if (checkedInput.readInt() != MAGIC) {
+                throw new InvalidFormatException("Not a zone map");
+            }
+            int version = checkedInput.readInt();
+            if (version != VERSION) {
+                throw new InvalidFormatException("Unsupported version " + version);
+            }
+            long fileSize = checkedInput.readLong();
+            long lastModified = checkedInput.readLong();
+            BasicFileAttributes attributes = readAttributes(dataFilePath);
+            if (attributes == null || attributes.size() != fileSize
+                    || attributes.lastModifiedTime().toMillis() != lastModified) {
+                return null;
+            }
+            int numberOfElements = checkedInput.readInt();
+            if (numberOfElements != lineStructure.getNumberOfElements()) {
+                return null;
+            }
+            for (int i = 0; i < numberOfElements; i++) {
+                if (checkedInput.readByte() != lineStructure.getElementType(i)) {
+                    return null;
+                }
+            }
+            int linesPerZone = checkedInput.readInt();
+            long numberOfLines = checkedInput.readLong();
+            if (linesPerZone <= 0 || numberOfLines < 0) {
+                throw new InvalidFormatException("Invalid zone map");
+            }
+            long numberOfValues = ((numberOfLines + linesPerZone - 1) / linesPerZone) * numberOfElements;
+            if (numberOfValues > Integer.MAX_VALUE - 8 || numberOfValues * 2 * Long.BYTES > file.length()) {
+                throw new InvalidFormatException("Invalid zone map");
+            }
+            long[] minimums = new long[(int) numberOfValues];
+            long[] maximums = new long[(int) numberOfValues];
+            for (int i = 0; i < numberOfValues; i++) {
+                minimums[i] = checkedInput.readLong();
+                maximums[i] = checkedInput.readLong();
+            }
+            if (input.readLong() != crc.getValue()) {
+                throw new InvalidFormatException("Zone map checksum mismatch");
+            }
+            return new ZoneMap(lineStructure, linesPerZone, minimums, maximums, numberOfLines);
+        }
+    }
+
+    /**
+     * Builds the zone map of the lines of a file
+     *
+     * @param reader
+     * @param linesPerZone
+     * @return
+     * @throws IOException
+     */
+    static ZoneMap build(TabularFileReader reader, int linesPerZone) throws IOException {
+        ZoneMap zoneMap = new ZoneMap(reader.getLineStructure(), linesPerZone);
+        int linesPerBlock = DataLineCursor.getLinesPerBlock(zoneMap.bytesPerLine);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(linesPerBlock * zoneMap.bytesPerLine);
+        long lineIndex = 0;
+        while (lineIndex < reader.getNumberOfLines()) {
+            ByteBuffer block = reader.readBlock(lineIndex, linesPerBlock, buffer);
+            zoneMap.update(lineIndex, block, block.position(), block.limit());
+            lineIndex += block.remaining() / zoneMap.bytesPerLine;
+        }
+        return zoneMap;
+    }
+
+    /**
+     * Writes the zone map to a temporary file that then replaces the sidecar of the file
+     *
+     * @param dataFilePath
+     * @throws IOException
+     */
+    void write(String dataFilePath) throws IOException {
+        File file = new File(getFilePath(dataFilePath));
+        File temporaryFile = new File(file.getAbsolutePath() + ".tmp");
+        BasicFileAttributes attributes = readAttributes(dataFilePath);
+        if (attributes == null) {
+            throw new NoSuchFileException(dataFilePath);
+        }
+        CRC32 crc = new CRC32();
+        try (DataOutputStream output =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+            DataOutputStream checkedOutput = new DataOutputStream(new CheckedOutputStream(output, crc));
+            checkedOutput.writeInt(MAGIC);
+            checkedOutput.writeInt(VERSION);
+            checkedOutput.writeLong(attributes.size());
+            checkedOutput.writeLong(attributes.lastModifiedTime().toMillis());
+            checkedOutput.writeInt(elementsType.length);
+            checkedOutput.write(elementsType);
+            checkedOutput.writeInt(linesPerZone);
+            checkedOutput.writeLong(numberOfLines);
+            int numberOfValues = getNumberOfZones() * elementsType.length;
+            for (int i = 0; i < numberOfValues; i++) {
+                checkedOutput.writeLong(minimums[i]);
+                checkedOutput.writeLong(maximums[i]);
+            }
+            checkedOutput.flush();
+            output.writeLong(crc.getValue());
+        }
+        try {
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        modified = false;
+    }
+
+    /**
+     * Widens the ranges of the zones of the lines, lines must not start after the last line of the zone map
+     *
+     * @param firstLineIndex index of the first line
+     * @param lines          encoded lines, with the byte order of the file
+     * @param from           position of the first line in lines
+     * @param to             position after the last line in lines
+     */
+    void update(long firstLineIndex, ByteBuffer lines, int from, int to) {
+        if (firstLineIndex > numberOfLines) {
+            throw new IllegalArgumentException();
+        }
+        long lastLineIndex = firstLineIndex + (to - from) / bytesPerLine;
+        if (lastLineIndex > numberOfLines) {
+            ensureCapacity(lastLineIndex);
+            numberOfLines = lastLineIndex;
+        }
+        int position = from;
+        for (long lineIndex = firstLineIndex; lineIndex < lastLineIndex; lineIndex++) {
+            int zoneOffset = (int) (lineIndex / linesPerZone) * elementsType.length;
+            for (int i = 0; i < elementsType.length; i++) {
+                int elementPosition = position + elementsOffset[i];
+                switch (elementsType[i]) {
+                    case PrimitiveType.BYTE:
+                        update(zoneOffset + i, lines.get(elementPosition));
+                        break;
+                    case PrimitiveType.CHAR:
+                        update(zoneOffset + i, lines.getChar(elementPosition));
+                        break;
+                    case PrimitiveType.SHORT:
+                        update(zoneOffset + i, lines.getShort(elementPosition));
+                        break;
+                    case PrimitiveType.INT:
+                        update(zoneOffset + i, lines.getInt(elementPosition));
+                        break;
+                    case PrimitiveType.LONG:
+                        update(zoneOffset + i, lines.getLong(elementPosition));
+                        break;
+                    case PrimitiveType.FLOAT:
+                        update(zoneOffset + i, (double) lines.getFloat(elementPosition));
+                        break;
+                    case PrimitiveType.DOUBLE:
+                        update(zoneOffset + i, lines.getDouble(elementPosition));
+                        break;
+                    default:
+                        throw new IllegalStateException();
+                }
+            }
+            position += bytesPerLine;
+        }
+        modified = true;
+    }
+
+    /**
+     * @param zoneIndex
+     * @param predicates
+     * @return false if no line of the zone matches every predicate
+     */
+    boolean mayMatch(int zoneIndex, ColumnPredicate[] predicates) {
+        int zoneOffset = zoneIndex * elementsType.length;
+        for (ColumnPredicate predicate : predicates) {
+            int valueIndex = zoneOffset + predicate.getElementIndex();
+            if (isFloatingPoint(elementsType[predicate.getElementIndex()])) {
+                if (!predicate.mayMatch(Double.longBitsToDouble(minimums[valueIndex]),
+                        Double.longBitsToDouble(maximums[valueIndex]))) {
+                    return false;
+                }
+            } else if (!predicate.mayMatch(minimums[valueIndex], maximums[valueIndex])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    DataLineStructure getLineStructure() {
+        return lineStructure;
+    }
+
+    int getLinesPerZone() {
+        return linesPerZone;
+    }
+
+    /**
+     * @return number of lines covered, starting at the first line of the file
+     */
+    long getNumberOfLines() {
+        return numberOfLines;
+    }
+
+    int getNumberOfZones() {
+        return (int) ((numberOfLines + linesPerZone - 1) / linesPerZone);
+    }
+
+    /**
+     * @return true if it changed since it was last written
+     */
+    boolean isModified() {
+        return modified;
+    }
+
+    private void update(int valueIndex, long value) {
+        if (value < minimums[valueIndex]) {
+            minimums[valueIndex] = value;
+        }
+        if (value > maximums[valueIndex]) {
+            maximums[valueIndex] = value;
+        }
+    }
+
+    private void update(int valueIndex, double value) {
+        if (value < Double.longBitsToDouble(minimums[valueIndex])) {
+            minimums[valueIndex] = Double.doubleToLongBits(value);
+        }
+        if (value > Double.longBitsToDouble(maximums[valueIndex])) {
+            maximums[valueIndex] = Double.doubleToLongBits(value);
+        }
+    }
+
+    /**
+     * Adds empty zones up to the one of the given line
+     */
+    private void ensureCapacity(long lastLineIndex) {
+        long numberOfValues = ((lastLineIndex + linesPerZone - 1) / linesPerZone) * elementsType.length;
+        int currentValues = getNumberOfZones() * elementsType.length;
+        if (numberOfValues <= currentValues) {
+            return;
+        }
+        if (numberOfValues > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Zone map too large");
+        }
+        if (numberOfValues > minimums.length) {
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(numberOfValues, 2L * minimums.length));
+            minimums = Arrays.copyOf(minimums, capacity);
+            maximums = Arrays.copyOf(maximums, capacity);
+        }
+        for (int i = currentValues; i < numberOfValues; i++) {
+            if (isFloatingPoint(elementsType[i % elementsType.length])) {
+                minimums[i] = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+                maximums[i] = Double.doubleToLongBits(Double.NEGATIVE_INFINITY);
+            } else {
+                minimums[i] = Long.MAX_VALUE;
+                maximums[i] = Long.MIN_VALUE;
+            }
+        }
+    }
+
+    private static boolean isFloatingPoint(byte type) {
+        return type == PrimitiveType.FLOAT || type == PrimitiveType.DOUBLE;
+    }
+
+    /**
+     * @return null if the file does not exist
+     */
+    private static BasicFileAttributes readAttributes(String filePath) throws IOException {
+        try {
+            return Files.readAttributes(new File(filePath).toPath(), BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
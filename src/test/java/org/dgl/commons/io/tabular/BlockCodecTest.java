@@ -0,0 +1,216 @@
+package org.dgl.commons.io.tabular;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Blocks encoded by each codec decode to the same bytes, and damaged blocks are rejected
+ */
+class BlockCodecTest {
+
+    static final DataLineStructure ALL_TYPES = new DataLineStructure(PrimitiveType.BYTE, PrimitiveType.CHAR,
+            PrimitiveType.SHORT, PrimitiveType.INT, PrimitiveType.LONG, PrimitiveType.FLOAT, PrimitiveType.DOUBLE);
+
+    private static final long[] EXTREME_INTEGRALS = {Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, Long.MAX_VALUE,
+            Long.MIN_VALUE, 1, Integer.MIN_VALUE, Integer.MAX_VALUE, 0xFFFF, 0x8000};
+    private static final double[] SPECIAL_DOUBLES = {Double.NaN, -0.0, 0.0, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE, Double.longBitsToDouble(0x7FF0000000000001L),
+            -0.0, Double.NaN};
+
+    /**
+     * Lines cycling through runs of 50 constant, linear, extreme and random values: extremes alternate between
+     * Long.MIN_VALUE and Long.MAX_VALUE (deltas that need 64 bits) and special floating point values, random
+     * floating point values use all 64 bits
+     */
+    static DataLine[] createLines(DataLineStructure lineStructure, int numberOfLines, long seed) {
+        Random random = new Random(seed);
+        DataLine[] lines = new DataLine[numberOfLines];
+        for (int i = 0; i < numberOfLines; i++) {
+            long integral;
+            double floatingPoint;
+            switch ((i / 50) % 4) {
+                case 0:
+                    integral = 1234;
+                    floatingPoint = 12.5;
+                    break;
+                case 1:
+                    integral = i * 3L;
+                    floatingPoint = i * 0.25;
+                    break;
+                case 2:
+                    integral = EXTREME_INTEGRALS[i % EXTREME_INTEGRALS.length];
+                    floatingPoint = SPECIAL_DOUBLES[i % SPECIAL_DOUBLES.length];
+                    break;
+                default:
+                    integral = random.nextLong();
+                    floatingPoint = Double.longBitsToDouble(random.nextLong());
+            }
+            DataLine dataLine = new DataLine(lineStructure);
+            for (int j = 0; j < lineStructure.getNumberOfElements(); j++) {
+                switch (lineStructure.getElementType(j)) {
+                    case PrimitiveType.BYTE:
+                        dataLine.setByte(j, (byte) integral);
+                        break;
+                    case PrimitiveType.CHAR:
+                        dataLine.setChar(j, (char) integral);
+                        break;
+                    case PrimitiveType.SHORT:
+                        dataLine.setShort(j, (short) integral);
+                        break;
+                    case PrimitiveType.INT:
+                        dataLine.setInt(j, (int) integral);
+                        break;
+                    case PrimitiveType.LONG:
+                        dataLine.setLong(j, integral);
+                        break;
+                    case PrimitiveType.FLOAT:
+                        dataLine.setFloat(j, (float) floatingPoint);
+                        break;
+                    default:
+                        dataLine.setDouble(j, floatingPoint);
+                }
+            }
+            lines[i] = dataLine;
+        }
+        return lines;
+    }
+
+    @Test
+    void deltaXorRoundTrip() {
+        roundTrips(CompressionCodec.DELTA_XOR);
+    }
+
+    @Test
+    void lzRoundTrip() {
+        roundTrips(CompressionCodec.LZ);
+    }
+
+    @Test
+    void deltaXorSingleTypes() {
+        singleTypesRoundTrip(CompressionCodec.DELTA_XOR);
+    }
+
+    @Test
+    void lzSingleTypes() {
+        singleTypesRoundTrip(CompressionCodec.LZ);
+    }
+
+    @Test
+    void lzRunsUseOverlappingMatches() {
+        DataLineStructure lineStructure = new DataLineStructure(new byte[]{PrimitiveType.BYTE});
+        ByteBuffer lines = ByteBuffer.allocate(1000);
+        for (int i = 0; i < 1000; i++) {
+            lines.put((byte) (i % 3));
+        }
+        BlockCodec codec = CompressionCodec.newBlockCodec(CompressionCodec.LZ, lineStructure);
+        ByteBuffer block = codec.encode(lines, 1000);
+        assertTrue(block.remaining() < 20, "period 3 run of 1000 bytes took " + block.remaining() + " bytes");
+        assertArrayEquals(lines.array(), decode(codec, block, 1000, 1, ByteOrder.BIG_ENDIAN));
+    }
+
+    @Test
+    void lzDecodesOverlappingMatch() {
+        DataLineStructure lineStructure = new DataLineStructure(new byte[]{PrimitiveType.BYTE});
+        BlockCodec codec = CompressionCodec.newBlockCodec(CompressionCodec.LZ, lineStructure);
+        // 1 literal, a match of length 10 at offset 1, then the end
+        ByteBuffer block = ByteBuffer.wrap(new byte[]{1, 42, 10, 1, 0, 0});
+        byte[] expected = new byte[11];
+        Arrays.fill(expected, (byte) 42);
+        assertArrayEquals(expected, decode(codec, block, 11, 1, ByteOrder.BIG_ENDIAN));
+    }
+
+    @Test
+    void lzRejectsCorruptBlocks() {
+        DataLineStructure lineStructure = new DataLineStructure(new byte[]{PrimitiveType.BYTE});
+        BlockCodec codec = CompressionCodec.newBlockCodec(CompressionCodec.LZ, lineStructure);
+        // offset before the start of the block
+        assertCorrupt(codec, new byte[]{1, 42, 10, 2, 0, 0}, 11);
+        // match past the end of the block
+        assertCorrupt(codec, new byte[]{1, 42, 11, 1, 0, 0}, 11);
+        // fewer bytes than lines
+        assertCorrupt(codec, new byte[]{1, 42, 9, 1, 0, 0}, 11);
+        // more literals than bytes left
+        assertCorrupt(codec, new byte[]{5, 42, 0}, 5);
+        // varint longer than an int
+        assertCorrupt(codec, new byte[]{-1, -1, -1, -1, -1, 1}, 11);
+    }
+
+    @Test
+    void deltaXorRejectsCorruptBlock() {
+        DataLineStructure lineStructure = new DataLineStructure(new byte[]{PrimitiveType.DOUBLE});
+        BlockCodec codec = CompressionCodec.newBlockCodec(CompressionCodec.DELTA_XOR, lineStructure);
+        // prefix 10 reuses the window of a previous value, the first value has none
+        assertCorrupt(codec, new byte[]{(byte) 0x80}, 1);
+    }
+
+    @Test
+    void truncatedBlocksAreRejected() {
+        for (byte codecId : new byte[]{CompressionCodec.DELTA_XOR, CompressionCodec.LZ}) {
+            BlockCodec codec = CompressionCodec.newBlockCodec(codecId, ALL_TYPES);
+            ByteBuffer lines = encodeLines(createLines(ALL_TYPES, 200, 7), ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer block = codec.encode(lines, 200);
+            byte[] encoded = new byte[block.remaining()];
+            block.get(encoded);
+            for (int length : new int[]{0, 1, encoded.length / 2, encoded.length - 1}) {
+                assertCorrupt(codec, Arrays.copyOf(encoded, length), 200);
+            }
+        }
+    }
+
+    private static void roundTrips(byte codecId) {
+        DataLine[] dataLines = createLines(ALL_TYPES, 1000, 1);
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            BlockCodec codec = CompressionCodec.newBlockCodec(codecId, ALL_TYPES);
+            // the same codec instance is reused for blocks of different sizes
+            for (int numberOfLines : new int[]{1, 2, 49, 1000, 3}) {
+                ByteBuffer lines = encodeLines(Arrays.copyOf(dataLines, numberOfLines), order);
+                ByteBuffer block = codec.encode(lines, numberOfLines);
+                assertArrayEquals(lines.array(), decode(codec, block, numberOfLines, ALL_TYPES.getSizeInBytes(),
+                        order));
+            }
+        }
+    }
+
+    private static void singleTypesRoundTrip(byte codecId) {
+        for (byte type = PrimitiveType.BYTE; type <= PrimitiveType.DOUBLE; type++) {
+            DataLineStructure lineStructure = new DataLineStructure(new byte[]{type});
+            BlockCodec codec = CompressionCodec.newBlockCodec(codecId, lineStructure);
+            ByteBuffer lines = encodeLines(createLines(lineStructure, 400, type), ByteOrder.BIG_ENDIAN);
+            ByteBuffer block = codec.encode(lines, 400);
+            assertArrayEquals(lines.array(), decode(codec, block, 400, lineStructure.getSizeInBytes(),
+                    ByteOrder.BIG_ENDIAN));
+        }
+    }
+
+    static ByteBuffer encodeLines(DataLine[] dataLines, ByteOrder order) {
+        int bytesPerLine = dataLines[0].getLineStructure().getSizeInBytes();
+        ByteBuffer lines = ByteBuffer.allocate(dataLines.length * bytesPerLine).order(order);
+        for (DataLine dataLine : dataLines) {
+            lines.put(Utils.getDataLineBytes(dataLine, order));
+        }
+        lines.clear();
+        return lines;
+    }
+
+    private static byte[] decode(BlockCodec codec, ByteBuffer block, int numberOfLines, int bytesPerLine,
+            ByteOrder order) {
+        ByteBuffer lines = ByteBuffer.allocate(numberOfLines * bytesPerLine).order(order);
+        codec.decode(block, numberOfLines, lines);
+        return lines.array();
+    }
+
+    private static void assertCorrupt(BlockCodec codec, byte[] block, int numberOfLines) {
+        InvalidFormatException e = assertThrows(InvalidFormatException.class,
+                () -> decode(codec, ByteBuffer.wrap(block), numberOfLines, 32, ByteOrder.BIG_ENDIAN));
+        assertEquals("Corrupt block", e.getMessage());
+    }
+}
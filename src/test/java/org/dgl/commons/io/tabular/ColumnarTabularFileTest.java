@@ -0,0 +1,162 @@
+package org.dgl.commons.io.tabular;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lines appended to a columnar file across reopens, with partial row groups in between, are read back by line and
+ * by column
+ */
+class ColumnarTabularFileTest {
+
+    private static final DataLineStructure STRUCTURE = BlockCodecTest.ALL_TYPES;
+    private static final int LINES_PER_GROUP = 32;
+
+    private File directory;
+    private File file;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("columnar-file-test").toFile();
+        file = new File(directory, "data.tabc");
+    }
+
+    @AfterEach
+    void deleteDirectory() {
+        file.delete();
+        directory.delete();
+    }
+
+    @Test
+    void appendAcrossGroups() throws IOException {
+        appendAndRead(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Test
+    void appendAcrossGroupsBigEndian() throws IOException {
+        appendAndRead(ByteOrder.BIG_ENDIAN);
+    }
+
+    @Test
+    void invalidColumnReadsAreRejected() throws IOException {
+        DataLine[] lines = BlockCodecTest.createLines(STRUCTURE, 10, 1);
+        ColumnarTabularFileWriter writer = new ColumnarTabularFileWriter(file.getPath(), STRUCTURE,
+                ByteOrder.LITTLE_ENDIAN, LINES_PER_GROUP);
+        writer.writeLines(lines);
+        writer.close();
+        try (ColumnarTabularFileReader reader = new ColumnarTabularFileReader(file.getPath())) {
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.readLongColumn(4, 0, 11, new long[11]));
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.readLongColumn(4, 0, 10, new long[9]));
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.readLongColumn(4, 0, 10, new long[10], 1));
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.readLongColumn(7, 0, 10, new long[10]));
+            assertThrows(IllegalArgumentException.class, () -> reader.readLongColumn(4, 5, 4, new long[11]));
+            // element 4 is a long
+            assertThrows(InvalidFormatException.class, () -> reader.readIntColumn(4, 0, 10, new int[10]));
+        }
+    }
+
+    /**
+     * Each step reopens the file, writes some lines, flushes, writes more and closes. The steps end in the middle of
+     * a group, on a group boundary and right after one
+     */
+    private void appendAndRead(ByteOrder endianness) throws IOException {
+        DataLine[] lines = BlockCodecTest.createLines(STRUCTURE, 200, 2);
+        int[] steps = {5, 20, 31, 32, 33, 64, 65, 130, 131, 200};
+        int written = 0;
+        for (int i = 0; i < steps.length; i += 2) {
+            ColumnarTabularFileWriter writer = new ColumnarTabularFileWriter(file.getPath(), STRUCTURE, endianness,
+                    LINES_PER_GROUP);
+            assertEquals(written, writer.getNumberOfLines());
+            assertEquals(LINES_PER_GROUP, writer.getLinesPerGroup());
+            for (; written < steps[i]; written++) {
+                writer.writeLine(lines[written]);
+            }
+            writer.flush();
+            assertLines(Arrays.copyOf(lines, written), endianness);
+            for (; written < steps[i + 1]; written++) {
+                writer.writeLine(lines[written]);
+            }
+            writer.close();
+            assertLines(Arrays.copyOf(lines, written), endianness);
+        }
+    }
+
+    private void assertLines(DataLine[] lines, ByteOrder endianness) throws IOException {
+        try (ColumnarTabularFileReader reader = new ColumnarTabularFileReader(file.getPath())) {
+            assertEquals(lines.length, reader.getNumberOfLines());
+            assertEquals(endianness, reader.getEndianness());
+            assertEquals(LINES_PER_GROUP, reader.getLinesPerGroup());
+            for (int i = 0; i < lines.length; i++) {
+                assertTrue(lines[i].equals(reader.getLine(i)), "line " + i);
+            }
+            try (DataLineCursor cursor = reader.cursor()) {
+                for (DataLine line : lines) {
+                    assertTrue(cursor.next());
+                    assertTrue(line.equals(cursor.getDataLine()), "line " + cursor.getLineIndex());
+                }
+                assertFalse(cursor.next());
+            }
+            // whole column, then a range across group boundaries into the middle of the destination
+            assertColumns(reader, lines, 0, lines.length, 0);
+            if (lines.length > LINES_PER_GROUP + 2) {
+                assertColumns(reader, lines, LINES_PER_GROUP - 1, lines.length - 1, 3);
+            }
+        }
+    }
+
+    private static void assertColumns(ColumnarTabularFileReader reader, DataLine[] lines, int firstIndex,
+            int lastIndex, int offset) throws IOException {
+        int length = offset + lastIndex - firstIndex;
+        byte[] bytes = new byte[length];
+        char[] chars = new char[length];
+        short[] shorts = new short[length];
+        int[] ints = new int[length];
+        long[] longs = new long[length];
+        float[] floats = new float[length];
+        double[] doubles = new double[length];
+        for (int i = firstIndex; i < lastIndex; i++) {
+            int position = offset + i - firstIndex;
+            bytes[position] = lines[i].getByte(0);
+            chars[position] = lines[i].getChar(1);
+            shorts[position] = lines[i].getShort(2);
+            ints[position] = lines[i].getInt(3);
+            longs[position] = lines[i].getLong(4);
+            floats[position] = lines[i].getFloat(5);
+            doubles[position] = lines[i].getDouble(6);
+        }
+        byte[] readBytes = new byte[length];
+        reader.readByteColumn(0, firstIndex, lastIndex, readBytes, offset);
+        assertArrayEquals(bytes, readBytes);
+        char[] readChars = new char[length];
+        reader.readCharColumn(1, firstIndex, lastIndex, readChars, offset);
+        assertArrayEquals(chars, readChars);
+        short[] readShorts = new short[length];
+        reader.readShortColumn(2, firstIndex, lastIndex, readShorts, offset);
+        assertArrayEquals(shorts, readShorts);
+        int[] readInts = new int[length];
+        reader.readIntColumn(3, firstIndex, lastIndex, readInts, offset);
+        assertArrayEquals(ints, readInts);
+        long[] readLongs = new long[length];
+        reader.readLongColumn(4, firstIndex, lastIndex, readLongs, offset);
+        assertArrayEquals(longs, readLongs);
+        float[] readFloats = new float[length];
+        reader.readFloatColumn(5, firstIndex, lastIndex, readFloats, offset);
+        assertArrayEquals(floats, readFloats);
+        double[] readDoubles = new double[length];
+        reader.readDoubleColumn(6, firstIndex, lastIndex, readDoubles, offset);
+        assertArrayEquals(doubles, readDoubles);
+    }
+}
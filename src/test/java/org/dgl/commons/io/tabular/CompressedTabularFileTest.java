@@ -0,0 +1,152 @@
+package org.dgl.commons.io.tabular;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.dgl.commons.io.Definitions.DEFAULT_ENDIANNESS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lines written by CompressedTabularFileWriter, in one go or across flushes and reopens, are read back unchanged
+ */
+class CompressedTabularFileTest {
+
+    private static final int LINES_PER_BLOCK = 64;
+
+    private File directory;
+    private File file;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("compressed-file-test").toFile();
+        file = new File(directory, "data.tabz");
+    }
+
+    @AfterEach
+    void deleteDirectory() {
+        file.delete();
+        directory.delete();
+    }
+
+    @Test
+    void deltaXorPartialLastBlock() throws IOException {
+        writeAndRead(CompressionCodec.DELTA_XOR, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Test
+    void lzPartialLastBlock() throws IOException {
+        writeAndRead(CompressionCodec.LZ, ByteOrder.BIG_ENDIAN);
+    }
+
+    @Test
+    void deltaXorFlushReopenAppend() throws IOException {
+        flushReopenAppend(CompressionCodec.DELTA_XOR);
+    }
+
+    @Test
+    void lzFlushReopenAppend() throws IOException {
+        flushReopenAppend(CompressionCodec.LZ);
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        DataLine[] lines = BlockCodecTest.createLines(BlockCodecTest.ALL_TYPES, 300, 3);
+        write(CompressionCodec.DELTA_XOR, ByteOrder.LITTLE_ENDIAN, lines, 0, lines.length);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(randomAccessFile.length() - 1);
+        }
+        assertThrows(InvalidFormatException.class, () -> new CompressedTabularFileReader(file.getPath()));
+    }
+
+    @Test
+    void corruptBlockIsRejected() throws IOException {
+        DataLine[] lines = BlockCodecTest.createLines(BlockCodecTest.ALL_TYPES, 300, 4);
+        write(CompressionCodec.LZ, ByteOrder.LITTLE_ENDIAN, lines, 0, lines.length);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            FileChannel fileChannel = randomAccessFile.getChannel();
+            FileHeader header = FileHeader.read(fileChannel, fileChannel.size(), DEFAULT_ENDIANNESS);
+            long[] blockPositions = CompressedTabularFileReader.readBlockIndex(fileChannel, header);
+            // a varint of 0xFF bytes never ends
+            byte[] garbage = new byte[(int) (blockPositions[1] - blockPositions[0])];
+            Arrays.fill(garbage, (byte) 0xFF);
+            fileChannel.write(ByteBuffer.wrap(garbage), blockPositions[0]);
+        }
+        try (CompressedTabularFileReader reader = new CompressedTabularFileReader(file.getPath())) {
+            assertThrows(InvalidFormatException.class, () -> reader.getLine(0));
+            // other blocks are still readable
+            assertTrue(lines[LINES_PER_BLOCK].equals(reader.getLine(LINES_PER_BLOCK)));
+        }
+    }
+
+    private void writeAndRead(byte codec, ByteOrder endianness) throws IOException {
+        DataLine[] lines = BlockCodecTest.createLines(BlockCodecTest.ALL_TYPES, 1000, 5);
+        write(codec, endianness, lines, 0, lines.length);
+        assertLines(lines, codec, endianness);
+    }
+
+    /**
+     * Flushes in the middle of blocks and reopens the file several times, the last block is partial at each step
+     */
+    private void flushReopenAppend(byte codec) throws IOException {
+        DataLine[] lines = BlockCodecTest.createLines(BlockCodecTest.ALL_TYPES, 700, 6);
+        int[] steps = {10, 150, 151, 300, 500, 700};
+        int written = 0;
+        for (int i = 0; i < steps.length; i += 2) {
+            CompressedTabularFileWriter writer = new CompressedTabularFileWriter(file.getPath(),
+                    BlockCodecTest.ALL_TYPES, ByteOrder.LITTLE_ENDIAN, codec, LINES_PER_BLOCK);
+            assertEquals(written, writer.getNumberOfLines());
+            for (; written < steps[i]; written++) {
+                writer.writeLine(lines[written]);
+            }
+            writer.flush();
+            assertLines(Arrays.copyOf(lines, written), codec, ByteOrder.LITTLE_ENDIAN);
+            for (; written < steps[i + 1]; written++) {
+                writer.writeLine(lines[written]);
+            }
+            writer.close();
+            assertLines(Arrays.copyOf(lines, written), codec, ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private void write(byte codec, ByteOrder endianness, DataLine[] lines, int firstIndex, int lastIndex)
+            throws IOException {
+        CompressedTabularFileWriter writer = new CompressedTabularFileWriter(file.getPath(),
+                BlockCodecTest.ALL_TYPES, endianness, codec, LINES_PER_BLOCK);
+        for (int i = firstIndex; i < lastIndex; i++) {
+            writer.writeLine(lines[i]);
+        }
+        writer.close();
+    }
+
+    private void assertLines(DataLine[] lines, byte codec, ByteOrder endianness) throws IOException {
+        try (CompressedTabularFileReader reader = new CompressedTabularFileReader(file.getPath())) {
+            assertEquals(lines.length, reader.getNumberOfLines());
+            assertEquals(codec, reader.getCodec());
+            assertEquals(endianness, reader.getEndianness());
+            assertEquals(LINES_PER_BLOCK, reader.getLinesPerBlock());
+            for (int i = lines.length - 1; i >= 0; i--) {
+                assertTrue(lines[i].equals(reader.getLine(i)), "line " + i);
+            }
+            try (DataLineCursor cursor = reader.cursor()) {
+                for (DataLine line : lines) {
+                    assertTrue(cursor.next());
+                    assertTrue(line.equals(cursor.getDataLine()), "line " + cursor.getLineIndex());
+                }
+                assertFalse(cursor.next());
+            }
+        }
+    }
+}
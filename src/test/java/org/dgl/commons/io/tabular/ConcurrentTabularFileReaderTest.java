@@ -0,0 +1,124 @@
+package org.dgl.commons.io.tabular;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Many threads reading one shared reader, every value is checked against the one written for its line
+ */
+class ConcurrentTabularFileReaderTest {
+
+    private static final int NUMBER_OF_LINES = 100_000;
+    private static final int NUMBER_OF_THREADS = 16;
+    private static final int READS_PER_THREAD = 20_000;
+    // 20 bytes per line, so these ranges are read in more than one chunk
+    private static final int LARGE_RANGE = 60_000;
+
+    private static File directory;
+    private static File file;
+
+    @BeforeAll
+    static void writeFile() throws IOException {
+        directory = Files.createTempDirectory("concurrent-reader-test").toFile();
+        file = new File(directory, "data.tab");
+        DataLineStructure lineStructure = new DataLineStructure(PrimitiveType.LONG, PrimitiveType.INT,
+                PrimitiveType.DOUBLE);
+        TabularFileWriter writer = new TabularFileWriter(file.getAbsolutePath(), lineStructure);
+        for (int i = 0; i < NUMBER_OF_LINES; i++) {
+            DataLine dataLine = new DataLine(lineStructure);
+            dataLine.setLong(0, i * 7L).setInt(1, i).setDouble(2, i * 0.5);
+            writer.writeLine(dataLine);
+        }
+        writer.close();
+    }
+
+    @AfterAll
+    static void deleteFile() {
+        file.delete();
+        directory.delete();
+    }
+
+    @Test
+    void channelReads() throws Exception {
+        readConcurrently(false);
+    }
+
+    @Test
+    void memoryMappedReads() throws Exception {
+        readConcurrently(true);
+    }
+
+    private static void readConcurrently(boolean memoryMapped) throws Exception {
+        ConcurrentTabularFileReader reader = new ConcurrentTabularFileReader(file.getAbsolutePath(), memoryMapped);
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < NUMBER_OF_THREADS; i++) {
+                results.add(executor.submit(readTask(reader, start, i)));
+            }
+            start.countDown();
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof AssertionError) {
+                        throw (AssertionError) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            reader.close();
+        }
+    }
+
+    private static Callable<Void> readTask(ConcurrentTabularFileReader reader, CountDownLatch start, int seed) {
+        return () -> {
+            Random random = new Random(seed);
+            start.await();
+            for (int i = 0; i < READS_PER_THREAD; i++) {
+                int lineIndex = random.nextInt(NUMBER_OF_LINES);
+                if (i % 5000 == 0) {
+                    int firstIndex = random.nextInt(NUMBER_OF_LINES - LARGE_RANGE);
+                    checkLines(reader.getLines(firstIndex, firstIndex + LARGE_RANGE), firstIndex);
+                } else if (i % 10 == 0) {
+                    int lastIndex = Math.min(NUMBER_OF_LINES, lineIndex + 1 + random.nextInt(100));
+                    checkLines(reader.getLines(lineIndex, lastIndex), lineIndex);
+                } else {
+                    checkLine(reader.getLine(lineIndex), lineIndex);
+                }
+            }
+            return null;
+        };
+    }
+
+    private static void checkLines(DataLine[] dataLines, int firstIndex) {
+        for (int i = 0; i < dataLines.length; i++) {
+            checkLine(dataLines[i], firstIndex + i);
+        }
+    }
+
+    private static void checkLine(DataLine dataLine, int lineIndex) {
+        assertEquals(lineIndex * 7L, dataLine.getLong(0));
+        assertEquals(lineIndex, dataLine.getInt(1));
+        assertEquals(lineIndex * 0.5, dataLine.getDouble(2));
+    }
+}
@@ -0,0 +1,189 @@
+package org.dgl.commons.io.tabular;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Headers written by encode() are read back with the same values, damaged or unknown headers are rejected
+ */
+class FileHeaderTest {
+
+    private File directory;
+    private File file;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("file-header-test").toFile();
+        file = new File(directory, "data.tab");
+    }
+
+    @AfterEach
+    void deleteDirectory() {
+        file.delete();
+        directory.delete();
+    }
+
+    @Test
+    void version1RoundTrip() throws IOException {
+        DataLineStructure lineStructure = new DataLineStructure(PrimitiveType.INT, PrimitiveType.DOUBLE,
+                PrimitiveType.BYTE);
+        byte[] bytes = encode(FileHeader.create(lineStructure, ByteOrder.LITTLE_ENDIAN), 1234, 0);
+        // 32 bytes fixed part and 3 elements, padded to 40
+        assertEquals(40, bytes.length);
+        assertPadding(bytes, 35);
+        FileHeader header = read(bytes, ByteOrder.BIG_ENDIAN);
+        assertEquals(FileHeader.VERSION, header.getVersion());
+        assertEquals(FileHeader.ROW_LAYOUT, header.getLayout());
+        assertEquals(40, header.getLength());
+        assertEquals(ByteOrder.LITTLE_ENDIAN, header.getEndianness());
+        assertEquals(1234, header.getNumberOfLines());
+        assertTrue(lineStructure.equals(header.getLineStructure()));
+        assertFalse(header.getLineStructure().hasElementNames());
+    }
+
+    @Test
+    void version2RoundTrip() throws IOException {
+        DataLineStructure lineStructure = new DataLineStructure(PrimitiveType.LONG, PrimitiveType.CHAR,
+                PrimitiveType.SHORT, PrimitiveType.FLOAT, PrimitiveType.DOUBLE, PrimitiveType.INT,
+                PrimitiveType.BYTE, PrimitiveType.LONG);
+        FileHeader created = FileHeader.createCompressed(lineStructure, ByteOrder.BIG_ENDIAN, 4096,
+                CompressionCodec.LZ);
+        byte[] bytes = encode(created, 5L << 33, 123456789L);
+        // 48 bytes fixed part and 8 elements, already a multiple of 8
+        assertEquals(56, bytes.length);
+        FileHeader header = read(bytes, ByteOrder.LITTLE_ENDIAN);
+        assertEquals(FileHeader.LAYOUT_VERSION, header.getVersion());
+        assertEquals(FileHeader.COMPRESSED_LAYOUT, header.getLayout());
+        assertEquals(56, header.getLength());
+        assertEquals(ByteOrder.BIG_ENDIAN, header.getEndianness());
+        assertEquals(5L << 33, header.getNumberOfLines());
+        assertEquals(4096, header.getLinesPerGroup());
+        assertEquals(CompressionCodec.LZ, header.getCodec());
+        assertEquals(123456789L, header.getIndexPosition());
+        assertTrue(lineStructure.equals(header.getLineStructure()));
+
+        FileHeader columnar = read(encode(FileHeader.createColumnar(lineStructure, ByteOrder.LITTLE_ENDIAN, 100),
+                7, 0), ByteOrder.BIG_ENDIAN);
+        assertEquals(FileHeader.COLUMNAR_LAYOUT, columnar.getLayout());
+        assertEquals(100, columnar.getLinesPerGroup());
+        assertEquals(7, columnar.getNumberOfLines());
+    }
+
+    @Test
+    void elementNamesRoundTrip() throws IOException {
+        DataLineStructure lineStructure = new DataLineStructure(PrimitiveType.LONG, PrimitiveType.DOUBLE,
+                PrimitiveType.INT);
+        lineStructure.setElementName(0, "time").setElementName(1, "temp\u00e9rature").setElementName(2, "n");
+        lineStructure.setElementSorted(0, true);
+        FileHeader[] headers = {FileHeader.create(lineStructure, ByteOrder.BIG_ENDIAN),
+                FileHeader.createColumnar(lineStructure, ByteOrder.BIG_ENDIAN, 10)};
+        // fixed part, 3 elements and the names with their 2 bytes length, the second name is 12 bytes in UTF-8
+        int[] namesEnd = {32 + 3 + 6 + 14 + 3, 48 + 3 + 6 + 14 + 3};
+        for (int i = 0; i < headers.length; i++) {
+            byte[] bytes = encode(headers[i], 0, 0);
+            assertEquals((namesEnd[i] + 7) / 8 * 8, bytes.length);
+            assertPadding(bytes, namesEnd[i]);
+            DataLineStructure read = read(bytes, ByteOrder.BIG_ENDIAN).getLineStructure();
+            assertTrue(lineStructure.equals(read));
+            assertTrue(read.hasElementNames());
+            assertEquals("time", read.getElementName(0));
+            assertEquals("temp\u00e9rature", read.getElementName(1));
+            assertEquals("n", read.getElementName(2));
+            assertEquals(1, read.getElementIndex("temp\u00e9rature"));
+            assertTrue(read.isElementSorted(0));
+            assertFalse(read.isElementSorted(1));
+            assertFalse(read.isElementSorted(2));
+        }
+    }
+
+    @Test
+    void checksumMismatchIsRejected() throws IOException {
+        DataLineStructure lineStructure = new DataLineStructure(PrimitiveType.INT, PrimitiveType.LONG);
+        lineStructure.setElementName(0, "a").setElementName(1, "b");
+        byte[] bytes = encode(FileHeader.create(lineStructure, ByteOrder.BIG_ENDIAN), 10, 0);
+        // number of lines, element type and element name
+        for (int position : new int[]{23, 33, bytes.length - 4}) {
+            byte[] damaged = bytes.clone();
+            damaged[position] ^= 0x01;
+            InvalidFormatException e = assertThrows(InvalidFormatException.class,
+                    () -> read(damaged, ByteOrder.BIG_ENDIAN));
+            assertEquals("Header checksum mismatch", e.getMessage());
+        }
+    }
+
+    @Test
+    void invalidHeadersAreRejected() {
+        byte[] bytes = encode(FileHeader.create(new DataLineStructure(PrimitiveType.INT, PrimitiveType.INT),
+                ByteOrder.BIG_ENDIAN), 0, 0);
+        byte[] unknownVersion = bytes.clone();
+        unknownVersion[4] = 9;
+        assertThrows(InvalidFormatException.class, () -> read(unknownVersion, ByteOrder.BIG_ENDIAN));
+        byte[] unalignedLength = bytes.clone();
+        unalignedLength[11] = 36;
+        assertThrows(InvalidFormatException.class, () -> read(unalignedLength, ByteOrder.BIG_ENDIAN));
+    }
+
+    @Test
+    void legacyHeader() throws IOException {
+        byte[] bytes = {PrimitiveType.LONG, PrimitiveType.INT, PrimitiveType.BYTE, 0, 1, 2, 3};
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            FileHeader header = read(bytes, order);
+            assertEquals(FileHeader.LEGACY_VERSION, header.getVersion());
+            assertEquals(4, header.getLength());
+            assertEquals(-1, header.getNumberOfLines());
+            assertEquals(order, header.getEndianness());
+            assertTrue(new DataLineStructure(PrimitiveType.LONG, PrimitiveType.INT, PrimitiveType.BYTE)
+                    .equals(header.getLineStructure()));
+        }
+    }
+
+    @Test
+    void legacyHeaderWithInvalidEndIsRejected() {
+        // the 'B' and 'L' end markers are not accepted any more
+        for (byte end : new byte[]{'B', 'L', 9}) {
+            byte[] bytes = {PrimitiveType.INT, PrimitiveType.DOUBLE, end, 0, 0};
+            InvalidFormatException e = assertThrows(InvalidFormatException.class,
+                    () -> read(bytes, ByteOrder.BIG_ENDIAN));
+            assertEquals("Invalid header end", e.getMessage());
+        }
+        byte[] noEnd = {PrimitiveType.INT, PrimitiveType.DOUBLE};
+        InvalidFormatException e = assertThrows(InvalidFormatException.class,
+                () -> read(noEnd, ByteOrder.BIG_ENDIAN));
+        assertEquals("Header end not found", e.getMessage());
+    }
+
+    private static byte[] encode(FileHeader header, long numberOfLines, long indexPosition) {
+        ByteBuffer buffer = header.encode(numberOfLines, indexPosition);
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private FileHeader read(byte[] bytes, ByteOrder legacyEndianness) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(0);
+            randomAccessFile.write(bytes);
+            return FileHeader.read(randomAccessFile.getChannel(), bytes.length, legacyEndianness);
+        }
+    }
+
+    private static void assertPadding(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            assertEquals(0, bytes[i]);
+        }
+    }
+}